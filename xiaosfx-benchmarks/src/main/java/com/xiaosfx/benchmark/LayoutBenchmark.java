@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.benchmark;
+
+import java.awt.Dimension;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.xiaosfx.XLayout;
+
+/**
+ * Benchmarks the steady-state layout passes of XLayout on synthetic forms:
+ * layoutContainer while the form is being resized, and preferredLayoutSize.<br><br>
+ * 
+ * Build with <b>mvn package</b> and run, headless, with:<br>
+ * <b>java -jar xiaosfx-benchmarks/target/benchmarks.jar -prof gc</b><br>
+ * -prof gc adds the allocation rate and bytes per operation to the results.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LayoutBenchmark {
+	@Param({ "10", "100", "1000", "10000", "50000" })
+	public int components;
+	
+	@Param({ "0", "4", "16" })
+	public int depth;
+	
+	private JPanel form;
+	private XLayout layout;
+	private int resize = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.form = SyntheticForms.newForm( SyntheticForms.getFormClass(this.components, this.depth) );
+		this.layout = (XLayout) this.form.getLayout();
+		SyntheticForms.layout( this.form, 1024, 768 );
+	}
+	
+	/**
+	 * A resize storm: every pass gets a different size.
+	 */
+	@Benchmark
+	public void layoutContainer() {
+		this.resize = (this.resize + 1) & 15;
+		SyntheticForms.layout( this.form, 1024 + this.resize, 768 + this.resize );
+	}
+	
+	@Benchmark
+	public Dimension preferredLayoutSize() {
+		return this.layout.preferredLayoutSize( this.form );
+	}
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.benchmark;
+
+import java.awt.Container;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Vector;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import com.xiaosfx.XLayout;
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+import com.xiaosfx.reflect.Reflection;
+
+/**
+ * Generates, compiles and instantiates synthetic XContainer forms for the
+ * benchmarks.<br>
+ * A form with N components and nesting depth D has a chain of D nested
+ * containers, the first one owned by the root, and spreads the other
+ * components between the root and those containers, with a mix of
+ * constraints. Since a class can't hold more than a few thousand fields,
+ * the fields are split across a chain of superclasses.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public final class SyntheticForms {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	private final static int FIELDS_PER_CLASS = 1000;
+	
+	/**
+	 * The constraints given to the components, in turns.
+	 */
+	private final static String CONSTRAINTS[] = {
+		"left = 4, top = 4",
+		"left = 4, right = 4, top = 30, height = 20",
+		"right = 8, bottom = 8, width = 80",
+		"horizontalCenter = 0, verticalCenter = 10",
+		"left = 10, right = 10, top = 60, bottom = 10",
+		"bottom = 4, horizontalCenter = -20",
+	};
+	
+	private final static HashMap<String, Class<?>> FORMS = new HashMap<String, Class<?>>();
+	private final static HashMap<String, File> DIRECTORIES = new HashMap<String, File>();
+	private static Thread cleaner = null;
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * Returns the form class with the given number of components and
+	 * nesting depth, compiling it the first time.
+	 */
+	public static synchronized Class<?> getFormClass(int components, int depth) {
+		String name = "SyntheticForm" + components + "x" + depth;
+		Class<?> formClass = FORMS.get( name );
+		if ( formClass == null ) {
+			formClass = loadFormClass( components, depth );
+			FORMS.put( name, formClass );
+		}
+		return formClass;
+	}
+	
+	/**
+	 * Returns the form class with the given number of components and
+	 * nesting depth, loaded by a new class loader: it's a different class
+	 * each time, which XLayout never scanned. Only the first call compiles it.
+	 */
+	public static synchronized Class<?> loadFormClass(int components, int depth) {
+		String name = "SyntheticForm" + components + "x" + depth;
+		File directory = DIRECTORIES.get( name );
+		try {
+			if ( directory == null ) {
+				directory = compile( name, components, depth );
+				DIRECTORIES.put( name, directory );
+			}
+			URLClassLoader loader = new URLClassLoader( new URL[] { directory.toURI().toURL() },
+										SyntheticForms.class.getClassLoader() );
+			return loader.loadClass( name );
+		} catch (IOException e) {
+			throw new IllegalStateException( "Unable to compile " + name, e );
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException( e );
+		}
+	}
+	
+	/**
+	 * Returns a new instance of formClass with all its annotated fields
+	 * instantiated and an XLayout.
+	 */
+	public static JPanel newForm(Class<?> formClass) {
+		try {
+			JPanel form = (JPanel) formClass.getConstructor().newInstance();
+			Field fields[] = Reflection.getAnnotatedFields( formClass, XComponent.class, XContainer.class );
+			for ( int i = 0; i < fields.length; i++ ) {
+				if ( fields[i].isAnnotationPresent(XContainer.class) )
+					fields[i].set( form, new JPanel(null) );
+				else
+					fields[i].set( form, new JLabel("Label " + i) );
+			}
+			form.setLayout( new XLayout() );
+			return form;
+		} catch (Exception e) {
+			throw new IllegalStateException( "Unable to instantiate " + formClass.getName(), e );
+		}
+	}
+	
+	/**
+	 * Lays out form and all its nested containers at the given size.
+	 */
+	public static void layout(Container form, int width, int height) {
+		form.setSize( width, height );
+		form.getLayout().layoutContainer( form );
+	}
+	
+	/**
+	 * Compiles the form into a new temporary directory, deleted when the JVM exits.
+	 */
+	private static File compile(String name, int components, int depth) throws IOException {
+		File directory = Files.createTempDirectory( "xiaosfx-" + name ).toFile();
+		if ( cleaner == null ) {
+			cleaner = new Thread( "SyntheticForms cleaner" ) {
+				@Override
+				public void run() {
+					synchronized ( SyntheticForms.class ) {
+						for ( File directory : DIRECTORIES.values() )
+							delete( directory );
+					}
+				}
+			};
+			Runtime.getRuntime().addShutdownHook( cleaner );
+		}
+		
+		// Chain of classes, each one holding up to FIELDS_PER_CLASS fields
+		Vector<File> sources = new Vector<File>();
+		int parts = Math.max( 1, (components + FIELDS_PER_CLASS - 1) / FIELDS_PER_CLASS );
+		int field = 0;
+		for ( int part = 0; part < parts; part++ ) {
+			boolean last = part == parts - 1;
+			String className = last ? name : name + "Part" + part;
+			String superclass = part == 0 ? "javax.swing.JPanel" : name + "Part" + (part - 1);
+			
+			StringBuilder source = new StringBuilder();
+			source.append( "import com.xiaosfx.annotation.*;\n\n" );
+			if ( last )
+				source.append( "@XContainer(name = \"root\", paddingLeft = 4, paddingRight = 4, paddingTop = 4, paddingBottom = 4)\n" );
+			source.append( "public class " ).append( className ).append( " extends " ).append( superclass ).append( " {\n" );
+			int end = Math.min( components, (part + 1) * FIELDS_PER_CLASS );
+			for ( ; field < end; field++ ) {
+				if ( field < depth ) {
+					// Nested containers, each one inside the previous one
+					source.append( "\t@XComponent(left = 2, right = 2, top = 2, bottom = 2, owner = \"" )
+						.append( field == 0 ? "root" : "c" + (field - 1) ).append( "\")\n" );
+					source.append( "\t@XContainer(name = \"c" ).append( field )
+						.append( "\", paddingLeft = 1, paddingTop = 1)\n" );
+					source.append( "\tpublic javax.swing.JPanel f" ).append( field ).append( ";\n" );
+				}
+				else {
+					int owner = field % (Math.min(depth, components) + 1);
+					source.append( "\t@XComponent(" ).append( CONSTRAINTS[field % CONSTRAINTS.length] )
+						.append( ", owner = \"" ).append( owner == 0 ? "root" : "c" + (owner - 1) ).append( "\")\n" );
+					source.append( "\tpublic javax.swing.JLabel f" ).append( field ).append( ";\n" );
+				}
+			}
+			source.append( "}\n" );
+			
+			File file = new File( directory, className + ".java" );
+			Files.write( file.toPath(), source.toString().getBytes(StandardCharsets.UTF_8) );
+			sources.add( file );
+		}
+		
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if ( compiler == null )
+			throw new IllegalStateException( "The benchmarks must run on a JDK, to compile the forms." );
+		Vector<String> arguments = new Vector<String>();
+		arguments.add( "-classpath" );
+		arguments.add( System.getProperty("java.class.path") );
+		arguments.add( "-proc:none" );
+		arguments.add( "-nowarn" );
+		arguments.add( "-d" );
+		arguments.add( directory.getPath() );
+		for ( File source : sources )
+			arguments.add( source.getPath() );
+		if ( compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0 ) {
+			delete( directory );
+			throw new IllegalStateException( "Compilation of " + name + " failed." );
+		}
+		return directory;
+	}
+	
+	/**
+	 * Deletes file, and everything inside it if it's a directory.
+	 */
+	private static void delete(File file) {
+		File children[] = file.listFiles();
+		if ( children != null )
+			for ( int i = 0; i < children.length; i++ )
+				delete( children[i] );
+		file.delete();
+	}
+
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.xiaosfx.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Dimension;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.xiaosfx.XLayout;
+import com.xiaosfx.XMetadata;
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+import com.xiaosfx.reflect.FieldAccessor;
+import com.xiaosfx.reflect.Reflection;
+
+/**
+ * Checks the budgets of XLayout on synthetic forms, headless, and fails
+ * if any of them is exceeded: the bytes allocated per layout pass, the
+ * number of getPreferredSize, setBounds and reflective field calls per
+ * pass, and how the metadata and layout work grow with the number of fields.<br>
+ * Unlike the benchmarks, it gives a pass or fail answer, so that a change
+ * which adds garbage to every pass, or quadratic work, is caught by the build:
+ * it runs with the other tests, on <b>mvn test</b> or <b>mvn verify</b>.<br>
+ * The checks of the times are tagged <b>timing</b>: the wall clock depends
+ * on the machine and its load, they only run with the timing profile,
+ * <b>mvn test -Ptiming</b>.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public final class LayoutBudgetTest {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	private final static int COMPONENTS = 2000;
+	private final static int DEPTH = 4;
+	private final static int PASSES = 200;
+	private final static int GROWTH = 8;
+	
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private static long preferredSizeCalls = 0;
+	private static long setBoundsCalls = 0;
+	private static long reflectiveCalls = 0;
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	@BeforeEach
+	public void setUp() {
+		resetCounters();
+	}
+	
+	/**
+	 * Passes at the same size, with nothing changed: nothing to request,
+	 * nothing to move, and no garbage.
+	 */
+	@Test
+	public void checkSteadyPasses() {
+		JPanel form = newForm( COMPONENTS, DEPTH );
+		for ( int i = 0; i < PASSES; i++ )
+			layout( form, 1024, 768 );
+		
+		resetCounters();
+		long bytes = allocatedBytes();
+		for ( int i = 0; i < PASSES; i++ )
+			layout( form, 1024, 768 );
+		bytes = allocatedBytes() - bytes;
+		
+		check( "steady pass, bytes allocated", bytes / PASSES, 256 );
+		check( "steady pass, getPreferredSize calls", preferredSizeCalls / PASSES, 0 );
+		check( "steady pass, setBounds calls", setBoundsCalls / PASSES, 0 );
+		check( "steady pass, reflective field calls", reflectiveCalls(), 0 );
+	}
+	
+	/**
+	 * Passes at alternating sizes: each component is requested and moved
+	 * at most once, and the garbage doesn't grow with the number of components.
+	 */
+	@Test
+	public void checkResizePasses() {
+		JPanel form = newForm( COMPONENTS, DEPTH );
+		for ( int i = 0; i < PASSES; i++ )
+			layout( form, 1024 + (i & 1) * 16, 768 + (i & 1) * 16 );
+		
+		resetCounters();
+		long bytes = allocatedBytes();
+		for ( int i = 0; i < PASSES; i++ )
+			layout( form, 1024 + (i & 1) * 16, 768 + (i & 1) * 16 );
+		bytes = allocatedBytes() - bytes;
+		
+		check( "resize pass, bytes allocated", bytes / PASSES, 256 );
+		check( "resize pass, getPreferredSize calls", preferredSizeCalls / PASSES, COMPONENTS );
+		check( "resize pass, setBounds calls", setBoundsCalls / PASSES, COMPONENTS );
+		check( "resize pass, reflective field calls", reflectiveCalls(), 0 );
+	}
+	
+	/**
+	 * Repeated preferredLayoutSize requests: only the returned Dimension is allocated.
+	 */
+	@Test
+	public void checkPreferredLayoutSize() {
+		JPanel form = newForm( COMPONENTS, DEPTH );
+		layout( form, 1024, 768 );
+		XLayout layout = (XLayout) form.getLayout();
+		for ( int i = 0; i < PASSES; i++ )
+			layout.preferredLayoutSize( form );
+		
+		resetCounters();
+		long bytes = allocatedBytes();
+		for ( int i = 0; i < PASSES; i++ )
+			layout.preferredLayoutSize( form );
+		bytes = allocatedBytes() - bytes;
+		
+		check( "preferredLayoutSize, bytes allocated", bytes / PASSES, 256 );
+		check( "preferredLayoutSize, getPreferredSize calls", preferredSizeCalls / PASSES, 0 );
+	}
+	
+	/**
+	 * The metadata of a class with GROWTH times more fields must allocate
+	 * at most about GROWTH times more, quadratic work would allocate about
+	 * GROWTH * GROWTH times more. Each build is made on a class freshly
+	 * loaded, that XLayout never scanned.
+	 */
+	@Test
+	public void checkMetadataGrowth() {
+		long smallBytes = Long.MAX_VALUE;
+		long largeBytes = Long.MAX_VALUE;
+		for ( int i = 0; i < 10; i++ ) {
+			smallBytes = Math.min( smallBytes, metadataBytes(SyntheticForms.loadFormClass(COMPONENTS, DEPTH)) );
+			largeBytes = Math.min( largeBytes, metadataBytes(SyntheticForms.loadFormClass(COMPONENTS * GROWTH, DEPTH)) );
+		}
+		check( "metadata, allocation growth for " + GROWTH + "x fields (%)", largeBytes * 100 / smallBytes, GROWTH * 200 );
+	}
+	
+	/**
+	 * The resize passes on GROWTH times more components must request and
+	 * move at most GROWTH times more components.
+	 */
+	@Test
+	public void checkLayoutGrowth() {
+		JPanel small = newForm( COMPONENTS, DEPTH );
+		JPanel large = newForm( COMPONENTS * GROWTH, DEPTH );
+		
+		resetCounters();
+		for ( int i = 0; i < PASSES; i++ )
+			layout( small, 1024 + (i & 15), 768 + (i & 15) );
+		long smallCalls = preferredSizeCalls + setBoundsCalls;
+		
+		resetCounters();
+		for ( int i = 0; i < PASSES; i++ )
+			layout( large, 1024 + (i & 15), 768 + (i & 15) );
+		long largeCalls = preferredSizeCalls + setBoundsCalls;
+		
+		check( "resize pass, calls growth for " + GROWTH + "x components (%)", largeCalls * 100 / smallCalls, GROWTH * 100 );
+	}
+	
+	/**
+	 * The metadata of a class with GROWTH times more fields must take at
+	 * most about GROWTH times longer to build.
+	 */
+	@Test
+	@Tag("timing")
+	public void checkMetadataTime() {
+		for ( int i = 0; i < 10; i++ ) {
+			metadataNanos( SyntheticForms.loadFormClass(COMPONENTS, DEPTH) );
+			metadataNanos( SyntheticForms.loadFormClass(COMPONENTS * GROWTH, DEPTH) );
+		}
+		
+		long smallNanos = Long.MAX_VALUE;
+		long largeNanos = Long.MAX_VALUE;
+		for ( int i = 0; i < 10; i++ ) {
+			smallNanos = Math.min( smallNanos, metadataNanos(SyntheticForms.loadFormClass(COMPONENTS, DEPTH)) );
+			largeNanos = Math.min( largeNanos, metadataNanos(SyntheticForms.loadFormClass(COMPONENTS * GROWTH, DEPTH)) );
+		}
+		check( "metadata, time growth for " + GROWTH + "x fields (%)", largeNanos * 100 / smallNanos, GROWTH * 300 );
+	}
+	
+	/**
+	 * The resize passes on GROWTH times more components must take at most
+	 * about GROWTH times longer.
+	 */
+	@Test
+	@Tag("timing")
+	public void checkLayoutTime() {
+		JPanel small = newForm( COMPONENTS, DEPTH );
+		JPanel large = newForm( COMPONENTS * GROWTH, DEPTH );
+		for ( int i = 0; i < PASSES; i++ ) {
+			layout( small, 1024 + (i & 15), 768 + (i & 15) );
+			layout( large, 1024 + (i & 15), 768 + (i & 15) );
+		}
+		
+		long smallNanos = Long.MAX_VALUE;
+		long largeNanos = Long.MAX_VALUE;
+		for ( int i = 0; i < PASSES; i++ ) {
+			long start = System.nanoTime();
+			layout( small, 1024 + (i & 15), 768 + (i & 15) );
+			smallNanos = Math.min( smallNanos, System.nanoTime() - start );
+			start = System.nanoTime();
+			layout( large, 1024 + (i & 15), 768 + (i & 15) );
+			largeNanos = Math.min( largeNanos, System.nanoTime() - start );
+		}
+		check( "resize pass, time growth for " + GROWTH + "x components (%)", largeNanos * 100 / smallNanos, GROWTH * 300 );
+	}
+	
+	/*----------------
+	 * Helpers
+	 */
+	private static void check(String name, long value, long budget) {
+		assertTrue( value <= budget, name + ": " + value + " (budget " + budget + ")" );
+	}
+	
+	private static void resetCounters() {
+		preferredSizeCalls = 0;
+		setBoundsCalls = 0;
+		reflectiveCalls = FieldAccessor.getReflectiveCalls();
+	}
+	
+	/**
+	 * @return The number of reflective field calls since the last resetCounters.
+	 */
+	private static long reflectiveCalls() {
+		return FieldAccessor.getReflectiveCalls() - reflectiveCalls;
+	}
+	
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+					.getThreadAllocatedBytes( Thread.currentThread().getId() );
+	}
+	
+	private static long metadataBytes(Class<?> formClass) {
+		long bytes = allocatedBytes();
+		XMetadata.forClass( formClass ).getPlan();
+		return allocatedBytes() - bytes;
+	}
+	
+	private static long metadataNanos(Class<?> formClass) {
+		long start = System.nanoTime();
+		XMetadata.forClass( formClass ).getPlan();
+		return System.nanoTime() - start;
+	}
+	
+	/**
+	 * Returns a new form with counting components, laid out once.
+	 */
+	private static JPanel newForm(int components, int depth) {
+		Class<?> formClass = SyntheticForms.getFormClass( components, depth );
+		try {
+			JPanel form = (JPanel) formClass.getConstructor().newInstance();
+			Field fields[] = Reflection.getAnnotatedFields( formClass, XComponent.class, XContainer.class );
+			for ( int i = 0; i < fields.length; i++ ) {
+				if ( fields[i].isAnnotationPresent(XContainer.class) )
+					fields[i].set( form, new CountingPanel() );
+				else
+					fields[i].set( form, new CountingLabel("Label " + i) );
+			}
+			form.setLayout( new XLayout() );
+			layout( form, 1024, 768 );
+			return form;
+		} catch (Exception e) {
+			throw new IllegalStateException( "Unable to instantiate " + formClass.getName(), e );
+		}
+	}
+	
+	/**
+	 * Lays out form, and then validates its components, like the validation
+	 * of a displayed window does. Headless, they would stay invalid, and
+	 * their sizes would never be cached.
+	 */
+	private static void layout(JPanel form, int width, int height) {
+		SyntheticForms.layout( form, width, height );
+		for ( int i = 0; i < form.getComponentCount(); i++ )
+			validate( form.getComponent(i) );
+	}
+	
+	private static void validate(java.awt.Component component) {
+		if ( component instanceof CountingPanel ) {
+			CountingPanel panel = (CountingPanel) component;
+			for ( int i = 0; i < panel.getComponentCount(); i++ )
+				validate( panel.getComponent(i) );
+			panel.valid = true;
+		}
+		else if ( component instanceof CountingLabel )
+			((CountingLabel) component).valid = true;
+	}
+	
+	/*---------------------------------------
+	 * COUNTING COMPONENTS
+	 */
+	private static final class CountingLabel extends JLabel {
+		private static final long serialVersionUID = 1L;
+		boolean valid = false;
+		
+		CountingLabel(String text) {
+			super( text );
+		}
+		
+		@Override
+		public Dimension getPreferredSize() {
+			preferredSizeCalls++;
+			return super.getPreferredSize();
+		}
+		
+		@Override
+		public void setBounds(int x, int y, int width, int height) {
+			setBoundsCalls++;
+			super.setBounds( x, y, width, height );
+		}
+		
+		@Override
+		public boolean isValid() {
+			return this.valid;
+		}
+		
+		@Override
+		public void invalidate() {
+			super.invalidate();
+			this.valid = false;
+		}
+	}
+	
+	private static final class CountingPanel extends JPanel {
+		private static final long serialVersionUID = 1L;
+		boolean valid = false;
+		
+		CountingPanel() {
+			super( null );
+		}
+		
+		@Override
+		public Dimension getPreferredSize() {
+			preferredSizeCalls++;
+			return super.getPreferredSize();
+		}
+		
+		@Override
+		public void setBounds(int x, int y, int width, int height) {
+			setBoundsCalls++;
+			super.setBounds( x, y, width, height );
+		}
+		
+		@Override
+		public boolean isValid() {
+			return this.valid;
+		}
+		
+		@Override
+		public void invalidate() {
+			super.invalidate();
+			this.valid = false;
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+/**
+ * A companion is generated at compile time by the XLayoutProcessor for every
+ * class annotated with XContainer, and holds the already parsed annotation
+ * values of that class as plain arrays, see XFieldTable, plus straight-line
+ * reads of its fields.<br>
+ * When a companion exists, XMetadata uses it instead of scanning the class
+ * with Reflection, so there's neither reflection nor annotation parsing before
+ * the first layout. XLayout also adds the components to their owners, and
+ * solves their bounds, through the straight-line code of the companion, as
+ * long as no constraint is overridden.<br><br>
+ * 
+ * The companion of a class named <b>pkg.Form</b> must be named
+ * <b>pkg.Form_XCompanion</b> and have a public no-arg constructor.<br>
+ * Do not implement it, if you're only building a GUI<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public interface XCompanion extends XFieldTable {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	/**
+	 * Suffix added to the name of the class to get the name of its companion.
+	 */
+	public final static String SUFFIX = "_XCompanion";
+	
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * Returns the value of an annotated field of form.
+	 * @param field The index of the field in getFieldNames()
+	 */
+	public Object getFieldValue(Object form, int field);
+	
+	/**
+	 * Sets the value of an annotated field of form.
+	 * @param field The index of the field in getFieldNames()
+	 * @throws UnsupportedOperationException If the field is final
+	 */
+	public void setFieldValue(Object form, int field, Object value);
+	
+	/**
+	 * Removes the component of an annotated field from its parent, and adds
+	 * it to its owner: root, or the container of another field. The owner
+	 * is resolved at compile time. Null components are skipped.
+	 * @param field The index of a field which isn't a Component[] or a List
+	 * @throws IllegalArgumentException If the field isn't a component
+	 */
+	public void addComponent(Object form, java.awt.Container root, int field);
+	
+	/**
+	 * Calculates the bounds of the component of an annotated field, like
+	 * XSolver.solveBounds does from a plan, and writes them into bounds
+	 * at offset: x, y, width and height.
+	 * @param field The index of the field in getFieldNames()
+	 * @param cWidth The content width of its owner, minus the insets and the paddings
+	 * @param cHeight The content height of its owner, minus the insets and the paddings
+	 * @throws IllegalArgumentException If the field isn't a component
+	 */
+	public void solveBounds(int field, int cWidth, int cHeight, int preferredWidth, int preferredHeight,
+				boolean keepMinimumSize, int minimumWidth, int minimumHeight, int bounds[], int offset);
+	
+}
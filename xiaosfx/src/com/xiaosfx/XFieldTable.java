@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.xiaosfx;
+
+import java.nio.IntBuffer;
+
+/**
+ * The already parsed annotation values of a form class: the order of its
+ * annotated fields, their owners and container names, and their int encoded
+ * constraints and paddings. XMetadata is built from it without any annotation
+ * parsing.<br>
+ * It holds data only: the generated companions add the code on top of it,
+ * see XCompanion, while the plan cache serves it straight from its files.<br>
+ * Do not implement it, if you're only building a GUI<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public interface XFieldTable {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	/**
+	 * Flag set when the field has the XComponent annotation.
+	 */
+	public final static int COMPONENT = 1;
+	
+	/**
+	 * Flag set when the field has the XContainer annotation.
+	 */
+	public final static int CONTAINER = 2;
+	
+	/**
+	 * Flag set, along with COMPONENT, when the field is a Component[] or a List.
+	 */
+	public final static int REPEATED = 4;
+	
+	/**
+	 * Offsets of the values of each field inside the field table.
+	 */
+	public final static int FLAGS = 0;
+	public final static int LEFT = 1;
+	public final static int RIGHT = 2;
+	public final static int TOP = 3;
+	public final static int BOTTOM = 4;
+	public final static int HORIZONTAL_CENTER = 5;
+	public final static int VERTICAL_CENTER = 6;
+	public final static int WIDTH = 7;
+	public final static int HEIGHT = 8;
+	public final static int PADDING_LEFT = 9;
+	public final static int PADDING_RIGHT = 10;
+	public final static int PADDING_TOP = 11;
+	public final static int PADDING_BOTTOM = 12;
+	public final static int STRIDE = 13;
+	public final static int AXIS = 14;
+	
+	/**
+	 * Number of ints used by each field inside the field table.
+	 */
+	public final static int FIELD_SIZE = 15;
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * @return The name of the XContainer annotation of the class.
+	 */
+	public String getRootName();
+	
+	/**
+	 * @return The paddings of the XContainer annotation of the class:
+	 * left, right, top and bottom.
+	 */
+	public int[] getRootPadding();
+	
+	/**
+	 * @return The names of the annotated fields, in declaration order,
+	 * the fields of a superclass coming first.
+	 */
+	public String[] getFieldNames();
+	
+	/**
+	 * @return FIELD_SIZE ints for each annotated field: its flags, its
+	 * XComponent values and its XContainer paddings, followed by its
+	 * XComponent stride and axis. The values are read with absolute gets,
+	 * the position of the buffer is ignored.
+	 */
+	public IntBuffer getFieldTable();
+	
+	/**
+	 * @return The XComponent owner of each annotated field,
+	 * or null if the field isn't a component.
+	 */
+	public String[] getOwners();
+	
+	/**
+	 * @return The XContainer name of each annotated field,
+	 * or null if the field isn't a container.
+	 */
+	public String[] getContainerNames();
+	
+}
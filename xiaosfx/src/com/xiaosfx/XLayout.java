@@ -36,11 +36,34 @@ import java.awt.Dimension;
 import java.awt.Insets;
 import java.awt.LayoutManager;
 import java.awt.Rectangle;
-import java.lang.reflect.Field;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 import com.xiaosfx.annotation.XComponent;
 import com.xiaosfx.annotation.XContainer;
-import com.xiaosfx.reflect.Reflection;
+import com.xiaosfx.core.XLayoutPlan;
+import com.xiaosfx.core.XSolver;
+import com.xiaosfx.monitor.XLayoutEvent;
+import com.xiaosfx.monitor.XLayoutMonitor;
 
 /**
  * The XLayout lays out a custom container class by arranging and resizing
@@ -64,9 +87,139 @@ public class XLayout implements LayoutManager {
 	private boolean firstTime = true;
 	
 	private Container rootParent = null;
-	private Field containers[] = null;
-	private Field components[] = null;
+	private XMetadata metadata = null;
+	private XLayoutPlan plan = null;
+	private int mask[] = null;
 	private boolean keepMiniumSize = false;
+	
+	// Buffers reused by every layout pass, so that it doesn't produce garbage
+	private final Insets insets = new Insets( 0, 0, 0, 0 );
+	private int bounds[] = null;
+	private int contentWidth[] = null;
+	private int contentHeight[] = null;
+	private int contentPass[] = null;
+	private int pass = 0;
+	
+	// Whether each owner container has been laid out once, the root first
+	private boolean laidOut[] = null;
+	
+	// Preferred and minimum sizes of the components
+	private XSizeCache sizeCache = null;
+	private final int componentSize[] = new int[2];
+	
+	// Preferred and minimum sizes of the owner containers, the root first,
+	// with the sizes of their components, memoized until the stamp changes
+	private int preferredLayoutSize[] = null;
+	private int minimumLayoutSize[] = null;
+	private int preferredLayoutPass[] = null;
+	private int minimumLayoutPass[] = null;
+	private int preferredContentSize[] = null;
+	private int minimumContentSize[] = null;
+	private int preferredLayoutStamp[] = null;
+	private int minimumLayoutStamp[] = null;
+	private final int childLayoutSize[] = new int[2];
+	
+	// Metrics of the current pass, sent to the XLayoutMonitor
+	private int componentsSolved = 0;
+	private int boundsApplied = 0;
+	private int boundsSkipped = 0;
+	private int repaintCount = 0;
+	private long passMisses = 0;
+	private long scanNanos = 0;
+	
+	// Coalescing of the layout requests, see setCoalescing
+	private int coalescingDelay = 0;
+	private Timer coalescingTimer = null;
+	private Container coalescedParent = null;
+	private long lastLayoutTime = 0;
+	private boolean flushing = false;
+	private long coalescedPasses = 0;
+	
+	// Parallel solving of the large forms, see setParallelThreshold.
+	// What the solve needs from the components is copied here first,
+	// so that the worker threads never touch them.
+	private int parallelThreshold = 0;
+	private Component parallelComponents[] = null;
+	private Container parallelContainers[] = null;
+	private int parallelSizes[] = null;
+	private int parallelExtents[] = null;
+	private int parallelContainerSizes[] = null;
+	private int solvedPass[] = null;
+	
+	// Virtualization of the root components, see setVirtualized.
+	// The pending components have been solved but not moved yet, because
+	// they're out of sight. They're indexed by their top, ((long) y << 32) | index.
+	private boolean virtualized = false;
+	private int virtualMargin = 200;
+	private final Rectangle visibleRect = new Rectangle();
+	private boolean pending[] = null;
+	private int pendingCount = 0;
+	private long pendingIndex[] = null;
+	private int pendingIndexLength = 0;
+	private int pendingMaxHeight = 0;
+	private boolean ownerHidden[] = null;
+	private boolean ownerShown[] = null;
+	private JViewport viewport = null;
+	private ChangeListener viewportListener = null;
+	
+	// Lazy creation of the null components, see setComponentFactory
+	private XComponentFactory componentFactory = null;
+	private boolean ownerIncomplete[] = null;
+	
+	// Grids of the bounds of the children of each owner, by slot, built on
+	// their first query, see setSpatialIndexed. The component last indexed
+	// for each plain field is kept, so that a replaced one is taken out,
+	// and the owner containers are indexed by identity, like the components.
+	private boolean spatialIndexed = false;
+	private XSpatialIndex spatialIndexes[] = null;
+	private Component indexedComponents[] = null;
+	private IdentityHashMap<Container, Integer> ownerIndex = null;
+	private ComponentListener shownListener = null;
+	
+	// Union of the old and new bounds of the components moved in each owner,
+	// by slot, x1, y1, x2 and y2, repainted once the owner is laid out
+	private int dirtyRegions[] = null;
+	private boolean dirty[] = null;
+	
+	// Constraints overridden at runtime, see setConstraint. The first
+	// override replaces the plan of the metadata, which is shared, by an
+	// editable copy, and each one then only changes its own row.
+	private boolean overridden = false;
+	private IdentityHashMap<Component, Integer> componentIndex = null;
+	private int constraintsVersion = 0;
+	
+	// The elements of the Component[] and List fields, as of their last layout,
+	// and their sizes, cached by position
+	private Component elements[][] = null;
+	private XSizeCache elementSizeCaches[] = null;
+	
+	// Nested containers laid out by their own XNestedLayout, see layoutDelegated
+	private boolean delegated[] = null;
+	private boolean delegating = false;
+	
+	// Cache of the layout results, by root content size, see setResultCacheSize
+	private LinkedHashMap<Long, ResultEntry> resultCache = null;
+	private int resultCacheSize = 0;
+	private int resultCacheVersion = 0;
+	private boolean resultCacheDelegating = false;
+	private long resultCacheHits = 0;
+	private long resultCacheMisses = 0;
+	private final int contentSize[] = new int[2];
+
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	/**
+	 * The constraints which can be overridden, see setConstraint.
+	 */
+	public final static int LEFT = XLayoutPlan.LEFT;
+	public final static int RIGHT = XLayoutPlan.RIGHT;
+	public final static int TOP = XLayoutPlan.TOP;
+	public final static int BOTTOM = XLayoutPlan.BOTTOM;
+	public final static int HORIZONTAL_CENTER = XLayoutPlan.HORIZONTAL_CENTER;
+	public final static int VERTICAL_CENTER = XLayoutPlan.VERTICAL_CENTER;
+	public final static int WIDTH = XLayoutPlan.WIDTH;
+	public final static int HEIGHT = XLayoutPlan.HEIGHT;
 
 	/*---------------------------------------
 	 * CONSTRUCTORS
@@ -133,340 +286,2008 @@ public class XLayout implements LayoutManager {
 	 * The first time being executed, it will make a scan on the
 	 * "root" class which holds this layout by using Reflection.
 	 * This will extract all the components and containers on it.
-	 * Check it's constraints and give them proper size and location.
+	 * Check it's constraints and give them proper size and location.<br>
+	 * The next times, only the containers whose size changed are
+	 * laid out again entirely.
 	 */
 	@Override
 	public void layoutContainer(Container parent) {
-		// Verify if it's the first time being shown
-		if ( firstTime ) {
-			try {
-				// if it is, then it should construct the GUI
-				this.validateRootParent( parent );
-				
-				this.constructCanvas();
-				
-				// After populating rootParent, components and containers,
-				// we're ready to layout it
-				firstTime = false;
-			}
-			catch (Exception e) {
-				e.printStackTrace();
-				return;
-			}
-		}
+		if ( (this.coalescingDelay > 0) && this.coalesce(parent) )
+			return;
 		
-    	Insets insets = null;
-    	
-		Dimension cSize = new Dimension();
+		boolean monitored = XLayoutMonitor.isEnabled();
+		long start = monitored ? System.nanoTime() : 0;
+		if ( !this.prepareCanvas(parent) )
+			return;
 		
-		// Loops through all the components and set it's bounds accordingly.
-		for ( int compCount = 0; compCount < this.components.length; compCount++ ) {
-	    	int maxWidth = 0;
-	    	int maxHeight = 0;
-	    	
-			XComponent xcomponent = this.components[compCount].getAnnotation( XComponent.class );
-			this.components[compCount].setAccessible( true );
-			
-			Component objComponent = (Component) Reflection.getFieldInstanceFromObject( this.components[compCount], this.rootParent );
-			
-			if ( objComponent == null ) break;
-			
-			XContainer xcontainer = this.rootParent.getClass().getAnnotation( XContainer.class );
-			
-			if ( xcomponent.owner().equals(xcontainer.name()) ) {
-				// Get its bounds based on Top-Container
-				insets = parent.getInsets();
-		    	maxWidth = parent.getWidth() - insets.left - insets.right;
-		    	maxHeight = parent.getHeight() - insets.top - insets.bottom;
-		    	
-				cSize.width = maxWidth - xcontainer.paddingLeft() - xcontainer.paddingRight();
-				cSize.height = maxHeight - xcontainer.paddingTop() - xcontainer.paddingBottom();
-				Rectangle bounds = this.getXBounds( xcontainer, cSize, objComponent, xcomponent );
-				objComponent.setBounds( bounds );
-			}
+		XMetadata metadata = this.metadata;
+		this.startPass();
+		
+		boolean cached = (this.resultCacheSize > 0) && !this.virtualized && (this.componentFactory == null) &&
+					(metadata.repeatedCount == 0);
+		boolean parallel = (this.parallelThreshold > 0) && (metadata.componentCount >= this.parallelThreshold) &&
+					!this.virtualized && (this.componentFactory == null);
+		// Once displayed, the validation of the nested containers lays them
+		// out, only the invalid ones.
+		this.delegating = !parallel && parent.isDisplayable();
+		if ( cached && this.restoreResult(parent) )
+			this.resultCacheHits++;
+		else {
+			if ( parallel )
+				this.layoutParallel( parent );
 			else {
-				// Get its bounds based on proper its custom container
-				for ( int contCount = 0; contCount < this.containers.length; contCount++ ) {
-					xcontainer = this.containers[contCount].getAnnotation( XContainer.class );
-					if ( xcomponent.owner().equals(xcontainer.name()) ) {
-						this.containers[contCount].setAccessible( true );
-						
-						Container objContainer = (Container) Reflection.getFieldInstanceFromObject( this.containers[contCount], this.rootParent );
-						if ( objContainer == null ) break;
-						
-						insets = objContainer.getInsets();
-						maxWidth = objContainer.getWidth() - insets.left - insets.right;
-						maxHeight = objContainer.getHeight() - insets.top - insets.bottom;
-						
-						cSize.width = maxWidth - xcontainer.paddingLeft() - xcontainer.paddingRight();
-						cSize.height = maxHeight - xcontainer.paddingTop() - xcontainer.paddingBottom();
-						
-						Rectangle bounds = this.getXBounds( xcontainer, cSize, objComponent, xcomponent );
-						objComponent.setBounds( bounds );
-						
-						this.containers[contCount].setAccessible( false );
-						break;
-					}
-					
-				}
+				// Lays out the root container first, and then every other container,
+				// each one after its owner.
+				this.layoutOwner( XMetadata.ROOT, parent );
+				this.layoutNested( false );
+			}
+			if ( cached ) {
+				this.resultCacheMisses++;
+				this.storeResult();
 			}
-			components[compCount].setAccessible( false );
 		}
 		
+		if ( monitored )
+			this.fireLayoutPerformed( XLayoutEvent.LAYOUT, this.metadata.rootName, start );
 	}
 
 	/*----------------
-	 * Custom Methods
+	 * Nested Containers
 	 */
 	/**
-	 * This will seek for the Root Parent and populate this.rootParent if is valid.
-	 * @param parent
-	 * @throws Exception If the RootParent doesn't contain the XContainer Annotation
+	 * Lays out the direct children of a nested owner container, when it's
+	 * validated, for its XNestedLayout. The other containers aren't touched,
+	 * so the cost depends on the container which changed, not on the form.
 	 */
-	private void validateRootParent(Container parent) throws Exception {
-    	while ( (parent != null) &&
-    			(!parent.getClass().isAnnotationPresent(XContainer.class)) )
-    		parent = parent.getParent();
-    	if ( parent != null )
-    		this.rootParent = parent;
-    	else
-    		throw new Exception("Annotation XContainer is not present.");
+	void layoutDelegated(int owner, Container objContainer) {
+		if ( this.firstTime || this.isHidden(owner) )
+			return;
+		
+		boolean monitored = XLayoutMonitor.isEnabled();
+		long start = monitored ? System.nanoTime() : 0;
+		this.startPass();
+		this.layoutOwner( owner, objContainer );
+		if ( monitored )
+			this.fireLayoutPerformed( XLayoutEvent.LAYOUT, this.metadata.containerNames[owner], start );
 	}
 	
 	/**
-	 * This method will get all the components and containers, and join them.<br>
-	 * Call this method only once and only after your GUI components have been all instantiated<br>
-	 * @throws IllegalAccessException 
-	 * @throws IllegalArgumentException 
+	 * Returns the preferred, or minimum, size of a nested owner container,
+	 * for its XNestedLayout. Only the containers inside it are computed.
 	 */
-	private void constructCanvas() throws IllegalArgumentException, IllegalAccessException {
-		this.containers = Reflection.getContainers( this.rootParent.getClass() );
-		this.components = Reflection.getComponents( this.rootParent.getClass() );
+	Dimension getDelegatedLayoutSize(int owner, Container objContainer, boolean minimumSize) {
+		if ( this.firstTime )
+			return objContainer.getSize();
 		
-		// Sort the components, the containers should be added before components.
-		// The top-level-containers should be added before other's containers.
-		XUtilities.sortComponents( this.components );
-		XUtilities.sortContainersInComponents( this.components );
-		
-		// Loops through all the components, check which container it belongs to,
-		// and insert it.
-		for ( int compCount = 0; compCount < this.components.length; compCount++ ) {
-			XComponent xcomponent = this.components[compCount].getAnnotation( XComponent.class );
-			this.components[compCount].setAccessible( true );
-			Component objComponent = (Component) this.components[compCount].get( this.rootParent );
-			if ( objComponent.getParent() != null ) {
-				// If the objComponent.getParent() != null, it means that this component
-				// has already been inserted into a container.
-				// So to avoid further problems, such as, a component been added to two
-				// or more containers. We'll simply make its parent remove this component
-				Container objComponentsContainer = objComponent.getParent();
-				objComponentsContainer.remove( objComponent );
-			}
-			if ( xcomponent.owner().equals("") ) {
-				// Belongs to the Root Parent Container
-				this.rootParent.add( objComponent );
-			}
-			else {
-				// Belongs to other container
-				for ( int contCount = 0; contCount < this.containers.length; contCount++ ) {
-					XContainer xcontainer = this.containers[contCount].getAnnotation( XContainer.class );
-					if ( xcomponent.owner().equals(xcontainer.name()) ) {
-						this.containers[contCount].setAccessible( true );
-						Container objContainer = (Container) this.containers[contCount].get( this.rootParent );
-						objContainer.add( objComponent );
-						this.containers[contCount].setAccessible( false );
-						break;
-					}
-					
-				}
-			}
-			this.components[compCount].setAccessible( false );
+		this.startPass();
+		int layoutSize[] = this.getLayoutSize( owner, minimumSize );
+		return new Dimension( layoutSize[(owner + 1) * 2], layoutSize[(owner + 1) * 2 + 1] );
+	}
+	
+	/**
+	 * @return True if the owner container, or one of the containers holding
+	 * it, is pending, see setVirtualized.
+	 */
+	private boolean isHidden(int owner) {
+		XMetadata metadata = this.metadata;
+		int component = metadata.containerComponent[owner];
+		while ( component != XMetadata.NONE ) {
+			if ( this.pending[component] )
+				return true;
+			int componentOwner = metadata.owner[component];
+			if ( componentOwner < 0 )
+				break;
+			component = metadata.containerComponent[componentOwner];
 		}
-		
+		return false;
+	}
+	
+	/**
+	 * Gives a nested owner container its XNestedLayout, unless it already
+	 * has a layout manager.
+	 */
+	private void delegate(int owner, Container objContainer) {
+		if ( objContainer.getLayout() == null ) {
+			objContainer.setLayout( new XNestedLayout(this, owner) );
+			this.delegated[owner + 1] = true;
+		}
+		else
+			this.delegated[owner + 1] = objContainer.getLayout() instanceof XNestedLayout;
 	}
 
-    /**
-     * Returns the calculated bounds with valid sizes for the component.<br>
-     * This method will process the XComponent annotation properly.
-     */
-    private Rectangle getXBounds(XContainer xcontainer, Dimension cSize,
-    						Component objComponent, XComponent xcomponent) {
-		boolean bHorizCenter = true;
-		boolean bVertCenter = true;
-		
-		int x = 0;
-		int y = 0;
-		int width = 0;
-		int height = 0;
+	/*----------------
+	 * Coalescing
+	 */
+	/**
+	 * Collapses the bursts of layout requests, such as the ones sent while
+	 * a window is being resized, into at most one layout per frame.<br>
+	 * The requests received less than a frame after the last layout are
+	 * skipped, and the container is laid out once that frame is over, with
+	 * its size at that moment. So the last layout of a burst is always exact.<br>
+	 * The requests are only skipped while the container is showing, so that
+	 * pack() or validate() always lay out a container before it's shown.<br><br>
+	 * <b>Note: </b> The delayed layouts are run by a Swing Timer, on the
+	 * Event Dispatch Thread.
+	 * @param framesPerSecond The maximum number of layouts per second,
+	 * 60 for instance, or 0 to lay out on every request, which is the default.
+	 */
+	public void setCoalescing(int framesPerSecond) {
+		if ( framesPerSecond < 0 )
+			throw new IllegalArgumentException( "framesPerSecond must not be negative: " + framesPerSecond );
 		
-		// Calculating Horizontally - x  - width -----------------------------------------------
-		if ( (xcomponent.left() == XComponent.NULL) || (xcomponent.right() == XComponent.NULL) ) {
-			if ( xcomponent.width() != XComponent.NULL )
-				width = xcomponent.width();
-			else
-				width = objComponent.getPreferredSize().width;
+		this.coalescingDelay = framesPerSecond > 0 ? Math.max( 1, 1000 / framesPerSecond ) : 0;
+		if ( this.coalescingTimer == null ) {
+			this.coalescingTimer = new Timer( 0, new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					flushCoalesced();
+				}
+			});
+			this.coalescingTimer.setRepeats( false );
 		}
-		
-		// Gets the Left() and Right()
-		if ( xcomponent.left() != XComponent.NULL ) {
-			x = xcomponent.left();
-			bHorizCenter = false;
-			if ( xcomponent.right() != XComponent.NULL )
-				width = cSize.width - x - xcomponent.right();
-			else if ( (x + width) > cSize.width )
-				width = cSize.width - x;
+		if ( this.coalescingDelay == 0 )
+			this.flushCoalesced();
+	}
+	
+	/**
+	 * @return The maximum number of layouts per second, or 0 if coalescing is off.
+	 */
+	public int getCoalescing() {
+		return this.coalescingDelay > 0 ? 1000 / this.coalescingDelay : 0;
+	}
+	
+	/**
+	 * @return How many layout requests were skipped by the coalescing.
+	 */
+	public long getCoalescedPassCount() {
+		return this.coalescedPasses;
+	}
+	
+	/**
+	 * Decides whether a layout request must wait for the end of the current frame.
+	 * @return True if the request was deferred.
+	 */
+	private boolean coalesce(Container parent) {
+		long now = System.nanoTime();
+		long elapsed = (now - this.lastLayoutTime) / 1000000L;
+		if ( this.firstTime || this.flushing || (elapsed >= this.coalescingDelay) || (elapsed < 0) || !parent.isShowing() ) {
+			// Lays out now, which makes any deferred layout useless
+			this.lastLayoutTime = now;
+			this.coalescingTimer.stop();
+			this.coalescedParent = null;
+			return false;
 		}
-		else if ( xcomponent.right() != XComponent.NULL ) {
-			if ( (width + xcomponent.right()) > cSize.width )
-				width = cSize.width - xcomponent.right();
-			else
-				x = cSize.width - xcomponent.right() - width;
-			bHorizCenter = false;
+		
+		this.coalescedPasses++;
+		this.coalescedParent = parent;
+		if ( !this.coalescingTimer.isRunning() ) {
+			this.coalescingTimer.setInitialDelay( (int) (this.coalescingDelay - elapsed) );
+			this.coalescingTimer.start();
 		}
+		return true;
+	}
+	
+	/**
+	 * Runs the deferred layout, if any, and validates the components it moved.<br>
+	 * Called by the coalescing Timer, at the end of the frame.
+	 */
+	void flushCoalesced() {
+		Container parent = this.coalescedParent;
+		this.coalescingTimer.stop();
+		this.coalescedParent = null;
+		if ( parent == null )
+			return;
 		
-		// Calculating Vertically - y  - height -----------------------------------------------
-		if ( (xcomponent.top() == XComponent.NULL) || (xcomponent.bottom() == XComponent.NULL) ) {
-			if ( xcomponent.height() != XComponent.NULL )
-				height = xcomponent.height();
+		this.flushing = true;
+		try {
+			if ( parent.isDisplayable() ) {
+				// The validation lays the container out once, and then
+				// validates the components which were resized
+				parent.invalidate();
+				parent.validate();
+			}
 			else
-				height = objComponent.getPreferredSize().height;
+				this.layoutContainer( parent );
 		}
-		
-		// Gets the Top() and Bottom()
-		if ( xcomponent.top() != XComponent.NULL ) {
-			y = xcomponent.top();
-			bVertCenter = false;
-			if ( xcomponent.bottom() != XComponent.NULL )
-				height = cSize.height - y - xcomponent.bottom();
-			else if ( (y + height) > cSize.height )
-				height = cSize.height - y;
+		finally {
+			this.flushing = false;
 		}
-		else if ( xcomponent.bottom() != XComponent.NULL ) {
-			if ( (height + xcomponent.bottom()) > cSize.height )
-				height = cSize.height - xcomponent.bottom();
-			else
-				y = cSize.height - xcomponent.bottom() - height;
-			bVertCenter = false;
+		parent.repaint();
+	}
+
+	/*----------------
+	 * Parallel Solving
+	 */
+	/**
+	 * Solves the bounds of the forms with at least componentCount components
+	 * on the common ForkJoinPool, each owner container in its own task.<br>
+	 * The preferred and minimum sizes, insets and container sizes are first
+	 * copied from the components, then the bounds are solved in parallel,
+	 * and finally they're all applied at once, on the calling thread.
+	 * It only pays off for forms with several thousands of components.
+	 * @param componentCount The minimum number of components, or 0 to
+	 * always solve the bounds sequentially, which is the default.
+	 */
+	public void setParallelThreshold(int componentCount) {
+		if ( componentCount < 0 )
+			throw new IllegalArgumentException( "componentCount must not be negative: " + componentCount );
+		this.parallelThreshold = componentCount;
+	}
+	
+	/**
+	 * @return The minimum number of components of the forms solved in parallel,
+	 * or 0 if they're always solved sequentially.
+	 */
+	public int getParallelThreshold() {
+		return this.parallelThreshold;
+	}
+
+	/*----------------
+	 * Virtualization
+	 */
+	/**
+	 * Virtualizes the root container when it's scrolled, for instance in
+	 * a JScrollPane: setBounds is only called on the root components which
+	 * are in sight, or within the virtual margin around it. The other ones,
+	 * and the containers among them, are laid out as they're scrolled into
+	 * sight. The preferred size of the root container stays exact.<br>
+	 * The bounds of all the root components are still computed when the
+	 * root container is resized, but that's only arithmetics: the cost of
+	 * a layout, or a scroll, depends on the number of components in sight.
+	 * The bounds are always solved sequentially in this mode, and the elements
+	 * of the Component[] and List fields are always laid out, in sight or not.
+	 */
+	public void setVirtualized(boolean virtualized) {
+		if ( this.virtualized == virtualized )
+			return;
+		this.virtualized = virtualized;
+		if ( this.rootParent != null )
+			this.rootParent.revalidate();
+	}
+	
+	public boolean isVirtualized() {
+		return this.virtualized;
+	}
+	
+	/**
+	 * Sets how far, in pixels, around the visible area of the root container
+	 * the components are laid out, so that they're ready before they're
+	 * scrolled into sight. 200 by default.
+	 */
+	public void setVirtualMargin(int margin) {
+		if ( margin < 0 )
+			throw new IllegalArgumentException( "margin must not be negative: " + margin );
+		this.virtualMargin = margin;
+	}
+	
+	public int getVirtualMargin() {
+		return this.virtualMargin;
+	}
+	
+	/**
+	 * @return How many root components are waiting to be scrolled into sight.
+	 */
+	public int getPendingCount() {
+		return this.pendingCount;
+	}
+
+	/*----------------
+	 * Lazy Creation
+	 */
+	/**
+	 * Turns the lazy mode on: the XComponent fields may be left null when
+	 * the form is built, and the factory creates them the first time their
+	 * owner container is laid out while it's visible, along with all its
+	 * ancestors up to the root container.<br>
+	 * The fields which are still null are skipped by the layout, and don't
+	 * count in the preferred and minimum sizes.<br><br>
+	 * <b>Note: </b> The lazy fields must not be final.
+	 * @param factory The factory, or null to turn the lazy mode off.
+	 */
+	public void setComponentFactory(XComponentFactory factory) {
+		this.componentFactory = factory;
+		if ( (factory != null) && (this.rootParent != null) )
+			this.rootParent.revalidate();
+	}
+	
+	public XComponentFactory getComponentFactory() {
+		return this.componentFactory;
+	}
+
+	/*----------------
+	 * Constraint Overrides
+	 */
+	/**
+	 * Overrides a constraint of a component of the form laid out by this
+	 * XLayout, on top of the value of its XComponent annotation. Only the
+	 * owner container of the component is laid out again, entirely.<br>
+	 * The first override copies the constraints of the form, and the next
+	 * ones only change the component, so they take a constant time.<br>
+	 * The overrides only apply to this XLayout, not to the other forms of
+	 * the same class, and they can't be set before the first layout.
+	 * @param constraint LEFT, RIGHT, TOP, BOTTOM, HORIZONTAL_CENTER, VERTICAL_CENTER, WIDTH or HEIGHT
+	 * @param value The new value, or XComponent.NULL to unset the constraint
+	 * @throws IllegalArgumentException If component isn't an XComponent of the form
+	 * @throws IllegalStateException If the form hasn't been laid out yet
+	 */
+	public void setConstraint(Component component, int constraint, int value) {
+		int index = this.indexOf( component );
+		if ( (constraint < 0) || (constraint >= XLayoutPlan.CONSTRAINT_COUNT) )
+			throw new IllegalArgumentException( "Unknown constraint: " + constraint );
+		if ( this.plan.getConstraint(index, constraint) == value )
+			return;
+		if ( !this.overridden ) {
+			// Copy on first write, the annotation values stay in the metadata
+			this.plan = this.metadata.getPlan().editableCopy();
+			this.mask = this.metadata.mask.clone();
+			this.overridden = true;
 		}
+		this.plan.setConstraint( index, constraint, value );
+		this.mask[index] = this.plan.getMask( index );
+		this.constraintsVersion++;
+		this.invalidateOwner( index );
+	}
+	
+	/**
+	 * @return The value of a constraint of a component, overridden or
+	 * not, or XComponent.NULL if it isn't set.
+	 */
+	public int getConstraint(Component component, int constraint) {
+		return this.plan.getConstraint( this.indexOf(component), constraint );
+	}
+	
+	/**
+	 * Restores all the constraints of a component to the values
+	 * of its XComponent annotation.
+	 */
+	public void clearConstraints(Component component) {
+		int index = this.indexOf( component );
+		if ( !this.overridden )
+			return;
+		this.plan.resetConstraints( index, this.metadata.getPlan() );
+		this.mask[index] = this.metadata.mask[index];
+		this.constraintsVersion++;
+		this.invalidateOwner( index );
+	}
+	
+	/**
+	 * @return The index of component in the metadata, found in constant time.
+	 */
+	private int indexOf(Component component) {
+		if ( this.rootParent == null )
+			throw new IllegalStateException( "The form hasn't been laid out yet" );
 		
-		// Gets the Horizontal Center
-		if ( bHorizCenter ) {
-			if ( width > cSize.width )
-				width = cSize.width;
-			else if ( xcomponent.horizontalCenter() != XComponent.NULL )
-				x = (cSize.width / 2) - (width / 2) + xcomponent.horizontalCenter();
+		Integer index = this.componentIndex != null ? this.componentIndex.get( component ) : null;
+		if ( (index == null) || (this.metadata.getComponent(this.rootParent, index.intValue()) != component) ) {
+			// Fields may have been created, or replaced, since the index was built
+			XMetadata metadata = this.metadata;
+			this.componentIndex = new IdentityHashMap<Component, Integer>( metadata.componentCount * 2 );
+			for ( int i = 0; i < metadata.componentCount; i++ ) {
+				Component objComponent = metadata.getComponent( this.rootParent, i );
+				if ( objComponent != null )
+					this.componentIndex.put( objComponent, Integer.valueOf(i) );
+			}
+			index = this.componentIndex.get( component );
+			if ( index == null )
+				throw new IllegalArgumentException( "Not an XComponent of " + metadata.getFormClass().getName() );
 		}
-		
-		// Gets the Vertical Center
-		if ( bVertCenter ) {
-			if ( height > cSize.height )
-				height = cSize.height;
-			else if ( xcomponent.verticalCenter() != XComponent.NULL )
-				y = (cSize.height / 2) - (height / 2) + xcomponent.verticalCenter();
+		return index.intValue();
+	}
+	
+	/**
+	 * Makes the next layout pass solve all the components of the owner
+	 * of the component at index again. The owner itself is invalidated,
+	 * since a nested owner which is still valid isn't laid out by the
+	 * validation of the form.
+	 */
+	private void invalidateOwner(int index) {
+		int owner = this.metadata.owner[index];
+		Container objContainer = this.rootParent;
+		if ( owner != XMetadata.NONE ) {
+			this.laidOut[owner + 1] = false;
+			Container ownerContainer = owner != XMetadata.ROOT ? this.metadata.getContainer( this.rootParent, owner ) : null;
+			if ( ownerContainer != null )
+				objContainer = ownerContainer;
 		}
-    	
-		// Validates X and Y
-		x = (x < 0) || (x > cSize.width) ? 0 : x;
-		y = (y < 0) || (y > cSize.height) ? 0 : y;
-		
-		// Correct Paddings if necessary
-		x += xcontainer.paddingLeft();
-		y += xcontainer.paddingTop();
-		
-		if ( this.keepMiniumSize ) {
-			// Correct The size - do not allow the component be smaller than it's minimum size
-			width = width < objComponent.getMinimumSize().width ?
-							objComponent.getMinimumSize().width : width;
-			
-			height = height < objComponent.getMinimumSize().height ?
-									objComponent.getMinimumSize().height : height;
+		objContainer.invalidate();
+		objContainer.revalidate();
+	}
+
+	/*----------------
+	 * Size Cache
+	 */
+	/**
+	 * @return How many times a preferred or minimum size was taken from the cache.
+	 */
+	public long getSizeCacheHits() {
+		return this.sizeCache != null ? this.sizeCache.getHits() : 0;
+	}
+	
+	/**
+	 * @return How many times a preferred or minimum size had to be
+	 * requested to the component.
+	 */
+	public long getSizeCacheMisses() {
+		return this.sizeCache != null ? this.sizeCache.getMisses() : 0;
+	}
+	
+	/**
+	 * Discards all the cached preferred and minimum sizes.<br>
+	 * Changes which invalidate() the components, or change their font,
+	 * text, icon or border, already discard them. Call this method only
+	 * when a component computes its size from some other state.
+	 */
+	public void invalidateSizeCache() {
+		if ( this.sizeCache != null )
+			this.sizeCache.invalidateAll();
+		if ( this.elementSizeCaches != null )
+			for ( int i = 0; i < this.elementSizeCaches.length; i++ )
+				if ( this.elementSizeCaches[i] != null )
+					this.elementSizeCaches[i].invalidateAll();
+	}
+
+	/*----------------
+	 * Result Cache
+	 */
+	/**
+	 * Keeps the bounds computed for the last root content sizes, so that
+	 * going back to a size laid out before, like when a window is maximized
+	 * and restored, or a split pane is toggled, just applies them again
+	 * instead of solving all the constraints.<br>
+	 * The cached results are all discarded when a constraint is overridden,
+	 * or a preferred or minimum size changes. They hold four ints per
+	 * component, or four shorts when all the coordinates fit.<br><br>
+	 * <b>Note: </b> The cache isn't used by virtualized layouts, by forms
+	 * with Component[] or List fields, nor while a component factory is set.
+	 * @param entries The number of sizes to keep, the least recently used
+	 * ones are dropped first, or 0 to disable the cache, which is the default.
+	 */
+	public void setResultCacheSize(int entries) {
+		if ( entries < 0 )
+			throw new IllegalArgumentException( "Negative cache size: " + entries );
+		this.resultCacheSize = entries;
+		if ( entries == 0 )
+			this.resultCache = null;
+		else if ( this.resultCache != null ) {
+			// Trims the cache down to its new size, the eldest entries first
+			while ( this.resultCache.size() > entries ) {
+				Long eldest = this.resultCache.keySet().iterator().next();
+				this.resultCache.remove( eldest );
+			}
 		}
-		
-    	return new Rectangle( x, y, width, height );
-    }
+	}
 	
-	private Dimension getPreferredComponentSize(Component component, XComponent xcomponent) {
-		return this.getCustomComponentSize( component, xcomponent, false );
+	public int getResultCacheSize() {
+		return this.resultCacheSize;
 	}
 	
-	private Dimension getMinimumComponentSize(Component component, XComponent xcomponent) {
-		return this.getCustomComponentSize( component, xcomponent, true );
+	/**
+	 * @return How many layout passes applied cached bounds.
+	 */
+	public long getResultCacheHits() {
+		return this.resultCacheHits;
 	}
 	
-	private Dimension getCustomComponentSize(Component component,
-						XComponent xcomponent, boolean minimumSize) {
-		Dimension dimension = new Dimension( 0, 0 );
-		
-		// check if it should get the HorizontalCenter value
-		boolean bHorizCenter = true;
-		// check if it should get the VerticalCenter value
-		boolean bVertCenter = true;
-		
-		if ( minimumSize )
-			dimension.width = component.getMinimumSize().width;
-		else
-			dimension.width = component.getPreferredSize().width;
-		
-		if ( xcomponent.left() != XComponent.NULL ) {
-			dimension.width += xcomponent.left();
-			bHorizCenter = false;
+	/**
+	 * @return How many layout passes, with the cache enabled, had to solve the constraints.
+	 */
+	public long getResultCacheMisses() {
+		return this.resultCacheMisses;
+	}
+	
+	/**
+	 * Applies the bounds cached for the current root content size, if any.
+	 * The sizes the components need are checked first, if any of them did
+	 * change, or a constraint was overridden, all the cached results are dropped.
+	 * @return False if the components have to be solved.
+	 */
+	private boolean restoreResult(Container parent) {
+		XMetadata metadata = this.metadata;
+		if ( this.resultCache == null ) {
+			this.resultCache = new LinkedHashMap<Long, ResultEntry>( 16, 0.75f, true ) {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, ResultEntry> eldest) {
+					return this.size() > XLayout.this.resultCacheSize;
+				}
+			};
 		}
-		if ( xcomponent.right() != XComponent.NULL ) {
-			dimension.width += xcomponent.right();
-			bHorizCenter = false;
+		
+		// Refreshes the sizes the solver would request, most come from the size cache
+		int count = metadata.componentCount;
+		for ( int compCount = 0; compCount < count; compCount++ ) {
+			if ( !this.keepMiniumSize &&
+					((this.mask[compCount] & (XMetadata.PREFERRED_WIDTH | XMetadata.PREFERRED_HEIGHT)) == 0) )
+				continue;
+			Component objComponent = metadata.getComponent( this.rootParent, compCount );
+			if ( objComponent == null ) continue;
+			
+			if ( (this.mask[compCount] & (XMetadata.PREFERRED_WIDTH | XMetadata.PREFERRED_HEIGHT)) != 0 )
+				this.getComponentSize( compCount, objComponent, false, this.componentSize );
+			if ( this.keepMiniumSize )
+				this.getComponentSize( compCount, objComponent, true, this.componentSize );
 		}
-		if ( (bHorizCenter) && (xcomponent.horizontalCenter() != XComponent.NULL) ) {
-			dimension.width += xcomponent.horizontalCenter() > 0 ?
-					xcomponent.horizontalCenter() : xcomponent.horizontalCenter() * (-1);
+		int version = this.sizeCache.getVersion() + this.constraintsVersion;
+		if ( (version != this.resultCacheVersion) || (this.delegating != this.resultCacheDelegating) ) {
+			this.resultCache.clear();
+			this.resultCacheVersion = version;
+			this.resultCacheDelegating = this.delegating;
 		}
 		
-		if ( minimumSize )
-			dimension.height = component.getMinimumSize().height;
-		else
-			dimension.height = component.getPreferredSize().height;
+		this.getContentSize( XMetadata.ROOT, parent, this.contentSize );
+		Long key = Long.valueOf( ((long) this.contentSize[0] << 32) | (this.contentSize[1] & 0xFFFFFFFFL) );
+		ResultEntry entry = this.resultCache.get( key );
+		if ( entry == null )
+			return false;
 		
-		if ( xcomponent.top() != XComponent.NULL ) {
-			dimension.height += xcomponent.top();
-			bVertCenter = false;
+		// Applies the cached bounds
+		int bounds[] = this.bounds;
+		entry.copyBounds( bounds );
+		for ( int compCount = 0; compCount < count; compCount++ ) {
+			Component objComponent = metadata.getComponent( this.rootParent, compCount );
+			if ( objComponent == null ) continue;
+			int owner = metadata.owner[compCount];
+			if ( (owner == XMetadata.NONE) || ((owner > XMetadata.ROOT) && this.isDelegated(owner + 1)) ) continue;
+			
+			int offset = compCount * 4;
+			if ( (objComponent.getX() != bounds[offset]) || (objComponent.getY() != bounds[offset + 1]) ||
+					(objComponent.getWidth() != bounds[offset + 2]) || (objComponent.getHeight() != bounds[offset + 3]) ) {
+				this.applyBounds( owner, compCount, objComponent,
+							bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3] );
+			}
+			else
+				this.boundsSkipped++;
 		}
-		if ( xcomponent.bottom() != XComponent.NULL ) {
-			dimension.height += xcomponent.bottom();
-			bVertCenter = false;
+		
+		// The insets of the containers, and the size of the containers which
+		// aren't components, aren't part of the key: they must be the same too.
+		// The delegated containers are laid out by their own validation.
+		for ( int slot = 0; slot <= metadata.containerCount; slot++ ) {
+			int owner = slot - 1;
+			Container objContainer = owner == XMetadata.ROOT ? parent : metadata.getContainer( this.rootParent, owner );
+			if ( (objContainer == null) || this.isDelegated(slot) ) continue;
+			
+			this.getContentSize( owner, objContainer, this.contentSize );
+			if ( !entry.hasContentSize(slot, this.contentSize[0], this.contentSize[1]) ) {
+				this.resultCache.remove( key );
+				Arrays.fill( this.laidOut, false );
+				return false;
+			}
+			this.contentWidth[slot] = this.contentSize[0];
+			this.contentHeight[slot] = this.contentSize[1];
+			this.contentPass[slot] = this.pass;
+			this.laidOut[slot] = true;
+			this.repaintDirty( owner, objContainer );
 		}
-		if ( (bVertCenter) && (xcomponent.verticalCenter() != XComponent.NULL) ) {
-			dimension.height += xcomponent.verticalCenter() > 0 ?
-					xcomponent.verticalCenter() : xcomponent.verticalCenter() * (-1);
+		for ( int slot = 1; slot <= metadata.containerCount; slot++ ) {
+			Container objContainer = metadata.getContainer( this.rootParent, slot - 1 );
+			if ( (objContainer != null) && this.isDelegated(slot) && objContainer.isValid() && !this.laidOut[slot] )
+				objContainer.invalidate();
 		}
-		
-		return dimension;
+		return true;
 	}
 	
-	private Dimension getCustomLayoutSize(Container parent, boolean minimumSize) {
-		Dimension minLayoutSize = new Dimension( 0, 0 );
-		
-		for ( int i = 0; i < this.components.length; i++ ) {
-			Component objComponent = (Component) Reflection.getFieldInstanceFromObject( this.components[i], this.rootParent );
-			XComponent xcomponent = this.components[i].getAnnotation( XComponent.class );
-			
-			Dimension minCompSize = null;
-			
-			if ( minimumSize )
-				minCompSize = this.getMinimumComponentSize( objComponent, xcomponent );
-			else
-				minCompSize = this.getPreferredComponentSize( objComponent, xcomponent );
-			
-			if ( minCompSize.width > minLayoutSize.width )
-				minLayoutSize.width = minCompSize.width;
-			
-			if ( minCompSize.height > minLayoutSize.height )
-				minLayoutSize.height = minCompSize.height;
+	/**
+	 * @return True if the owner container at slot is laid out by its own
+	 * validation, instead of the layout of the root container.
+	 */
+	private boolean isDelegated(int slot) {
+		return this.delegating && this.delegated[slot];
+	}
+	
+	/**
+	 * Caches the bounds solved by this pass, for the current root content size.
+	 */
+	private void storeResult() {
+		XMetadata metadata = this.metadata;
+		int slots = metadata.containerCount + 1;
+		int values[] = new int[this.bounds.length + slots * 2];
+		System.arraycopy( this.bounds, 0, values, 0, this.bounds.length );
+		for ( int slot = 0; slot < slots; slot++ ) {
+			values[this.bounds.length + slot * 2] = this.contentWidth[slot];
+			values[this.bounds.length + slot * 2 + 1] = this.contentHeight[slot];
 		}
+		Long key = Long.valueOf( ((long) this.contentWidth[0] << 32) | (this.contentHeight[0] & 0xFFFFFFFFL) );
+		this.resultCache.put( key, new ResultEntry(values, this.bounds.length) );
+	}
+	
+	/**
+	 * The bounds of all the components, followed by the content sizes of
+	 * all the owner containers, stored as shorts when they all fit.
+	 */
+	private static final class ResultEntry {
+		private final short shortValues[];
+		private final int intValues[];
+		private final int boundsLength;
 		
-		XContainer xcontainer = rootParent.getClass().getAnnotation( XContainer.class );
+		ResultEntry(int values[], int boundsLength) {
+			this.boundsLength = boundsLength;
+			boolean fits = true;
+			for ( int i = 0; fits && (i < values.length); i++ )
+				fits = (values[i] >= Short.MIN_VALUE) && (values[i] <= Short.MAX_VALUE);
+			if ( fits ) {
+				this.shortValues = new short[values.length];
+				for ( int i = 0; i < values.length; i++ )
+					this.shortValues[i] = (short) values[i];
+				this.intValues = null;
+			}
+			else {
+				this.shortValues = null;
+				this.intValues = values;
+			}
+		}
+		
+		void copyBounds(int bounds[]) {
+			if ( this.intValues != null )
+				System.arraycopy( this.intValues, 0, bounds, 0, this.boundsLength );
+			else
+				for ( int i = 0; i < this.boundsLength; i++ )
+					bounds[i] = this.shortValues[i];
+		}
+		
+		boolean hasContentSize(int slot, int width, int height) {
+			int offset = this.boundsLength + slot * 2;
+			if ( this.intValues != null )
+				return (this.intValues[offset] == width) && (this.intValues[offset + 1] == height);
+			return (this.shortValues[offset] == width) && (this.shortValues[offset + 1] == height);
+		}
+	}
+
+	/*----------------
+	 * Repaints
+	 */
+	/**
+	 * The components moved by a layout pass aren't repainted one by one:
+	 * each owner container is repainted once, when all its components
+	 * are moved, with the union of their old and new bounds.
+	 * @return How many repaints were requested since the last pass started,
+	 * at most one per owner container.
+	 */
+	public int getRepaintCount() {
+		return this.repaintCount;
+	}
+	
+	/**
+	 * Moves objComponent, a component of owner, and adds its old
+	 * and new bounds to the dirty region of owner.
+	 * @param index The index of the field of objComponent, or -1 for the
+	 * elements of a Component[] or List
+	 */
+	private void applyBounds(int owner, int index, Component objComponent, int x, int y, int width, int height) {
+		this.addDirtyRegion( owner, objComponent.getX(), objComponent.getY(),
+					objComponent.getWidth(), objComponent.getHeight() );
+		objComponent.setBounds( x, y, width, height );
+		this.addDirtyRegion( owner, x, y, width, height );
+		this.indexBounds( owner, index, objComponent );
+		this.boundsApplied++;
+	}
+	
+	private void addDirtyRegion(int owner, int x, int y, int width, int height) {
+		if ( (width <= 0) || (height <= 0) )
+			return;
+		int slot = owner + 1;
+		int offset = slot * 4;
+		int region[] = this.dirtyRegions;
+		if ( !this.dirty[slot] ) {
+			this.dirty[slot] = true;
+			region[offset] = x;
+			region[offset + 1] = y;
+			region[offset + 2] = x + width;
+			region[offset + 3] = y + height;
+		}
+		else {
+			region[offset] = Math.min( region[offset], x );
+			region[offset + 1] = Math.min( region[offset + 1], y );
+			region[offset + 2] = Math.max( region[offset + 2], x + width );
+			region[offset + 3] = Math.max( region[offset + 3], y + height );
+		}
+	}
+	
+	/**
+	 * Repaints the dirty region of owner, if any, in a single request.
+	 */
+	private void repaintDirty(int owner, Container objContainer) {
+		int slot = owner + 1;
+		if ( !this.dirty[slot] )
+			return;
+		
+		int offset = slot * 4;
+		int region[] = this.dirtyRegions;
+		this.dirty[slot] = false;
+		objContainer.repaint( region[offset], region[offset + 1],
+					region[offset + 2] - region[offset], region[offset + 3] - region[offset + 1] );
+		this.repaintCount++;
+	}
+
+	/*----------------
+	 * Spatial Index
+	 */
+	/**
+	 * Keeps the bounds of the children of each owner container in a grid,
+	 * which is updated each time this layout moves one of them, so that
+	 * getComponentAt and getComponentsIn only look at the children around
+	 * a point or a rect, instead of at all of them like AWT does.<br>
+	 * A canvas with thousands of children can use them for its hit testing,
+	 * in an override of getComponentAt, and to paint only the children in
+	 * the clip, in an override of paintChildren.<br><br>
+	 * <b>Note: </b> The grid follows the bounds set by this layout, not the
+	 * ones set by calling setBounds directly.
+	 */
+	public void setSpatialIndexed(boolean indexed) {
+		this.spatialIndexed = indexed;
+		if ( !indexed ) {
+			this.spatialIndexes = null;
+			this.indexedComponents = null;
+		}
+	}
+	
+	public boolean isSpatialIndexed() {
+		return this.spatialIndexed;
+	}
+	
+	/**
+	 * @param owner The root container, or one of the nested owner containers.
+	 * @return The visible child of owner on top at x, y, in the coordinates
+	 * of owner, or null if there's none.
+	 */
+	public Component getComponentAt(Container owner, int x, int y) {
+		XSpatialIndex index = this.getSpatialIndex( owner );
+		return index != null ? index.componentAt( x, y ) : null;
+	}
+	
+	/**
+	 * Adds the visible children of owner which intersect rect, in the
+	 * coordinates of owner, to result, the one on top first.
+	 * @param owner The root container, or one of the nested owner containers.
+	 */
+	public void getComponentsIn(Container owner, Rectangle rect, List<Component> result) {
+		XSpatialIndex index = this.getSpatialIndex( owner );
+		if ( index != null )
+			index.intersecting( rect, result );
+	}
+	
+	/**
+	 * @return The index of the children of owner, built from their current
+	 * bounds if it's the first query, or null if nothing was laid out yet.
+	 */
+	private XSpatialIndex getSpatialIndex(Container owner) {
+		if ( !this.spatialIndexed )
+			throw new IllegalStateException( "The spatial index is off, see setSpatialIndexed" );
+		XMetadata metadata = this.metadata;
+		if ( (metadata == null) || (owner == null) )
+			return null;
+		
+		int slot = this.ownerOf( owner ) + 1;
+		if ( this.spatialIndexes == null ) {
+			this.spatialIndexes = new XSpatialIndex[metadata.containerCount + 1];
+			this.indexedComponents = new Component[metadata.componentCount];
+		}
+		XSpatialIndex index = this.spatialIndexes[slot];
+		if ( index == null ) {
+			// The children are indexed in the order they were added
+			index = this.spatialIndexes[slot] = new XSpatialIndex();
+			for ( int i = metadata.ownerStart[slot]; i < metadata.ownerStart[slot + 1]; i++ ) {
+				int compCount = metadata.ownerChildren[i];
+				if ( metadata.repeated[compCount] ) {
+					Component elements[] = this.elements[compCount];
+					for ( int j = 0; (elements != null) && (j < elements.length); j++ )
+						if ( (elements[j] != null) && (elements[j].getParent() == owner) )
+							index.update( elements[j] );
+				}
+				else {
+					Component objComponent = metadata.getComponent( this.rootParent, compCount );
+					if ( (objComponent != null) && (objComponent.getParent() == owner) ) {
+						index.update( objComponent );
+						this.indexedComponents[compCount] = objComponent;
+					}
+				}
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * @return The owner index of container in the plan, ROOT for the root container.
+	 * @throws IllegalArgumentException If container isn't an owner container of this layout
+	 */
+	private int ownerOf(Container container) {
+		if ( container == this.rootParent )
+			return XMetadata.ROOT;
+		
+		XMetadata metadata = this.metadata;
+		Integer owner = this.ownerIndex != null ? this.ownerIndex.get( container ) : null;
+		if ( (owner == null) || (metadata.getContainer(this.rootParent, owner.intValue()) != container) ) {
+			// Fields may have been created, or replaced, since the index was built
+			this.ownerIndex = new IdentityHashMap<Container, Integer>( metadata.containerCount * 2 );
+			for ( int i = 0; i < metadata.containerCount; i++ ) {
+				Container objContainer = metadata.getContainer( this.rootParent, i );
+				if ( objContainer != null )
+					this.ownerIndex.put( objContainer, Integer.valueOf(i) );
+			}
+			owner = this.ownerIndex.get( container );
+			if ( owner == null )
+				throw new IllegalArgumentException( "Not an owner container of this layout: " + container.getName() );
+		}
+		return owner.intValue();
+	}
+	
+	/**
+	 * Updates the bounds of objComponent in the index of owner, if it's built.
+	 * @param index The index of the field of objComponent, or -1 for the
+	 * elements of a Component[] or List. If the field was replaced, objComponent
+	 * takes the place of the component it held in the index.
+	 */
+	private void indexBounds(int owner, int index, Component objComponent) {
+		if ( this.spatialIndexes != null ) {
+			XSpatialIndex spatialIndex = this.spatialIndexes[owner + 1];
+			if ( spatialIndex == null )
+				return;
+			if ( index >= 0 ) {
+				Component last = this.indexedComponents[index];
+				if ( (last != null) && (last != objComponent) )
+					spatialIndex.replace( last, objComponent );
+				this.indexedComponents[index] = objComponent;
+			}
+			spatialIndex.update( objComponent );
+		}
+	}
+
+	/*----------------
+	 * Pre-warming
+	 */
+	/**
+	 * Scans the given form classes now, instead of during their first layout:
+	 * their fields, constraints, owners and accessors are resolved and sorted
+	 * once per class, and shared by all their XLayouts. Then the first layout
+	 * of each form only has to add its components and solve their bounds.<br>
+	 * It can be called from any thread, the results are published safely.
+	 * @throws IllegalArgumentException If a class has an invalid XLayout
+	 */
+	public static void prepare(Class<?>... formClasses) {
+		for ( int i = 0; i < formClasses.length; i++ )
+			XMetadata.forClass( formClasses[i] ).getPlan();
+	}
+	
+	/**
+	 * Scans the given form classes like prepare does, in parallel on the
+	 * common ForkJoinPool, usually while the application starts.
+	 * @return A Future which is done once all the classes are scanned,
+	 * its get() method throws the problems found, if any.
+	 */
+	public static Future<?> prepareInBackground(Class<?>... formClasses) {
+		return ForkJoinPool.commonPool().submit( new PrepareTask(formClasses.clone(), 0, formClasses.length) );
+	}
+	
+	/**
+	 * Keeps the scanned form classes in a directory, so that the next
+	 * JVMs read them from there instead of scanning them again. Each class
+	 * gets a small binary file, which is memory mapped when it's read.<br>
+	 * The files are checked against the sizes and modification times of the
+	 * class files of the form and its superclasses: when a form changes, its
+	 * file is written again after the next scan. The forms which have a companion, generated by the
+	 * XLayoutProcessor, don't need it.<br><br>
+	 * <b>Note: </b> Only the classes scanned after this call use the cache,
+	 * so it should be set while the application starts.
+	 * @param directory The directory of the files, created if needed,
+	 * or null to disable the cache, which is the default.
+	 */
+	public static void setPlanCache(File directory) {
+		XPlanCache.setDirectory( directory );
+	}
+	
+	public static File getPlanCache() {
+		return XPlanCache.getDirectory();
+	}
+	
+	/**
+	 * Scans a range of form classes, splitting it in halves down to single classes.
+	 */
+	private static final class PrepareTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Class<?> formClasses[];
+		private final int from;
+		private final int to;
+		
+		PrepareTask(Class<?> formClasses[], int from, int to) {
+			this.formClasses = formClasses;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if ( (this.to - this.from) > 1 ) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll( new PrepareTask(this.formClasses, this.from, middle),
+							new PrepareTask(this.formClasses, middle, this.to) );
+			}
+			else if ( this.to > this.from )
+				prepare( this.formClasses[this.from] );
+		}
+	}
+
+	/*----------------
+	 * Custom Methods
+	 */
+	/**
+	 * The first time being executed, it will construct the GUI.
+	 * @return False if the GUI couldn't be constructed.
+	 */
+	private boolean prepareCanvas(Container parent) {
+		// Verify if it's the first time being shown
+		if ( firstTime ) {
+			try {
+				long start = XLayoutMonitor.isEnabled() ? System.nanoTime() : 0;
+				// if it is, then it should construct the GUI
+				this.validateRootParent( parent );
+				
+				this.constructCanvas();
+				if ( start != 0 )
+					this.scanNanos = System.nanoTime() - start;
+				
+				// After populating rootParent, components and containers,
+				// we're ready to layout it
+				firstTime = false;
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Starts a new layout pass, or size computation. The sizes computed
+	 * in a previous pass may have been invalidated since then.
+	 */
+	private void startPass() {
+		this.pass++;
+		this.sizeCache.nextPass();
+		if ( this.elementSizeCaches != null )
+			for ( int i = 0; i < this.elementSizeCaches.length; i++ )
+				if ( this.elementSizeCaches[i] != null )
+					this.elementSizeCaches[i].nextPass();
+		this.componentsSolved = 0;
+		this.boundsApplied = 0;
+		this.boundsSkipped = 0;
+		this.repaintCount = 0;
+		this.passMisses = this.sizeCache.getMisses();
+	}
+	
+	/**
+	 * Sends the metrics of the pass which started at start to the XLayoutMonitor.
+	 * The scan time is only reported once, by the first pass.
+	 */
+	private void fireLayoutPerformed(int type, String containerName, long start) {
+		long duration = System.nanoTime() - start;
+		XLayoutMonitor.fireLayoutPerformed( new XLayoutEvent( this.metadata.getFormClass(),
+					containerName, type, duration, this.scanNanos, this.componentsSolved,
+					this.boundsApplied, this.boundsSkipped, (int) (this.sizeCache.getMisses() - this.passMisses)) );
+		this.scanNanos = 0;
+	}
+	
+	/**
+	 * This will seek for the Root Parent and populate this.rootParent if is valid.
+	 * @param parent
+	 * @throws Exception If the RootParent doesn't contain the XContainer Annotation
+	 */
+	private void validateRootParent(Container parent) throws Exception {
+    	while ( (parent != null) &&
+    			(!parent.getClass().isAnnotationPresent(XContainer.class)) )
+    		parent = parent.getParent();
+    	if ( parent != null )
+    		this.rootParent = parent;
+    	else
+    		throw new Exception("Annotation XContainer is not present.");
+	}
+	
+	/**
+	 * This method will get all the components and containers, and join them.<br>
+	 * The scan itself is done only once per class, see XMetadata.<br>
+	 * Call this method only once and only after your GUI components have been all instantiated<br>
+	 */
+	private void constructCanvas() {
+		this.metadata = XMetadata.forClass( this.rootParent.getClass() );
+		this.spatialIndexes = null;
+		this.indexedComponents = null;
+		this.ownerIndex = null;
+		this.plan = this.metadata.getPlan();
+		this.mask = this.metadata.mask;
+		this.overridden = false;
+		XMetadata metadata = this.metadata;
+		
+		this.bounds = new int[metadata.componentCount * 4];
+		this.contentWidth = new int[metadata.containerCount + 1];
+		this.contentHeight = new int[metadata.containerCount + 1];
+		this.contentPass = new int[metadata.containerCount + 1];
+		this.laidOut = new boolean[metadata.containerCount + 1];
+		this.pending = new boolean[metadata.componentCount];
+		this.ownerHidden = new boolean[metadata.containerCount + 1];
+		this.ownerShown = new boolean[metadata.containerCount + 1];
+		this.ownerIncomplete = new boolean[metadata.containerCount + 1];
+		this.sizeCache = new XSizeCache( metadata.componentCount );
+		this.preferredLayoutSize = new int[(metadata.containerCount + 1) * 2];
+		this.minimumLayoutSize = new int[(metadata.containerCount + 1) * 2];
+		this.preferredLayoutPass = new int[metadata.containerCount + 1];
+		this.minimumLayoutPass = new int[metadata.containerCount + 1];
+		this.preferredContentSize = new int[(metadata.containerCount + 1) * 3];
+		this.minimumContentSize = new int[(metadata.containerCount + 1) * 3];
+		this.preferredLayoutStamp = new int[metadata.containerCount + 1];
+		this.minimumLayoutStamp = new int[metadata.containerCount + 1];
+		Arrays.fill( this.preferredLayoutStamp, -1 );
+		Arrays.fill( this.minimumLayoutStamp, -1 );
+		this.delegated = new boolean[metadata.containerCount + 1];
+		this.dirtyRegions = new int[(metadata.containerCount + 1) * 4];
+		this.dirty = new boolean[metadata.containerCount + 1];
+		
+		// Loops through all the components, check which container it belongs to,
+		// and insert it.
+		if ( metadata.repeatedCount > 0 ) {
+			this.elements = new Component[metadata.componentCount][];
+			this.elementSizeCaches = new XSizeCache[metadata.componentCount];
+		}
+		for ( int compCount = 0; compCount < metadata.componentCount; compCount++ ) {
+			if ( metadata.repeated[compCount] ) {
+				// The elements of a Component[] or List are inserted all at once
+				int owner = metadata.owner[compCount];
+				Container objContainer = owner == XMetadata.ROOT ? this.rootParent :
+							owner != XMetadata.NONE ? metadata.getContainer( this.rootParent, owner ) : null;
+				if ( objContainer != null )
+					this.refreshElements( compCount, objContainer );
+				continue;
+			}
+			if ( metadata.isCompiled() ) {
+				// The generated companion inserts it, with its owner resolved at compile time
+				metadata.companion.addComponent( this.rootParent, this.rootParent, metadata.componentFields[compCount] );
+				continue;
+			}
+			Component objComponent = metadata.getComponent( this.rootParent, compCount );
+			// Null fields are skipped, they may be created later, see setComponentFactory
+			if ( objComponent == null ) continue;
+			if ( objComponent.getParent() != null ) {
+				// If the objComponent.getParent() != null, it means that this component
+				// has already been inserted into a container.
+				// So to avoid further problems, such as, a component been added to two
+				// or more containers. We'll simply make its parent remove this component
+				Container objComponentsContainer = objComponent.getParent();
+				objComponentsContainer.remove( objComponent );
+			}
+			int owner = metadata.owner[compCount];
+			if ( owner == XMetadata.ROOT ) {
+				// Belongs to the Root Parent Container
+				this.rootParent.add( objComponent );
+			}
+			else if ( owner != XMetadata.NONE ) {
+				// Belongs to other container
+				Container objContainer = metadata.getContainer( this.rootParent, owner );
+				if ( objContainer != null )
+					objContainer.add( objComponent );
+			}
+		}
+		
+		// The nested owner containers get their own layout, see layoutDelegated
+		for ( int owner = 0; owner < metadata.containerCount; owner++ ) {
+			Container objContainer = metadata.getContainer( this.rootParent, owner );
+			if ( objContainer != null )
+				this.delegate( owner, objContainer );
+		}
+	}
+
+	/**
+	 * Sets the bounds of the components of an owner container.<br>
+	 * If the size available in the container didn't change since the last
+	 * pass, only the components whose size depends on their preferred or
+	 * minimum size are solved again. setBounds is only called on the
+	 * components whose bounds did change.
+	 */
+	private void layoutOwner(int owner, Container objContainer) {
+		XMetadata metadata = this.metadata;
+		int slot = owner + 1;
+		int lastWidth = this.contentWidth[slot];
+		int lastHeight = this.contentHeight[slot];
+		this.computeContentSize( owner, objContainer );
+		boolean resized = (this.contentWidth[slot] != lastWidth) ||
+						(this.contentHeight[slot] != lastHeight) || !this.laidOut[slot];
+		this.laidOut[slot] = true;
+		
+		// Only the root components are virtualized. If the root can't be
+		// virtualized anymore, the pending components are all laid out.
+		boolean clip = (owner == XMetadata.ROOT) && this.computeVisibleRect( objContainer );
+		if ( (owner == XMetadata.ROOT) && !clip && (this.pendingCount > 0) )
+			resized = true;
+		
+		// In lazy mode, the null components are created once the owner is visible
+		boolean lazy = this.componentFactory != null;
+		if ( lazy && this.ownerIncomplete[slot] )
+			resized = true;
+		int shown = -1;
+		boolean incomplete = false;
+		
+		int sizeDependent = this.keepMiniumSize ? ~0 : XMetadata.PREFERRED_WIDTH | XMetadata.PREFERRED_HEIGHT;
+		int bounds[] = this.bounds;
+		for ( int i = metadata.ownerStart[slot]; i < metadata.ownerStart[slot + 1]; i++ ) {
+			int compCount = metadata.ownerChildren[i];
+			if ( metadata.repeated[compCount] ) {
+				// Only the Component[] and Lists whose elements changed are solved again
+				if ( this.refreshElements(compCount, objContainer) || resized ||
+						((this.mask[compCount] & sizeDependent) != 0) )
+					this.layoutElements( compCount, owner );
+				continue;
+			}
+			if ( !resized && ((this.mask[compCount] & sizeDependent) == 0) )
+				continue;
+			
+			Component objComponent = metadata.getComponent( this.rootParent, compCount );
+			if ( lazy ) {
+				if ( objComponent == null ) {
+					if ( shown < 0 )
+						shown = this.isShown( objContainer ) ? 1 : 0;
+					if ( shown > 0 )
+						objComponent = this.createComponent( compCount );
+				}
+				if ( objComponent == null ) {
+					incomplete = true;
+					continue;
+				}
+				if ( objComponent.getParent() != objContainer )
+					objContainer.add( objComponent );
+			}
+			if ( objComponent == null ) continue;
+			
+			int offset = compCount * 4;
+			this.getXBounds( compCount, owner, objComponent, bounds, offset );
+			this.componentsSolved++;
+			if ( clip && !this.isInSight(objComponent, offset) ) {
+				this.pending[compCount] = true;
+				this.boundsSkipped++;
+				continue;
+			}
+			this.pending[compCount] = false;
+			if ( (objComponent.getX() != bounds[offset]) || (objComponent.getY() != bounds[offset + 1]) ||
+					(objComponent.getWidth() != bounds[offset + 2]) || (objComponent.getHeight() != bounds[offset + 3]) ) {
+				this.applyBounds( owner, compCount, objComponent,
+							bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3] );
+			}
+			else {
+				this.boundsSkipped++;
+				// A replaced field whose new component is already in place
+				if ( (this.indexedComponents != null) && (this.indexedComponents[compCount] != objComponent) )
+					this.indexBounds( owner, compCount, objComponent );
+			}
+		}
+		
+		this.repaintDirty( owner, objContainer );
+		if ( owner == XMetadata.ROOT )
+			this.indexPending();
+		if ( lazy )
+			this.ownerIncomplete[slot] = incomplete;
+	}
+	
+	/**
+	 * Reads the elements of the Component[] or List at index, and if they
+	 * changed since the last time, removes the old ones from objContainer
+	 * and adds the new ones.
+	 * @return True if the elements changed.
+	 */
+	private boolean refreshElements(int index, Container objContainer) {
+		Object value = this.metadata.getElements( this.rootParent, index );
+		if ( !this.elementsChanged(index, value) )
+			return false;
+		
+		int count = XMetadata.getElementCount( value );
+		Component last[] = this.elements[index];
+		Component current[] = new Component[count];
+		IdentityHashMap<Component, Boolean> kept = new IdentityHashMap<Component, Boolean>( count * 2 );
+		for ( int i = 0; i < count; i++ ) {
+			current[i] = XMetadata.getElement( value, i );
+			if ( current[i] != null )
+				kept.put( current[i], Boolean.TRUE );
+		}
+		if ( last != null )
+			for ( int i = 0; i < last.length; i++ )
+				if ( (last[i] != null) && !kept.containsKey(last[i]) && (last[i].getParent() == objContainer) ) {
+					objContainer.remove( last[i] );
+					XSpatialIndex spatialIndex = this.spatialIndexes != null ?
+								this.spatialIndexes[this.metadata.owner[index] + 1] : null;
+					if ( spatialIndex != null )
+						spatialIndex.remove( last[i] );
+				}
+		for ( int i = 0; i < count; i++ )
+			if ( (current[i] != null) && (current[i].getParent() != objContainer) ) {
+				if ( current[i].getParent() != null )
+					current[i].getParent().remove( current[i] );
+				objContainer.add( current[i] );
+			}
+		this.elements[index] = current;
+		return true;
+	}
+	
+	/**
+	 * @return True if the elements in value aren't the ones of the last
+	 * layout of the Component[] or List at index.
+	 */
+	private boolean elementsChanged(int index, Object value) {
+		int count = XMetadata.getElementCount( value );
+		Component last[] = this.elements[index];
+		boolean changed = (last == null) || (last.length != count);
+		for ( int i = 0; !changed && (i < count); i++ )
+			changed = last[i] != XMetadata.getElement( value, i );
+		return changed;
+	}
+	
+	/**
+	 * @return True if the elements of one of the Component[] or Lists
+	 * owned by the container at slot changed since its last layout.
+	 */
+	private boolean ownerElementsChanged(int slot) {
+		XMetadata metadata = this.metadata;
+		if ( metadata.repeatedCount == 0 )
+			return false;
+		for ( int i = metadata.ownerStart[slot]; i < metadata.ownerStart[slot + 1]; i++ ) {
+			int compCount = metadata.ownerChildren[i];
+			if ( metadata.repeated[compCount] &&
+					this.elementsChanged(compCount, metadata.getElements(this.rootParent, compCount)) )
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Sets the bounds of the elements of the Component[] or List at index.
+	 * If their size doesn't depend on their preferred or minimum size, the
+	 * constraints are solved only once, and each element is moved by stride.
+	 */
+	private void layoutElements(int index, int owner) {
+		XMetadata metadata = this.metadata;
+		Component elements[] = this.elements[index];
+		int sizeDependent = XMetadata.PREFERRED_WIDTH | XMetadata.PREFERRED_HEIGHT;
+		boolean bulk = !this.keepMiniumSize && ((this.mask[index] & sizeDependent) == 0);
+		int contentWidth = this.contentWidth[owner + 1];
+		int contentHeight = this.contentHeight[owner + 1];
+		int bounds[] = this.bounds;
+		int offset = index * 4;
+		if ( bulk )
+			XSolver.solveBounds( this.plan, index, contentWidth, contentHeight, 0, 0, false, 0, 0, bounds, offset );
+		
+		boolean horizontal = metadata.axis[index] == XComponent.HORIZONTAL;
+		XSizeCache elementSizeCache = bulk ? null : this.getElementSizeCache( index, elements.length );
+		int preferredSize[] = this.componentSize;
+		int minimumSize[] = this.childLayoutSize;
+		preferredSize[0] = preferredSize[1] = 0;
+		minimumSize[0] = minimumSize[1] = 0;
+		for ( int i = 0; i < elements.length; i++ ) {
+			Component objComponent = elements[i];
+			if ( objComponent == null ) continue;
+			
+			if ( !bulk ) {
+				if ( (this.mask[index] & sizeDependent) != 0 )
+					elementSizeCache.getPreferredSize( i, objComponent, preferredSize );
+				if ( this.keepMiniumSize )
+					elementSizeCache.getMinimumSize( i, objComponent, minimumSize );
+				XSolver.solveBounds( this.plan, index, contentWidth, contentHeight,
+							preferredSize[0], preferredSize[1], this.keepMiniumSize,
+							minimumSize[0], minimumSize[1], bounds, offset );
+			}
+			int shift = i * metadata.stride[index];
+			int x = bounds[offset] + (horizontal ? shift : 0);
+			int y = bounds[offset + 1] + (horizontal ? 0 : shift);
+			this.componentsSolved++;
+			if ( (objComponent.getX() != x) || (objComponent.getY() != y) ||
+					(objComponent.getWidth() != bounds[offset + 2]) || (objComponent.getHeight() != bounds[offset + 3]) ) {
+				this.applyBounds( owner, -1, objComponent, x, y, bounds[offset + 2], bounds[offset + 3] );
+			}
+			else
+				this.boundsSkipped++;
+		}
+	}
+	
+	/**
+	 * Writes the size needed by the elements of the Component[] or List at
+	 * index, their sizes plus their constraints and their strides, into size.
+	 */
+	private void getElementsSize(int index, boolean minimumSize, int size[]) {
+		XMetadata metadata = this.metadata;
+		Object value = metadata.getElements( this.rootParent, index );
+		int count = XMetadata.getElementCount( value );
+		boolean horizontal = metadata.axis[index] == XComponent.HORIZONTAL;
+		XSizeCache elementSizeCache = this.getElementSizeCache( index, count );
+		int width = 0;
+		int height = 0;
+		for ( int i = 0; i < count; i++ ) {
+			Component objComponent = XMetadata.getElement( value, i );
+			if ( objComponent == null ) continue;
+			
+			if ( minimumSize )
+				elementSizeCache.getMinimumSize( i, objComponent, size );
+			else
+				elementSizeCache.getPreferredSize( i, objComponent, size );
+			XSolver.addConstraints( this.plan, index, size );
+			int shift = i * metadata.stride[index];
+			width = Math.max( width, size[0] + (horizontal ? shift : 0) );
+			height = Math.max( height, size[1] + (horizontal ? 0 : shift) );
+		}
+		size[0] = width;
+		size[1] = height;
+	}
+	
+	/**
+	 * Returns the size cache of the elements of the Component[] or List at
+	 * index, with room for count elements. A bigger one replaces it when
+	 * the elements grow past its size.
+	 */
+	private XSizeCache getElementSizeCache(int index, int count) {
+		XSizeCache elementSizeCache = this.elementSizeCaches[index];
+		if ( (elementSizeCache == null) || (elementSizeCache.getCapacity() < count) ) {
+			if ( elementSizeCache != null )
+				elementSizeCache.release();
+			elementSizeCache = new XSizeCache( Math.max(count, elementSizeCache != null ?
+								elementSizeCache.getCapacity() * 2 : 0) );
+			this.elementSizeCaches[index] = elementSizeCache;
+		}
+		return elementSizeCache;
+	}
+	
+	/**
+	 * @return True if objContainer and all its ancestors, up to the root
+	 * container, are visible. Otherwise, the first hidden one is watched,
+	 * to lay out the root container again when it's shown.
+	 */
+	private boolean isShown(Container objContainer) {
+		Component hidden = objContainer;
+		while ( (hidden != null) && (hidden != this.rootParent) && hidden.isVisible() )
+			hidden = hidden.getParent();
+		if ( (hidden == null) || (hidden == this.rootParent) )
+			return true;
+		
+		if ( this.shownListener == null )
+			this.shownListener = new ComponentAdapter() {
+				@Override
+				public void componentShown(ComponentEvent e) {
+					if ( rootParent != null )
+						rootParent.revalidate();
+				}
+			};
+		ComponentListener listeners[] = hidden.getComponentListeners();
+		for ( int i = 0; i < listeners.length; i++ )
+			if ( listeners[i] == this.shownListener )
+				return false;
+		hidden.addComponentListener( this.shownListener );
+		return false;
+	}
+	
+	/**
+	 * Creates the component at index with the component factory,
+	 * and stores it in its field.
+	 * @return The component, or null if it wasn't created.
+	 */
+	private Component createComponent(int index) {
+		XMetadata metadata = this.metadata;
+		Component objComponent = this.componentFactory.createComponent( this.rootParent,
+						metadata.componentNames[index] );
+		if ( objComponent != null ) {
+			metadata.setComponent( this.rootParent, index, objComponent );
+			if ( objComponent.getParent() != null )
+				objComponent.getParent().remove( objComponent );
+			int container = metadata.componentContainer[index];
+			if ( (container != XMetadata.NONE) && (objComponent instanceof Container) )
+				this.delegate( container, (Container) objComponent );
+		}
+		return objComponent;
+	}
+	
+	/**
+	 * Lays out the nested owner containers, each one after its owner.
+	 * The containers which are pending, or inside a pending container, are
+	 * hidden and skipped.
+	 * @param shownOnly If true, only the containers which were just
+	 * scrolled into sight, and the ones inside them, are laid out.
+	 */
+	private void layoutNested(boolean shownOnly) {
+		XMetadata metadata = this.metadata;
+		for ( int i = 0; i < metadata.containerCount; i++ ) {
+			int owner = metadata.containerOrder[i];
+			int slot = owner + 1;
+			int component = metadata.containerComponent[owner];
+			int componentOwner = component != XMetadata.NONE ? metadata.owner[component] : XMetadata.NONE;
+			this.ownerHidden[slot] = (component != XMetadata.NONE) && (this.pending[component] ||
+							((componentOwner >= 0) && this.ownerHidden[componentOwner + 1]));
+			if ( (componentOwner >= 0) && this.ownerShown[componentOwner + 1] )
+				this.ownerShown[slot] = true;
+			if ( this.ownerHidden[slot] || (shownOnly && !this.ownerShown[slot]) )
+				continue;
+			
+			Container objContainer = metadata.getContainer( this.rootParent, owner );
+			if ( objContainer == null )
+				continue;
+			if ( this.isDelegated(slot) && !shownOnly ) {
+				// Its own validation lays it out, but only if it's invalid. The
+				// containers just scrolled into sight are laid out right away.
+				if ( objContainer.isValid() && (!this.laidOut[slot] || this.ownerElementsChanged(slot)) )
+					objContainer.invalidate();
+				continue;
+			}
+			this.layoutOwner( owner, objContainer );
+		}
+		if ( shownOnly )
+			Arrays.fill( this.ownerShown, false );
+	}
+	
+	/**
+	 * Computes the area of the root container which is in sight, plus the
+	 * virtual margin, and starts listening to its viewport, if any.
+	 * @return False if the root container isn't virtualized.
+	 */
+	private boolean computeVisibleRect(Container objContainer) {
+		if ( !this.virtualized || !(objContainer instanceof JComponent) )
+			return false;
+		
+		Container viewport = objContainer.getParent();
+		if ( viewport != this.viewport ) {
+			if ( this.viewport != null )
+				this.viewport.removeChangeListener( this.viewportListener );
+			this.viewport = null;
+			if ( viewport instanceof JViewport ) {
+				if ( this.viewportListener == null )
+					this.viewportListener = new ChangeListener() {
+						@Override
+						public void stateChanged(ChangeEvent e) {
+							showPending();
+						}
+					};
+				this.viewport = (JViewport) viewport;
+				this.viewport.addChangeListener( this.viewportListener );
+			}
+		}
+		
+		Rectangle rect = this.visibleRect;
+		((JComponent) objContainer).computeVisibleRect( rect );
+		rect.x -= this.virtualMargin;
+		rect.y -= this.virtualMargin;
+		rect.width += this.virtualMargin * 2;
+		rect.height += this.virtualMargin * 2;
+		return true;
+	}
+	
+	/**
+	 * @return True if the bounds solved at offset, or the current bounds
+	 * of the component, intersect the visible rect. Empty bounds never do.
+	 */
+	private boolean isInSight(Component objComponent, int offset) {
+		Rectangle rect = this.visibleRect;
+		int bounds[] = this.bounds;
+		return intersects( rect, bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3] ) ||
+				intersects( rect, objComponent.getX(), objComponent.getY(),
+							objComponent.getWidth(), objComponent.getHeight() );
+	}
+	
+	private static boolean intersects(Rectangle rect, int x, int y, int width, int height) {
+		return (width > 0) && (height > 0) && (x < rect.x + rect.width) && (x + width > rect.x) &&
+				(y < rect.y + rect.height) && (y + height > rect.y);
+	}
+	
+	/**
+	 * Indexes the pending root components by their top, both the solved one
+	 * and the current one, so that the ones scrolled into sight are found by
+	 * a binary search.
+	 */
+	private void indexPending() {
+		XMetadata metadata = this.metadata;
+		int start = metadata.ownerStart[0];
+		int end = metadata.ownerStart[1];
+		if ( this.pendingIndex == null )
+			this.pendingIndex = new long[(end - start) * 2];
+		
+		int bounds[] = this.bounds;
+		int length = 0;
+		int count = 0;
+		int maxHeight = 0;
+		for ( int i = start; i < end; i++ ) {
+			int compCount = metadata.ownerChildren[i];
+			if ( !this.pending[compCount] ) continue;
+			
+			Component objComponent = metadata.getComponent( this.rootParent, compCount );
+			if ( objComponent == null ) {
+				// The field was cleared after the component was left pending
+				this.pending[compCount] = false;
+				continue;
+			}
+			
+			int offset = compCount * 4;
+			count++;
+			this.pendingIndex[length++] = ((long) bounds[offset + 1] << 32) | compCount;
+			maxHeight = Math.max( maxHeight, bounds[offset + 3] );
+			if ( objComponent.getY() != bounds[offset + 1] ) {
+				this.pendingIndex[length++] = ((long) objComponent.getY() << 32) | compCount;
+				maxHeight = Math.max( maxHeight, objComponent.getHeight() );
+			}
+		}
+		Arrays.sort( this.pendingIndex, 0, length );
+		this.pendingIndexLength = length;
+		this.pendingCount = count;
+		this.pendingMaxHeight = maxHeight;
+	}
+	
+	/**
+	 * Lays out the pending root components which were scrolled into sight,
+	 * and then the containers among them.
+	 */
+	private void showPending() {
+		if ( (this.pendingCount == 0) || (this.rootParent == null) || !this.virtualized )
+			return;
+		
+		Component view = this.viewport.getView();
+		if ( !(view instanceof Container) || !this.computeVisibleRect((Container) view) )
+			return;
+		
+		XMetadata metadata = this.metadata;
+		Rectangle rect = this.visibleRect;
+		long index[] = this.pendingIndex;
+		int i = Arrays.binarySearch( index, 0, this.pendingIndexLength,
+						(long) (rect.y - this.pendingMaxHeight) << 32 );
+		if ( i < 0 )
+			i = -i - 1;
+		
+		boolean nested = false;
+		int bounds[] = this.bounds;
+		for ( ; (i < this.pendingIndexLength) && ((int) (index[i] >> 32) < rect.y + rect.height); i++ ) {
+			int compCount = (int) index[i];
+			if ( !this.pending[compCount] ) continue;
+			
+			Component objComponent = metadata.getComponent( this.rootParent, compCount );
+			int offset = compCount * 4;
+			if ( (objComponent == null) || !this.isInSight(objComponent, offset) ) continue;
+			
+			this.pending[compCount] = false;
+			this.pendingCount--;
+			this.applyBounds( XMetadata.ROOT, compCount, objComponent,
+						bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3] );
+			int container = metadata.componentContainer[compCount];
+			if ( container != XMetadata.NONE ) {
+				this.ownerShown[container + 1] = true;
+				nested = true;
+			}
+		}
+		this.repaintDirty( XMetadata.ROOT, this.rootParent );
+		
+		if ( nested ) {
+			this.startPass();
+			this.layoutNested( true );
+		}
+	}
+	
+	/**
+	 * Lays out all the owner containers like layoutOwner does, but solves
+	 * their bounds on the ForkJoinPool from a snapshot of the components.
+	 */
+	private void layoutParallel(Container parent) {
+		XMetadata metadata = this.metadata;
+		int count = metadata.componentCount;
+		if ( this.solvedPass == null ) {
+			this.parallelComponents = new Component[count];
+			this.parallelContainers = new Container[metadata.containerCount + 1];
+			this.parallelSizes = new int[count * 4];
+			this.parallelExtents = new int[(metadata.containerCount + 1) * 2];
+			this.parallelContainerSizes = new int[(metadata.containerCount + 1) * 2];
+			this.solvedPass = new int[count];
+		}
+		
+		// Copies the sizes each component may need
+		for ( int compCount = 0; compCount < count; compCount++ ) {
+			Component objComponent = metadata.getComponent( this.rootParent, compCount );
+			this.parallelComponents[compCount] = objComponent;
+			if ( objComponent == null ) continue;
+			
+			if ( (this.mask[compCount] & (XMetadata.PREFERRED_WIDTH | XMetadata.PREFERRED_HEIGHT)) != 0 ) {
+				this.getComponentSize( compCount, objComponent, false, this.componentSize );
+				this.parallelSizes[compCount * 4] = this.componentSize[0];
+				this.parallelSizes[compCount * 4 + 1] = this.componentSize[1];
+			}
+			if ( this.keepMiniumSize ) {
+				this.getComponentSize( compCount, objComponent, true, this.componentSize );
+				this.parallelSizes[compCount * 4 + 2] = this.componentSize[0];
+				this.parallelSizes[compCount * 4 + 3] = this.componentSize[1];
+			}
+		}
+		
+		// Copies the current sizes, insets and paddings of the owner containers
+		for ( int slot = 0; slot <= metadata.containerCount; slot++ ) {
+			int owner = slot - 1;
+			Container objContainer = owner == XMetadata.ROOT ? parent : metadata.getContainer( this.rootParent, owner );
+			this.parallelContainers[slot] = objContainer;
+			if ( objContainer == null ) continue;
+			
+			Insets insets = objContainer instanceof JComponent ?
+						((JComponent) objContainer).getInsets( this.insets ) : objContainer.getInsets();
+			int extentWidth = insets.left + insets.right;
+			int extentHeight = insets.top + insets.bottom;
+			if ( owner == XMetadata.ROOT ) {
+				extentWidth += metadata.rootPaddingLeft + metadata.rootPaddingRight;
+				extentHeight += metadata.rootPaddingTop + metadata.rootPaddingBottom;
+			}
+			else {
+				extentWidth += metadata.paddingLeft[owner] + metadata.paddingRight[owner];
+				extentHeight += metadata.paddingTop[owner] + metadata.paddingBottom[owner];
+			}
+			this.parallelExtents[slot * 2] = extentWidth;
+			this.parallelExtents[slot * 2 + 1] = extentHeight;
+			this.parallelContainerSizes[slot * 2] = objContainer.getWidth();
+			this.parallelContainerSizes[slot * 2 + 1] = objContainer.getHeight();
+		}
+		
+		ForkJoinPool.commonPool().invoke( new RootTask() );
+		
+		// Applies the bounds which were solved
+		int bounds[] = this.bounds;
+		for ( int compCount = 0; compCount < count; compCount++ ) {
+			if ( metadata.repeated[compCount] ) {
+				// The Component[] and Lists are solved after their owners
+				int owner = metadata.owner[compCount];
+				Container objContainer = owner != XMetadata.NONE ? this.parallelContainers[owner + 1] : null;
+				if ( objContainer != null ) {
+					this.refreshElements( compCount, objContainer );
+					this.layoutElements( compCount, owner );
+				}
+				continue;
+			}
+			if ( this.solvedPass[compCount] != this.pass ) continue;
+			
+			Component objComponent = this.parallelComponents[compCount];
+			int offset = compCount * 4;
+			this.componentsSolved++;
+			if ( (objComponent.getX() != bounds[offset]) || (objComponent.getY() != bounds[offset + 1]) ||
+					(objComponent.getWidth() != bounds[offset + 2]) || (objComponent.getHeight() != bounds[offset + 3]) ) {
+				this.applyBounds( metadata.owner[compCount], compCount, objComponent,
+							bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3] );
+			}
+			else
+				this.boundsSkipped++;
+		}
+		
+		// Each owner is repainted once, now that all the bounds are applied
+		for ( int slot = 0; slot <= metadata.containerCount; slot++ )
+			if ( this.parallelContainers[slot] != null )
+				this.repaintDirty( slot - 1, this.parallelContainers[slot] );
+	}
+	
+	/**
+	 * Computes the content size of an owner container from the snapshot, and
+	 * the bounds solved for it in this pass, if any.
+	 * @return The task solving its components, or null if the container is null.
+	 */
+	private SolveTask newSolveTask(int owner) {
+		XMetadata metadata = this.metadata;
+		int slot = owner + 1;
+		if ( this.parallelContainers[slot] == null )
+			return null;
+		
+		int width = this.parallelContainerSizes[slot * 2];
+		int height = this.parallelContainerSizes[slot * 2 + 1];
+		int component = owner == XMetadata.ROOT ? XMetadata.NONE : metadata.containerComponent[owner];
+		if ( (component != XMetadata.NONE) && (this.solvedPass[component] == this.pass) ) {
+			width = this.bounds[component * 4 + 2];
+			height = this.bounds[component * 4 + 3];
+		}
+		width -= this.parallelExtents[slot * 2];
+		height -= this.parallelExtents[slot * 2 + 1];
+		
+		boolean resized = (this.contentWidth[slot] != width) ||
+						(this.contentHeight[slot] != height) || !this.laidOut[slot];
+		this.contentWidth[slot] = width;
+		this.contentHeight[slot] = height;
+		this.contentPass[slot] = this.pass;
+		this.laidOut[slot] = true;
+		return new SolveTask( owner, metadata.ownerStart[slot], metadata.ownerStart[slot + 1], resized );
+	}
+	
+	/**
+	 * Solves the root container, and the containers which aren't laid out
+	 * by any other container, in parallel.
+	 */
+	private final class RootTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected void compute() {
+			XMetadata metadata = XLayout.this.metadata;
+			ArrayList<SolveTask> tasks = new ArrayList<SolveTask>();
+			SolveTask task = newSolveTask( XMetadata.ROOT );
+			if ( task != null )
+				tasks.add( task );
+			for ( int owner = 0; owner < metadata.containerCount; owner++ ) {
+				int component = metadata.containerComponent[owner];
+				if ( (component == XMetadata.NONE) || (metadata.owner[component] == XMetadata.NONE) ) {
+					task = newSolveTask( owner );
+					if ( task != null )
+						tasks.add( task );
+				}
+			}
+			invokeAll( tasks );
+		}
+	}
+	
+	/**
+	 * Solves a range of the components of an owner container, and then,
+	 * in parallel, the containers among them.
+	 */
+	private final class SolveTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final static int GRAIN = 512;
+		
+		private final int owner;
+		private final int from;
+		private final int to;
+		private final boolean resized;
+		
+		SolveTask(int owner, int from, int to, boolean resized) {
+			this.owner = owner;
+			this.from = from;
+			this.to = to;
+			this.resized = resized;
+		}
+		
+		@Override
+		protected void compute() {
+			if ( (this.to - this.from) > GRAIN ) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll( new SolveTask(this.owner, this.from, middle, this.resized),
+							new SolveTask(this.owner, middle, this.to, this.resized) );
+				return;
+			}
+			
+			XLayout layout = XLayout.this;
+			XMetadata metadata = layout.metadata;
+			int owner = this.owner;
+			int slot = owner + 1;
+			int sizeDependent = layout.keepMiniumSize ? ~0 : XMetadata.PREFERRED_WIDTH | XMetadata.PREFERRED_HEIGHT;
+			int sizes[] = layout.parallelSizes;
+			ArrayList<SolveTask> nested = null;
+			for ( int i = this.from; i < this.to; i++ ) {
+				int compCount = metadata.ownerChildren[i];
+				if ( layout.parallelComponents[compCount] == null ) continue;
+				
+				if ( this.resized || ((layout.mask[compCount] & sizeDependent) != 0) ) {
+					XSolver.solveBounds( layout.plan, compCount, layout.contentWidth[slot], layout.contentHeight[slot],
+								sizes[compCount * 4], sizes[compCount * 4 + 1],
+								layout.keepMiniumSize, sizes[compCount * 4 + 2], sizes[compCount * 4 + 3],
+								layout.bounds, compCount * 4 );
+					layout.solvedPass[compCount] = layout.pass;
+				}
+				
+				int container = metadata.componentContainer[compCount];
+				if ( container != XMetadata.NONE ) {
+					SolveTask task = newSolveTask( container );
+					if ( task != null ) {
+						if ( nested == null )
+							nested = new ArrayList<SolveTask>();
+						nested.add( task );
+					}
+				}
+			}
+			if ( nested != null )
+				invokeAll( nested );
+		}
+	}
+	
+	/**
+	 * Computes the size available for the components of an owner container,
+	 * its size minus its insets and paddings. It's computed only once per pass.
+	 */
+	private void computeContentSize(int owner, Container objContainer) {
+		int slot = owner + 1;
+		if ( this.contentPass[slot] == this.pass )
+			return;
+		
+		this.getContentSize( owner, objContainer, this.contentSize );
+		this.contentWidth[slot] = this.contentSize[0];
+		this.contentHeight[slot] = this.contentSize[1];
+		this.contentPass[slot] = this.pass;
+	}
+	
+	/**
+	 * Writes the size available for the components of an owner container into size.
+	 */
+	private void getContentSize(int owner, Container objContainer, int size[]) {
+		XMetadata metadata = this.metadata;
+		Insets insets = objContainer instanceof JComponent ?
+					((JComponent) objContainer).getInsets( this.insets ) : objContainer.getInsets();
+		int maxWidth = objContainer.getWidth() - insets.left - insets.right;
+		int maxHeight = objContainer.getHeight() - insets.top - insets.bottom;
+		if ( owner == XMetadata.ROOT ) {
+			maxWidth -= metadata.rootPaddingLeft + metadata.rootPaddingRight;
+			maxHeight -= metadata.rootPaddingTop + metadata.rootPaddingBottom;
+		}
+		else {
+			maxWidth -= metadata.paddingLeft[owner] + metadata.paddingRight[owner];
+			maxHeight -= metadata.paddingTop[owner] + metadata.paddingBottom[owner];
+		}
+		size[0] = maxWidth;
+		size[1] = maxHeight;
+	}
+	
+    /**
+     * Calculates the bounds with valid sizes for the component, and writes
+     * them into bounds at offset: x, y, width and height.<br>
+     * Only the sizes the constraints need are requested to the component,
+     * the XSolver does the math.
+     */
+    private void getXBounds(int index, int owner, Component objComponent, int bounds[], int offset) {
+		int mask = this.mask[index];
+		
+		// The preferred size is needed only if a width or a height is missing
+		int preferredWidth = 0;
+		int preferredHeight = 0;
+		if ( (mask & (XMetadata.PREFERRED_WIDTH | XMetadata.PREFERRED_HEIGHT)) != 0 ) {
+			this.getComponentSize( index, objComponent, false, this.componentSize );
+			preferredWidth = this.componentSize[0];
+			preferredHeight = this.componentSize[1];
+		}
+		int minimumWidth = 0;
+		int minimumHeight = 0;
+		if ( this.keepMiniumSize ) {
+			this.getComponentSize( index, objComponent, true, this.componentSize );
+			minimumWidth = this.componentSize[0];
+			minimumHeight = this.componentSize[1];
+		}
+		
+		// The generated companions have the annotation constraints folded in,
+		// so they're only used as long as none is overridden
+		if ( !this.overridden && this.metadata.isCompiled() )
+			this.metadata.companion.solveBounds( this.metadata.componentFields[index],
+						this.contentWidth[owner + 1], this.contentHeight[owner + 1],
+						preferredWidth, preferredHeight, this.keepMiniumSize, minimumWidth, minimumHeight,
+						bounds, offset );
+		else
+			XSolver.solveBounds( this.plan, index, this.contentWidth[owner + 1], this.contentHeight[owner + 1],
+						preferredWidth, preferredHeight, this.keepMiniumSize, minimumWidth, minimumHeight,
+						bounds, offset );
+    }
+	
+	/**
+	 * Writes the preferred, or minimum, size of a component into size.<br>
+	 * For the nested containers it's the size they need to hold their own
+	 * components, unless they have an explicit size.
+	 */
+	private void getComponentSize(int index, Component component, boolean minimumSize, int size[]) {
+		int container = this.metadata.componentContainer[index];
+		if ( (container != XMetadata.NONE) &&
+				(minimumSize ? !component.isMinimumSizeSet() : !component.isPreferredSizeSet()) ) {
+			int layoutSize[] = this.getLayoutSize( container, minimumSize );
+			size[0] = layoutSize[(container + 1) * 2];
+			size[1] = layoutSize[(container + 1) * 2 + 1];
+		}
+		else if ( minimumSize )
+			this.sizeCache.getMinimumSize( index, component, size );
+		else
+			this.sizeCache.getPreferredSize( index, component, size );
+	}
+	
+	/**
+	 * Writes the size needed by a component, its size plus its constraints, into size.
+	 */
+	private void getCustomComponentSize(int index, Component component,
+						boolean minimumSize, int size[]) {
+		this.getComponentSize( index, component, minimumSize, size );
+		XSolver.addConstraints( this.plan, index, size );
+	}
+	
+	/**
+	 * Computes the preferred, or minimum, layout size of an owner container,
+	 * and returns the layout sizes: two ints for each owner, the root first.<br>
+	 * The sizes of the nested containers are computed first, each one from
+	 * its own components, and only once per pass: the next calls in the same
+	 * pass use the memoized sizes. The containers which aren't inside the
+	 * owner container aren't computed.<br>
+	 * The size of the components of an owner is kept across the passes,
+	 * stamped with the version of the size cache and of the constraints: it's
+	 * reused while the stamp is the same and the same components are still
+	 * valid.
+	 * The insets and the paddings are always added again.
+	 */
+	private int[] getLayoutSize(int owner, boolean minimumSize) {
+		int layoutSize[] = minimumSize ? this.minimumLayoutSize : this.preferredLayoutSize;
+		int layoutPass[] = minimumSize ? this.minimumLayoutPass : this.preferredLayoutPass;
+		int slot = owner + 1;
+		if ( layoutPass[slot] == this.pass )
+			return layoutSize;
+		layoutPass[slot] = this.pass;
+		
+		XMetadata metadata = this.metadata;
+		Container objContainer = owner == XMetadata.ROOT ?
+						this.rootParent : metadata.getContainer( this.rootParent, owner );
+		int width = 0;
+		int height = 0;
+		if ( objContainer != null ) {
+			int contentSize[] = minimumSize ? this.minimumContentSize : this.preferredContentSize;
+			int layoutStamp[] = minimumSize ? this.minimumLayoutStamp : this.preferredLayoutStamp;
+			int stamp = this.sizeCache.getVersion() + this.constraintsVersion;
+			if ( (layoutStamp[slot] == stamp) && (this.getValidCount(slot) == contentSize[slot * 3 + 2]) ) {
+				width = contentSize[slot * 3];
+				height = contentSize[slot * 3 + 1];
+			}
+			else {
+				int size[] = this.childLayoutSize;
+				int count = 0;
+				// The nested containers among the components are computed by getComponentSize
+				for ( int j = metadata.ownerStart[slot]; j < metadata.ownerStart[slot + 1]; j++ ) {
+					int compCount = metadata.ownerChildren[j];
+					Component objComponent = metadata.getComponent( this.rootParent, compCount );
+					if ( metadata.repeated[compCount] )
+						this.getElementsSize( compCount, minimumSize, size );
+					else if ( objComponent != null )
+						this.getCustomComponentSize( compCount, objComponent, minimumSize, size );
+					else
+						continue;
+					this.componentsSolved++;
+					count++;
+					width = Math.max( width, size[0] );
+					height = Math.max( height, size[1] );
+				}
+				contentSize[slot * 3] = width;
+				contentSize[slot * 3 + 1] = height;
+				contentSize[slot * 3 + 2] = count;
+				// The sizes computed above may have moved the version
+				layoutStamp[slot] = this.sizeCache.getVersion() + this.constraintsVersion;
+			}
+			
+			Insets insets = objContainer instanceof JComponent ?
+						((JComponent) objContainer).getInsets( this.insets ) : objContainer.getInsets();
+			width += insets.left + insets.right;
+			height += insets.top + insets.bottom;
+			if ( owner == XMetadata.ROOT ) {
+				width += metadata.rootPaddingLeft + metadata.rootPaddingRight;
+				height += metadata.rootPaddingTop + metadata.rootPaddingBottom;
+			}
+			else {
+				width += metadata.paddingLeft[owner] + metadata.paddingRight[owner];
+				height += metadata.paddingTop[owner] + metadata.paddingBottom[owner];
+			}
+		}
+		layoutSize[slot * 2] = width;
+		layoutSize[slot * 2 + 1] = height;
+		return layoutSize;
+	}
+	
+	/**
+	 * Counts the components of an owner, or returns -1 if one of them isn't
+	 * valid: an invalid component, or a nested container with an invalid
+	 * component inside, may have changed its size without moving the version
+	 * of the size cache. The owners with repeated fields are never valid,
+	 * their elements may have changed.
+	 */
+	private int getValidCount(int slot) {
+		XMetadata metadata = this.metadata;
+		int count = 0;
+		for ( int j = metadata.ownerStart[slot]; j < metadata.ownerStart[slot + 1]; j++ ) {
+			int compCount = metadata.ownerChildren[j];
+			if ( metadata.repeated[compCount] )
+				return -1;
+			Component objComponent = metadata.getComponent( this.rootParent, compCount );
+			if ( objComponent == null )
+				continue;
+			if ( !objComponent.isValid() )
+				return -1;
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the preferred, or minimum, size of the root container, which
+	 * holds all the nested containers with their own components.
+	 */
+	private Dimension getCustomLayoutSize(Container parent, boolean minimumSize) {
+		boolean monitored = XLayoutMonitor.isEnabled();
+		long start = monitored ? System.nanoTime() : 0;
+		if ( !this.prepareCanvas(parent) )
+			return new Dimension( 0, 0 );
 		
-		minLayoutSize.width += xcontainer.paddingLeft() + xcontainer.paddingRight();
-		minLayoutSize.height += xcontainer.paddingTop() + xcontainer.paddingBottom();
-		return minLayoutSize;
+		this.startPass();
+		int layoutSize[] = this.getLayoutSize( XMetadata.ROOT, minimumSize );
+		if ( monitored )
+			this.fireLayoutPerformed( XLayoutEvent.SIZE, this.metadata.rootName, start );
+		return new Dimension( layoutSize[0], layoutSize[1] );
 	}
     
 }
@@ -0,0 +1,703 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Vector;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+import com.xiaosfx.core.XLayoutPlan;
+import com.xiaosfx.reflect.FieldAccessor;
+import com.xiaosfx.reflect.Reflection;
+
+/**
+ * Holds the compiled layout metadata of a class annotated with XContainer.<br>
+ * The metadata is built only once per class, the first time it's requested,
+ * and then shared by all the XLayout instances laying out that class. It
+ * contains the resolved fields (including the inherited ones), already sorted,
+ * the parsed constraints as plain ints and the owner of each component, so
+ * that no scanning and no annotation parsing is needed during the layout.
+ * The fields are read through FieldAccessors, which are also built once.<br><br>
+ * 
+ * If the class has a companion generated by the XLayoutProcessor, the
+ * metadata is built from it, without using Reflection at all. Otherwise, it
+ * may be read from the plan cache, see XLayout.setPlanCache: the fields of
+ * a cached plan are only resolved the first time they're read.<br><br>
+ * 
+ * The cache is kept in a ClassValue, so it doesn't prevent the form classes
+ * from being unloaded.<br>
+ * Do not use it, if you're only building a GUI<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public final class XMetadata {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	/**
+	 * Owner index of the components that belong to the root container.
+	 */
+	static final int ROOT = XLayoutPlan.ROOT;
+	
+	/**
+	 * Owner index of the components whose owner couldn't be found.
+	 * These components are neither added nor laid out.
+	 */
+	static final int NONE = XLayoutPlan.NONE;
+	
+	/**
+	 * Bits of the constraint mask, one for each value different from XComponent.NULL.
+	 */
+	static final int HAS_LEFT = XLayoutPlan.HAS_LEFT;
+	static final int HAS_RIGHT = XLayoutPlan.HAS_RIGHT;
+	static final int HAS_TOP = XLayoutPlan.HAS_TOP;
+	static final int HAS_BOTTOM = XLayoutPlan.HAS_BOTTOM;
+	static final int HAS_HORIZONTAL_CENTER = XLayoutPlan.HAS_HORIZONTAL_CENTER;
+	static final int HAS_VERTICAL_CENTER = XLayoutPlan.HAS_VERTICAL_CENTER;
+	static final int HAS_WIDTH = XLayoutPlan.HAS_WIDTH;
+	static final int HAS_HEIGHT = XLayoutPlan.HAS_HEIGHT;
+	
+	/**
+	 * Bits of the constraint mask set when the width, or the height, of the
+	 * component comes from its preferred size.
+	 */
+	static final int PREFERRED_WIDTH = XLayoutPlan.PREFERRED_WIDTH;
+	static final int PREFERRED_HEIGHT = XLayoutPlan.PREFERRED_HEIGHT;
+	
+	private static final ClassValue<XMetadata> CACHE = new ClassValue<XMetadata>() {
+		@Override
+		protected XMetadata computeValue(Class<?> type) {
+			XCompanion companion = findCompanion( type );
+			if ( companion != null )
+				return new XMetadata( type, companion, companion, null );
+			XPlanCache.CachedPlan cachedPlan = XPlanCache.load( type );
+			if ( cachedPlan != null )
+				return new XMetadata( type, cachedPlan, null, cachedPlan );
+			return new XMetadata( type );
+		}
+	};
+	
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	final Class<?> formClass;
+	
+	// Where the field values are read from, either a companion or accessors.
+	// The accessors of a cached plan are resolved the first time they're used
+	final XCompanion companion;
+	private final FieldAccessor fieldAccessors[];
+	private final XPlanCache.CachedPlan cachedPlan;
+	
+	// Root container
+	final String rootName;
+	final int rootPaddingLeft;
+	final int rootPaddingRight;
+	final int rootPaddingTop;
+	final int rootPaddingBottom;
+	
+	// Containers
+	final int containerCount;
+	final int containerFields[];
+	final String containerNames[];
+	final int paddingLeft[];
+	final int paddingRight[];
+	final int paddingTop[];
+	final int paddingBottom[];
+	final int containerOrder[];
+	final int containerComponent[];
+	private final HashMap<String, Integer> containerNameIndex = new HashMap<String, Integer>();
+	
+	// Components, sorted in the order they should be added
+	final int componentCount;
+	final int componentFields[];
+	final String componentNames[];
+	final int left[];
+	final int right[];
+	final int top[];
+	final int bottom[];
+	final int horizontalCenter[];
+	final int verticalCenter[];
+	final int width[];
+	final int height[];
+	final int mask[];
+	final int owner[];
+	final int componentContainer[];
+	
+	// Component[] and List fields, whose elements are repeated along an axis
+	final int repeatedCount;
+	final boolean repeated[];
+	final int stride[];
+	final int axis[];
+	
+	// Components of each owner, the root first and then every container:
+	// ownerChildren[ownerStart[owner + 1]] .. ownerChildren[ownerStart[owner + 2] - 1]
+	final int ownerStart[];
+	final int ownerChildren[];
+	
+	// Owners which couldn't be found
+	private final Vector<String> warnings = new Vector<String>();
+	
+	// The same tables, for the XSolver, built the first time they're requested
+	private volatile XLayoutPlan plan = null;
+
+	/*---------------------------------------
+	 * CONSTRUCTORS
+	 */
+	/**
+	 * Builds the metadata by scanning formClass with Reflection.
+	 */
+	private XMetadata(Class<?> formClass) {
+		XContainer xroot = formClass.getAnnotation( XContainer.class );
+		if ( xroot == null )
+			throw new IllegalArgumentException("Annotation XContainer is not present in " + formClass.getName() + ".");
+		
+		// Both annotations are merged into a single field table,
+		// which is the same one a companion would provide.
+		Field fields[] = Reflection.getAnnotatedFields( formClass, XComponent.class, XContainer.class );
+		String fieldNames[] = new String[fields.length];
+		int fieldTable[] = new int[fields.length * XFieldTable.FIELD_SIZE];
+		String owners[] = new String[fields.length];
+		String names[] = new String[fields.length];
+		FieldAccessor accessors[] = new FieldAccessor[fields.length];
+		StringBuilder errors = new StringBuilder();
+		for ( int i = 0; i < fields.length; i++ ) {
+			int row = i * XFieldTable.FIELD_SIZE;
+			fieldNames[i] = fields[i].getName();
+			accessors[i] = FieldAccessor.forField( fields[i] );
+			
+			XComponent xcomponent = fields[i].getAnnotation( XComponent.class );
+			if ( xcomponent != null ) {
+				fieldTable[row + XFieldTable.FLAGS] |= XFieldTable.COMPONENT;
+				fieldTable[row + XFieldTable.LEFT] = xcomponent.left();
+				fieldTable[row + XFieldTable.RIGHT] = xcomponent.right();
+				fieldTable[row + XFieldTable.TOP] = xcomponent.top();
+				fieldTable[row + XFieldTable.BOTTOM] = xcomponent.bottom();
+				fieldTable[row + XFieldTable.HORIZONTAL_CENTER] = xcomponent.horizontalCenter();
+				fieldTable[row + XFieldTable.VERTICAL_CENTER] = xcomponent.verticalCenter();
+				fieldTable[row + XFieldTable.WIDTH] = xcomponent.width();
+				fieldTable[row + XFieldTable.HEIGHT] = xcomponent.height();
+				fieldTable[row + XFieldTable.STRIDE] = xcomponent.stride();
+				fieldTable[row + XFieldTable.AXIS] = xcomponent.axis();
+				owners[i] = xcomponent.owner();
+				Class<?> type = fields[i].getType();
+				if ( type.isArray() || List.class.isAssignableFrom(type) ) {
+					if ( isComponentElements(fields[i]) )
+						fieldTable[row + XFieldTable.FLAGS] |= XFieldTable.REPEATED;
+					else
+						errors.append( "\n\tField " ).append( fieldNames[i] )
+							.append( " is an array, or a List, whose elements aren't components." );
+				}
+			}
+			
+			XContainer xcontainer = fields[i].getAnnotation( XContainer.class );
+			if ( xcontainer != null ) {
+				fieldTable[row + XFieldTable.FLAGS] |= XFieldTable.CONTAINER;
+				fieldTable[row + XFieldTable.PADDING_LEFT] = xcontainer.paddingLeft();
+				fieldTable[row + XFieldTable.PADDING_RIGHT] = xcontainer.paddingRight();
+				fieldTable[row + XFieldTable.PADDING_TOP] = xcontainer.paddingTop();
+				fieldTable[row + XFieldTable.PADDING_BOTTOM] = xcontainer.paddingBottom();
+				names[i] = xcontainer.name();
+			}
+		}
+		
+		IntBuffer table = IntBuffer.wrap( fieldTable );
+		this.formClass = formClass;
+		this.companion = null;
+		this.fieldAccessors = accessors;
+		this.cachedPlan = null;
+		this.rootName = xroot.name();
+		this.rootPaddingLeft = xroot.paddingLeft();
+		this.rootPaddingRight = xroot.paddingRight();
+		this.rootPaddingTop = xroot.paddingTop();
+		this.rootPaddingBottom = xroot.paddingBottom();
+		
+		this.containerCount = count( table, XFieldTable.CONTAINER );
+		this.containerFields = new int[this.containerCount];
+		this.containerNames = new String[this.containerCount];
+		this.paddingLeft = new int[this.containerCount];
+		this.paddingRight = new int[this.containerCount];
+		this.paddingTop = new int[this.containerCount];
+		this.paddingBottom = new int[this.containerCount];
+		this.containerOrder = new int[this.containerCount];
+		this.containerComponent = new int[this.containerCount];
+		
+		this.componentCount = count( table, XFieldTable.COMPONENT );
+		this.componentFields = new int[this.componentCount];
+		this.componentNames = new String[this.componentCount];
+		this.left = new int[this.componentCount];
+		this.right = new int[this.componentCount];
+		this.top = new int[this.componentCount];
+		this.bottom = new int[this.componentCount];
+		this.horizontalCenter = new int[this.componentCount];
+		this.verticalCenter = new int[this.componentCount];
+		this.width = new int[this.componentCount];
+		this.height = new int[this.componentCount];
+		this.mask = new int[this.componentCount];
+		this.owner = new int[this.componentCount];
+		this.componentContainer = new int[this.componentCount];
+		this.repeatedCount = count( table, XFieldTable.REPEATED );
+		this.repeated = new boolean[this.componentCount];
+		this.stride = new int[this.componentCount];
+		this.axis = new int[this.componentCount];
+		this.ownerStart = new int[this.containerCount + 2];
+		this.ownerChildren = new int[this.componentCount];
+		
+		this.compile( fieldNames, table, owners, names, errors );
+		XPlanCache.store( formClass, this.rootName, new int[] { this.rootPaddingLeft, this.rootPaddingRight,
+					this.rootPaddingTop, this.rootPaddingBottom }, fields, fieldTable, owners, names );
+	}
+	
+	/**
+	 * Builds the metadata from the values already parsed by a companion,
+	 * or read from the plan cache.
+	 * @param table The parsed values: the companion, or the cached plan
+	 * @param companion The generated companion, or null
+	 * @param cachedPlan The plan read from the cache, or null
+	 */
+	private XMetadata(Class<?> formClass, XFieldTable table, XCompanion companion, XPlanCache.CachedPlan cachedPlan) {
+		int rootPadding[] = table.getRootPadding();
+		IntBuffer fieldTable = table.getFieldTable();
+		
+		this.formClass = formClass;
+		this.companion = companion;
+		this.fieldAccessors = (companion == null) ? new FieldAccessor[table.getFieldNames().length] : null;
+		this.cachedPlan = cachedPlan;
+		this.rootName = table.getRootName();
+		this.rootPaddingLeft = rootPadding[0];
+		this.rootPaddingRight = rootPadding[1];
+		this.rootPaddingTop = rootPadding[2];
+		this.rootPaddingBottom = rootPadding[3];
+		
+		this.containerCount = count( fieldTable, XFieldTable.CONTAINER );
+		this.containerFields = new int[this.containerCount];
+		this.containerNames = new String[this.containerCount];
+		this.paddingLeft = new int[this.containerCount];
+		this.paddingRight = new int[this.containerCount];
+		this.paddingTop = new int[this.containerCount];
+		this.paddingBottom = new int[this.containerCount];
+		this.containerOrder = new int[this.containerCount];
+		this.containerComponent = new int[this.containerCount];
+		
+		this.componentCount = count( fieldTable, XFieldTable.COMPONENT );
+		this.componentFields = new int[this.componentCount];
+		this.componentNames = new String[this.componentCount];
+		this.left = new int[this.componentCount];
+		this.right = new int[this.componentCount];
+		this.top = new int[this.componentCount];
+		this.bottom = new int[this.componentCount];
+		this.horizontalCenter = new int[this.componentCount];
+		this.verticalCenter = new int[this.componentCount];
+		this.width = new int[this.componentCount];
+		this.height = new int[this.componentCount];
+		this.mask = new int[this.componentCount];
+		this.owner = new int[this.componentCount];
+		this.componentContainer = new int[this.componentCount];
+		this.repeatedCount = count( fieldTable, XFieldTable.REPEATED );
+		this.repeated = new boolean[this.componentCount];
+		this.stride = new int[this.componentCount];
+		this.axis = new int[this.componentCount];
+		this.ownerStart = new int[this.containerCount + 2];
+		this.ownerChildren = new int[this.componentCount];
+		
+		this.compile( table.getFieldNames(), fieldTable,
+					table.getOwners(), table.getContainerNames(), new StringBuilder() );
+	}
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * Returns the metadata of Class c, building it the first time.
+	 * @throws IllegalArgumentException If Class c doesn't contain the XContainer Annotation
+	 */
+	public static XMetadata forClass(Class<?> c) {
+		return CACHE.get( c );
+	}
+	
+	/**
+	 * @return The class this metadata was built from.
+	 */
+	public Class<?> getFormClass() {
+		return this.formClass;
+	}
+	
+	/**
+	 * @return True if this metadata was built from a generated companion.
+	 */
+	public boolean isCompiled() {
+		return this.companion != null;
+	}
+	
+	/**
+	 * @return True if this metadata was read from the plan cache.
+	 */
+	public boolean isCached() {
+		return this.cachedPlan != null;
+	}
+	
+	/**
+	 * @return The number of fields annotated with XComponent.
+	 */
+	public int getComponentCount() {
+		return this.componentCount;
+	}
+	
+	/**
+	 * @return The number of fields annotated with XContainer.
+	 */
+	public int getContainerCount() {
+		return this.containerCount;
+	}
+	
+	/**
+	 * @return The constraints of the components, for the XSolver. The plan
+	 * shares the tables of this metadata, so it's built only once.
+	 */
+	public XLayoutPlan getPlan() {
+		XLayoutPlan plan = this.plan;
+		if ( plan == null ) {
+			int padding[] = new int[(this.containerCount + 1) * 4];
+			padding[0] = this.rootPaddingLeft;
+			padding[1] = this.rootPaddingRight;
+			padding[2] = this.rootPaddingTop;
+			padding[3] = this.rootPaddingBottom;
+			for ( int i = 0; i < this.containerCount; i++ ) {
+				padding[(i + 1) * 4] = this.paddingLeft[i];
+				padding[(i + 1) * 4 + 1] = this.paddingRight[i];
+				padding[(i + 1) * 4 + 2] = this.paddingTop[i];
+				padding[(i + 1) * 4 + 3] = this.paddingBottom[i];
+			}
+			plan = new XLayoutPlan( new int[][] { this.left, this.right, this.top, this.bottom,
+						this.horizontalCenter, this.verticalCenter, this.width, this.height },
+						this.mask, this.owner, this.componentContainer, this.containerOrder,
+						this.containerComponent, padding, this.ownerStart, this.ownerChildren );
+			this.plan = plan;
+		}
+		return plan;
+	}
+	
+	/**
+	 * @return The problems found while building the metadata which
+	 * don't prevent the layout, such as owners that don't exist.
+	 */
+	public String[] getWarnings() {
+		return this.warnings.toArray( new String[this.warnings.size()] );
+	}
+	
+	/**
+	 * Returns the instance of the component at index in form.
+	 */
+	Component getComponent(Object form, int index) {
+		if ( this.repeated[index] )
+			return null;
+		if ( this.companion != null )
+			return (Component) this.companion.getFieldValue( form, this.componentFields[index] );
+		return (Component) this.getAccessor( this.componentFields[index] ).get( form );
+	}
+	
+	/**
+	 * Returns the Component[] or List of the repeated component at index in form.
+	 */
+	Object getElements(Object form, int index) {
+		if ( this.companion != null )
+			return this.companion.getFieldValue( form, this.componentFields[index] );
+		return this.getAccessor( this.componentFields[index] ).get( form );
+	}
+	
+	/**
+	 * @return The number of elements of a Component[] or List, 0 if it's null.
+	 */
+	static int getElementCount(Object elements) {
+		if ( elements == null )
+			return 0;
+		if ( elements instanceof Component[] )
+			return ((Component[]) elements).length;
+		return ((List<?>) elements).size();
+	}
+	
+	/**
+	 * @return The element at index of a Component[] or List.
+	 */
+	static Component getElement(Object elements, int index) {
+		if ( elements instanceof Component[] )
+			return ((Component[]) elements)[index];
+		return (Component) ((List<?>) elements).get( index );
+	}
+	
+	/**
+	 * Sets the instance of the component at index in form.
+	 */
+	void setComponent(Object form, int index, Component component) {
+		if ( this.companion != null )
+			this.companion.setFieldValue( form, this.componentFields[index], component );
+		else
+			this.getAccessor( this.componentFields[index] ).set( form, component );
+	}
+	
+	/**
+	 * Returns the instance of the container at index in form.
+	 */
+	Container getContainer(Object form, int index) {
+		if ( this.companion != null )
+			return (Container) this.companion.getFieldValue( form, this.containerFields[index] );
+		return (Container) this.getAccessor( this.containerFields[index] ).get( form );
+	}
+	
+	/**
+	 * Returns the accessor of an annotated field, resolving it the first
+	 * time if it comes from a cached plan. Two threads may both resolve it,
+	 * they get equivalent accessors.
+	 */
+	private FieldAccessor getAccessor(int field) {
+		FieldAccessor accessor = this.fieldAccessors[field];
+		if ( accessor == null ) {
+			accessor = FieldAccessor.forField( this.cachedPlan.getField(this.formClass, field) );
+			this.fieldAccessors[field] = accessor;
+		}
+		return accessor;
+	}
+	
+	/**
+	 * Splits the field table into containers and components, resolves
+	 * the owners through a name index and sorts the containers so that
+	 * each one comes after its owner. Runs in linear time.
+	 * @param errors The errors already found while scanning the fields
+	 * @throws IllegalArgumentException If an owner name is ambiguous, because
+	 * two containers share it, if there are cycles between containers, or if
+	 * errors isn't empty
+	 */
+	private void compile(String fieldNames[], IntBuffer fieldTable, String owners[], String names[],
+						StringBuilder errors) {
+		int fieldCount = fieldNames.length;
+		HashSet<String> duplicatedNames = new HashSet<String>();
+		
+		int containerIndex = 0;
+		for ( int i = 0; i < fieldCount; i++ ) {
+			int row = i * XFieldTable.FIELD_SIZE;
+			if ( (fieldTable.get( row + XFieldTable.FLAGS ) & XFieldTable.CONTAINER) != 0 ) {
+				this.containerFields[containerIndex] = i;
+				this.containerNames[containerIndex] = names[i];
+				this.paddingLeft[containerIndex] = fieldTable.get( row + XFieldTable.PADDING_LEFT );
+				this.paddingRight[containerIndex] = fieldTable.get( row + XFieldTable.PADDING_RIGHT );
+				this.paddingTop[containerIndex] = fieldTable.get( row + XFieldTable.PADDING_TOP );
+				this.paddingBottom[containerIndex] = fieldTable.get( row + XFieldTable.PADDING_BOTTOM );
+				if ( names[i].equals(this.rootName) ) {
+					// The root comes first, like it always did: the components
+					// owned by this name belong to the root container
+					this.warnings.add( "Container " + fieldNames[i] + " of " + this.formClass.getName() +
+							" has the name of the root container, \"" + names[i] + "\", it can't own components." );
+				}
+				else if ( this.containerNameIndex.containsKey(names[i]) )
+					duplicatedNames.add( names[i] );
+				else
+					this.containerNameIndex.put( names[i], containerIndex );
+				containerIndex++;
+			}
+		}
+		
+		// Resolve the owner of every field through the index
+		int fieldOwner[] = new int[fieldCount];
+		for ( int i = 0; i < fieldCount; i++ ) {
+			if ( owners[i] == null ) {
+				fieldOwner[i] = NONE;
+				continue;
+			}
+			fieldOwner[i] = this.resolveOwner( owners[i] );
+			if ( fieldOwner[i] == NONE ) {
+				this.warnings.add( "Field " + fieldNames[i] + " of " + this.formClass.getName() +
+						" won't be displayed, there's no container named \"" + owners[i] + "\"." );
+			}
+			else if ( duplicatedNames.contains(owners[i]) ) {
+				errors.append( "\n\tOwner \"" ).append( owners[i] ).append( "\" of field " )
+					.append( fieldNames[i] ).append( " is the name of more than one container." );
+			}
+		}
+		
+		for ( int i = 0; i < fieldCount; i++ ) {
+			int flags = fieldTable.get( i * XFieldTable.FIELD_SIZE + XFieldTable.FLAGS );
+			if ( ((flags & XFieldTable.REPEATED) != 0) && ((flags & XFieldTable.CONTAINER) != 0) )
+				errors.append( "\n\tField " ).append( fieldNames[i] )
+					.append( " is a Component[] or a List, it can't be a container." );
+		}
+		
+		// Sort the containers, the top-level-containers should come before other's containers.
+		int parent[] = new int[this.containerCount];
+		for ( int i = 0; i < this.containerCount; i++ )
+			parent[i] = Math.max( fieldOwner[this.containerFields[i]], -1 );
+		int order[] = XUtilities.topologicalOrder( parent );
+		if ( order.length < this.containerCount ) {
+			boolean sorted[] = new boolean[this.containerCount];
+			for ( int i = 0; i < order.length; i++ )
+				sorted[order[i]] = true;
+			errors.append( "\n\tThere's a cycle between the containers:" );
+			for ( int i = 0; i < this.containerCount; i++ )
+				if ( !sorted[i] )
+					errors.append( ' ' ).append( fieldNames[this.containerFields[i]] );
+		}
+		if ( errors.length() > 0 )
+			throw new IllegalArgumentException( "Invalid XLayout in " + this.formClass.getName() + ":" + errors );
+		System.arraycopy( order, 0, this.containerOrder, 0, order.length );
+		
+		// Sort the components, the containers should be added before components,
+		// in the same order as above.
+		int componentIndex = 0;
+		for ( int i = 0; i < this.containerCount; i++ ) {
+			int field = this.containerFields[order[i]];
+			if ( (fieldTable.get( field * XFieldTable.FIELD_SIZE + XFieldTable.FLAGS ) & XFieldTable.COMPONENT) != 0 ) {
+				this.containerComponent[order[i]] = componentIndex;
+				this.componentContainer[componentIndex] = order[i];
+				this.componentFields[componentIndex++] = field;
+			}
+			else
+				this.containerComponent[order[i]] = NONE;
+		}
+		for ( int i = 0; i < fieldCount; i++ )
+			if ( (fieldTable.get( i * XFieldTable.FIELD_SIZE + XFieldTable.FLAGS ) & (XFieldTable.COMPONENT | XFieldTable.CONTAINER)) ==
+					XFieldTable.COMPONENT ) {
+				this.componentContainer[componentIndex] = NONE;
+				this.componentFields[componentIndex++] = i;
+			}
+		
+		int constraints[][] = { this.left, this.right, this.top, this.bottom,
+					this.horizontalCenter, this.verticalCenter, this.width, this.height };
+		for ( int i = 0; i < this.componentCount; i++ ) {
+			int field = this.componentFields[i];
+			int row = field * XFieldTable.FIELD_SIZE;
+			this.componentNames[i] = fieldNames[field];
+			this.left[i] = fieldTable.get( row + XFieldTable.LEFT );
+			this.right[i] = fieldTable.get( row + XFieldTable.RIGHT );
+			this.top[i] = fieldTable.get( row + XFieldTable.TOP );
+			this.bottom[i] = fieldTable.get( row + XFieldTable.BOTTOM );
+			this.horizontalCenter[i] = fieldTable.get( row + XFieldTable.HORIZONTAL_CENTER );
+			this.verticalCenter[i] = fieldTable.get( row + XFieldTable.VERTICAL_CENTER );
+			this.width[i] = fieldTable.get( row + XFieldTable.WIDTH );
+			this.height[i] = fieldTable.get( row + XFieldTable.HEIGHT );
+			this.owner[i] = fieldOwner[field];
+			this.mask[i] = XLayoutPlan.computeMask( constraints, i );
+			this.repeated[i] = (fieldTable.get( row + XFieldTable.FLAGS ) & XFieldTable.REPEATED) != 0;
+			this.stride[i] = fieldTable.get( row + XFieldTable.STRIDE );
+			this.axis[i] = fieldTable.get( row + XFieldTable.AXIS );
+		}
+		
+		// Group the components by owner, keeping their order
+		for ( int i = 0; i < this.componentCount; i++ )
+			if ( this.owner[i] != NONE )
+				this.ownerStart[this.owner[i] + 2]++;
+		for ( int i = 1; i < this.ownerStart.length; i++ )
+			this.ownerStart[i] += this.ownerStart[i - 1];
+		int next[] = new int[this.containerCount + 1];
+		for ( int i = 0; i < this.componentCount; i++ ) {
+			int slot = this.owner[i] + 1;
+			if ( this.owner[i] != NONE )
+				this.ownerChildren[this.ownerStart[slot] + next[slot]++] = i;
+		}
+	}
+	
+	/**
+	 * Returns the owner index of a component: ROOT if it belongs to the root
+	 * container, the index of its container, or NONE if it couldn't be found.
+	 */
+	private int resolveOwner(String ownerName) {
+		if ( ownerName.equals(this.rootName) )
+			return ROOT;
+		Integer index = this.containerNameIndex.get( ownerName );
+		if ( index != null )
+			return index;
+		if ( ownerName.equals("") )
+			return ROOT;
+		return NONE;
+	}
+	
+	/**
+	 * Checks if the elements of an array, or List, field are components.
+	 * The elements of a raw List, or of a List subclass which doesn't take
+	 * them as its only type argument, can't be checked here: they're cast
+	 * when the field is read.
+	 */
+	private static boolean isComponentElements(Field field) {
+		Class<?> type = field.getType();
+		if ( type.isArray() )
+			return Component.class.isAssignableFrom( type.getComponentType() );
+		
+		Type elementType = null;
+		if ( field.getGenericType() instanceof ParameterizedType ) {
+			Type arguments[] = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
+			if ( arguments.length == 1 )
+				elementType = arguments[0];
+		}
+		if ( elementType instanceof WildcardType )
+			elementType = ((WildcardType) elementType).getUpperBounds()[0];
+		else if ( elementType instanceof TypeVariable )
+			elementType = ((TypeVariable<?>) elementType).getBounds()[0];
+		if ( elementType instanceof ParameterizedType )
+			elementType = ((ParameterizedType) elementType).getRawType();
+		return !(elementType instanceof Class) || Component.class.isAssignableFrom( (Class<?>) elementType );
+	}
+	
+	private static int count(IntBuffer fieldTable, int flag) {
+		int count = 0;
+		for ( int row = 0; row < fieldTable.limit(); row += XFieldTable.FIELD_SIZE )
+			if ( (fieldTable.get( row + XFieldTable.FLAGS ) & flag) != 0 )
+				count++;
+		return count;
+	}
+	
+	/**
+	 * Returns the generated companion of formClass, or null if there's none.
+	 * @throws IllegalStateException If the companion exists but can't be created
+	 */
+	private static XCompanion findCompanion(Class<?> formClass) {
+		try {
+			Class<?> companionClass = Class.forName( formClass.getName() + XCompanion.SUFFIX,
+											true, formClass.getClassLoader() );
+			if ( XCompanion.class.isAssignableFrom(companionClass) )
+				return (XCompanion) companionClass.getConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			// No companion, Reflection will be used
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException( "Unable to create the XCompanion of " + formClass.getName(), e );
+		}
+		return null;
+	}
+
+}
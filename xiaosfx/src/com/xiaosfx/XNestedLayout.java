@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.LayoutManager;
+
+/**
+ * The layout given by an XLayout to each nested owner container of its
+ * form, which has no layout of its own. It shares the metadata of the
+ * XLayout, and lays out only the direct children of its container, when
+ * the container is validated: revalidating a component only lays out the
+ * containers it's in, not the whole form.<br>
+ * Before the form is displayable, the XLayout of the root container lays
+ * out all the nested containers itself.<br>
+ * Do not use it, if you're only building a GUI<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+final class XNestedLayout implements LayoutManager {
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private final XLayout layout;
+	private final int owner;
+
+	/*---------------------------------------
+	 * CONSTRUCTORS
+	 */
+	XNestedLayout(XLayout layout, int owner) {
+		this.layout = layout;
+		this.owner = owner;
+	}
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	@Override
+	public void addLayoutComponent(String name, Component comp) {
+	}
+
+	@Override
+	public void removeLayoutComponent(Component comp) {
+	}
+
+	@Override
+	public Dimension preferredLayoutSize(Container parent) {
+		return this.layout.getDelegatedLayoutSize( this.owner, parent, false );
+	}
+
+	@Override
+	public Dimension minimumLayoutSize(Container parent) {
+		return this.layout.getDelegatedLayoutSize( this.owner, parent, true );
+	}
+
+	@Override
+	public void layoutContainer(Container parent) {
+		this.layout.layoutDelegated( this.owner, parent );
+	}
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.jar.JarEntry;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the scanned field tables of the form classes in a directory, one
+ * binary file per class, so that the next JVMs don't have to scan them
+ * with Reflection again, see XLayout.setPlanCache.<br>
+ * Each file holds the same values a generated companion does, see XFieldTable:
+ * the field order, the int encoded constraints and paddings, and the owner
+ * and container names. It starts with a stamp of the class files of the form
+ * and its superclasses, made of their sizes and modification times, or of the
+ * CRCs stored in their jars, so that no class file is read: when any of them
+ * changes, the file is stale, and it's written again after the next scan.<br>
+ * The header of a file is read first, and only a current file is memory
+ * mapped: the field table is read in place from the mapping, without being
+ * copied, and the fields are only resolved the first time they're read.
+ * The unreadable files are misses, logged at FINE level.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+final class XPlanCache {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	final static int MAGIC = 0x58504C4E;
+	final static int FORMAT = 3;
+	final static String EXTENSION = ".xplan";
+	
+	/**
+	 * Size of the header: magic, format, stamp, field count and
+	 * root paddings. The field table comes right after it.
+	 */
+	final static int HEADER_SIZE = 36;
+	
+	private final static Logger LOGGER = Logger.getLogger( XPlanCache.class.getName() );
+
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private static volatile File directory = null;
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	static void setDirectory(File directory) {
+		XPlanCache.directory = directory;
+	}
+	
+	static File getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * Reads the cached field table of formClass.
+	 * @return The table, or null if the cache is disabled, or the
+	 * file is missing, stale or unreadable.
+	 */
+	static CachedPlan load(Class<?> formClass) {
+		File directory = XPlanCache.directory;
+		if ( directory == null )
+			return null;
+		long stamp = stamp( formClass );
+		if ( stamp == 0 )
+			return null;
+		
+		Path path = new File( directory, formClass.getName() + EXTENSION ).toPath();
+		try ( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+			// The header is read first: a stale file is never mapped, so
+			// that it can be replaced, even on the systems which don't
+			// replace mapped files
+			ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+			while ( header.hasRemaining() && (channel.read(header) > 0) )
+				;
+			if ( header.hasRemaining() || (header.getInt(0) != MAGIC) ||
+					(header.getInt(4) != FORMAT) || (header.getLong(8) != stamp) )
+				return null;
+			int fieldCount = header.getInt( 16 );
+			long tableSize = (long) fieldCount * XFieldTable.FIELD_SIZE * 4;
+			if ( (fieldCount < 0) || (HEADER_SIZE + tableSize > channel.size()) )
+				return null;
+			
+			MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+			return new CachedPlan( formClass, buffer, fieldCount );
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (Exception e) {
+			// A truncated or corrupted file is rebuilt like a stale one
+			LOGGER.log( Level.FINE, "Unreadable plan file " + path, e );
+			return null;
+		}
+	}
+	
+	/**
+	 * Writes the field table scanned from formClass, if the cache is enabled.
+	 * The file is replaced atomically, so that other JVMs never map a partial one.
+	 */
+	static void store(Class<?> formClass, String rootName, int rootPadding[], Field fields[],
+					int fieldTable[], String owners[], String containerNames[]) {
+		File directory = XPlanCache.directory;
+		if ( directory == null )
+			return;
+		long stamp = stamp( formClass );
+		if ( stamp == 0 )
+			return;
+		
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream( HEADER_SIZE + fieldTable.length * 4 + fields.length * 32 );
+			DataOutputStream out = new DataOutputStream( bytes );
+			out.writeInt( MAGIC );
+			out.writeInt( FORMAT );
+			out.writeLong( stamp );
+			out.writeInt( fields.length );
+			for ( int i = 0; i < 4; i++ )
+				out.writeInt( rootPadding[i] );
+			for ( int i = 0; i < fieldTable.length; i++ )
+				out.writeInt( fieldTable[i] );
+			writeString( out, rootName );
+			for ( int i = 0; i < fields.length; i++ ) {
+				writeString( out, fields[i].getName() );
+				out.writeInt( depth(formClass, fields[i].getDeclaringClass()) );
+				writeString( out, owners[i] );
+				writeString( out, containerNames[i] );
+			}
+			out.flush();
+			
+			Files.createDirectories( directory.toPath() );
+			Path path = new File( directory, formClass.getName() + EXTENSION ).toPath();
+			Path temporary = Files.createTempFile( directory.toPath(), formClass.getName(), ".tmp" );
+			try {
+				Files.write( temporary, bytes.toByteArray() );
+				try {
+					Files.move( temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move( temporary, path, StandardCopyOption.REPLACE_EXISTING );
+				}
+			} finally {
+				Files.deleteIfExists( temporary );
+			}
+		} catch (IOException e) {
+			LOGGER.log( Level.WARNING, "Can't write the plan file of " + formClass.getName(), e );
+		}
+	}
+	
+	/**
+	 * Stamps the class files of formClass and of its superclasses, up to
+	 * the first one loaded by the bootstrap class loader, like Reflection
+	 * scans them: the size and modification time of a class file, or the
+	 * size and CRC of a jar entry, without reading them.
+	 * @return The stamp, or 0 if a class file can't be found.
+	 */
+	static long stamp(Class<?> formClass) {
+		long stamp = 0;
+		for ( Class<?> c = formClass; (c != null) && (c.getClassLoader() != null); c = c.getSuperclass() ) {
+			URL url = c.getClassLoader().getResource( c.getName().replace('.', '/') + ".class" );
+			if ( url == null )
+				return 0;
+			long size;
+			long version;
+			try {
+				if ( url.getProtocol().equals("file") ) {
+					File file = new File( url.toURI() );
+					size = file.length();
+					version = file.lastModified();
+				}
+				else {
+					URLConnection connection = url.openConnection();
+					if ( !(connection instanceof JarURLConnection) )
+						return 0;
+					JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+					size = entry.getSize();
+					version = entry.getCrc();
+				}
+			} catch (IOException e) {
+				return 0;
+			} catch (URISyntaxException e) {
+				return 0;
+			}
+			if ( size <= 0 )
+				return 0;
+			stamp = (stamp * 31 + size) * 31 + version;
+		}
+		return (stamp == 0) ? 1 : stamp;
+	}
+	
+	/**
+	 * @return How many superclasses are between formClass and declaringClass.
+	 */
+	private static int depth(Class<?> formClass, Class<?> declaringClass) {
+		int depth = 0;
+		for ( Class<?> c = formClass; c != declaringClass; c = c.getSuperclass() )
+			depth++;
+		return depth;
+	}
+	
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if ( value == null ) {
+			out.writeInt( -1 );
+			return;
+		}
+		byte bytes[] = value.getBytes( StandardCharsets.UTF_8 );
+		out.writeInt( bytes.length );
+		out.write( bytes );
+	}
+	
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if ( length < 0 )
+			return null;
+		if ( length > buffer.remaining() )
+			throw new IllegalStateException( "Corrupted plan file" );
+		byte bytes[] = new byte[length];
+		buffer.get( bytes );
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+	
+	/*---------------------------------------
+	 * CACHED PLAN
+	 */
+	/**
+	 * The values read from a file, served like a companion would. The field
+	 * table is a view of the mapping, and the fields are found by their
+	 * names, through their declaring classes, only when they're requested.
+	 */
+	static final class CachedPlan implements XFieldTable {
+		private final String rootName;
+		private final int rootPadding[] = new int[4];
+		private final String fieldNames[];
+		private final IntBuffer fieldTable;
+		private final String owners[];
+		private final String containerNames[];
+		private final int depths[];
+		
+		// The declared fields of each class, indexed by name the first time one is requested
+		private HashMap<Class<?>, HashMap<String, Field>> declaredFields = null;
+		
+		CachedPlan(Class<?> formClass, ByteBuffer buffer, int fieldCount) {
+			for ( int i = 0; i < 4; i++ )
+				this.rootPadding[i] = buffer.getInt( 20 + i * 4 );
+			
+			// The table stays in the mapping
+			int tableSize = fieldCount * XFieldTable.FIELD_SIZE;
+			buffer.position( HEADER_SIZE );
+			this.fieldTable = buffer.slice().asIntBuffer();
+			this.fieldTable.limit( tableSize );
+			buffer.position( HEADER_SIZE + tableSize * 4 );
+			
+			this.rootName = readString( buffer );
+			this.fieldNames = new String[fieldCount];
+			this.owners = new String[fieldCount];
+			this.containerNames = new String[fieldCount];
+			this.depths = new int[fieldCount];
+			int classDepth = 0;
+			for ( Class<?> c = formClass.getSuperclass(); c != null; c = c.getSuperclass() )
+				classDepth++;
+			for ( int i = 0; i < fieldCount; i++ ) {
+				this.fieldNames[i] = readString( buffer );
+				this.depths[i] = buffer.getInt();
+				this.owners[i] = readString( buffer );
+				this.containerNames[i] = readString( buffer );
+				if ( (this.depths[i] < 0) || (this.depths[i] > classDepth) || (this.fieldNames[i] == null) )
+					throw new IllegalStateException( "Corrupted plan file" );
+			}
+		}
+
+		@Override
+		public String getRootName() {
+			return this.rootName;
+		}
+
+		@Override
+		public int[] getRootPadding() {
+			return this.rootPadding;
+		}
+
+		@Override
+		public String[] getFieldNames() {
+			return this.fieldNames;
+		}
+
+		@Override
+		public IntBuffer getFieldTable() {
+			return this.fieldTable;
+		}
+
+		@Override
+		public String[] getOwners() {
+			return this.owners;
+		}
+
+		@Override
+		public String[] getContainerNames() {
+			return this.containerNames;
+		}
+		
+		/**
+		 * Returns the annotated field at index, in formClass or one of its superclasses.
+		 * @throws IllegalStateException If the field doesn't exist anymore
+		 */
+		synchronized Field getField(Class<?> formClass, int field) {
+			Class<?> declaringClass = formClass;
+			for ( int i = 0; i < this.depths[field]; i++ )
+				declaringClass = declaringClass.getSuperclass();
+			
+			if ( this.declaredFields == null )
+				this.declaredFields = new HashMap<Class<?>, HashMap<String, Field>>();
+			HashMap<String, Field> fields = this.declaredFields.get( declaringClass );
+			if ( fields == null ) {
+				Field declared[] = declaringClass.getDeclaredFields();
+				fields = new HashMap<String, Field>( declared.length * 2 );
+				for ( int i = 0; i < declared.length; i++ )
+					fields.put( declared[i].getName(), declared[i] );
+				this.declaredFields.put( declaringClass, fields );
+			}
+			Field result = fields.get( this.fieldNames[field] );
+			if ( result == null )
+				throw new IllegalStateException( "Field " + this.fieldNames[field] + " of the plan file of " +
+							formClass.getName() + " not found in " + declaringClass.getName() );
+			return result;
+		}
+	}
+
+}
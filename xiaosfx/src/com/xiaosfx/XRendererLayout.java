@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.LayoutManager;
+
+import javax.swing.JComponent;
+
+import com.xiaosfx.core.XLayoutPlan;
+import com.xiaosfx.core.XSolver;
+
+/**
+ * A layout for XContainer panels used as cell renderers, by a JTable, a
+ * JList or a JTree, which lay out the same panel again for every cell
+ * they paint.<br>
+ * Unlike the XLayout, it holds no state: one instance, SHARED for instance,
+ * can lay out any number of panels, of any number of classes. The state
+ * of each panel, its components read once from its fields and the buffers
+ * of the solver, is kept in one of its client properties, and the constraints
+ * come from the plan of its class, which is built once per class.<br>
+ * So laying out a cell makes neither allocations nor reflective reads: it
+ * requests the preferred sizes the constraints need, solves the bounds
+ * with plain int math, and calls setBounds only on the components which moved.<br><br>
+ * 
+ * <b>Note: </b> The fields are read only once per panel, so its components
+ * must not be replaced afterwards. The nested containers must have no layout,
+ * they're laid out along with the panel. There's no virtualization, no lazy
+ * creation, no constraint overrides and no Component[] or List fields,
+ * see XLayout for those.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public final class XRendererLayout implements LayoutManager {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	/**
+	 * An instance which can be shared by all the renderers.
+	 */
+	public final static XRendererLayout SHARED = new XRendererLayout( false );
+	
+	/**
+	 * The client property holding the state of each panel.
+	 */
+	private final static Object STATE_KEY = new Object();
+	
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private final boolean keepMinimumSize;
+
+	/*---------------------------------------
+	 * CONSTRUCTORS
+	 */
+	public XRendererLayout() {
+		this( false );
+	}
+	
+	/**
+	 * @param keepMinimumSize If True, the components aren't resized
+	 * under their minimum size, like with the XLayout.
+	 */
+	public XRendererLayout(boolean keepMinimumSize) {
+		this.keepMinimumSize = keepMinimumSize;
+	}
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * Method required by the LayoutManager.<br>
+	 * currently, does nothing.
+	 */
+	@Override
+	public void addLayoutComponent(String name, Component comp) {
+	}
+
+	/**
+	 * Method required by the LayoutManager.<br>
+	 * currently, does nothing.
+	 */
+	@Override
+	public void removeLayoutComponent(Component comp) {
+	}
+
+	@Override
+	public Dimension preferredLayoutSize(Container parent) {
+		State state = this.getState( parent );
+		int layoutSize[] = this.computeLayoutSizes( state, false );
+		return new Dimension( layoutSize[0], layoutSize[1] );
+	}
+
+	@Override
+	public Dimension minimumLayoutSize(Container parent) {
+		State state = this.getState( parent );
+		int layoutSize[] = this.computeLayoutSizes( state, true );
+		return new Dimension( layoutSize[0], layoutSize[1] );
+	}
+
+	/**
+	 * Lays out the panel and its nested containers. The components whose
+	 * size doesn't depend on their preferred or minimum size are only solved
+	 * again when the size of their owner changed.
+	 */
+	@Override
+	public void layoutContainer(Container parent) {
+		State state = this.getState( parent );
+		XMetadata metadata = state.metadata;
+		// The layout sizes of the nested containers, only if the solver needs them
+		if ( state.hasPreferredContainers )
+			this.computeLayoutSizes( state, false );
+		if ( this.keepMinimumSize && state.hasContainers )
+			this.computeLayoutSizes( state, true );
+		
+		int sizeDependent = this.keepMinimumSize ? ~0 : XLayoutPlan.PREFERRED_WIDTH | XLayoutPlan.PREFERRED_HEIGHT;
+		int bounds[] = state.bounds;
+		for ( int i = 0; i <= metadata.containerCount; i++ ) {
+			int owner = i > 0 ? metadata.containerOrder[i - 1] : XLayoutPlan.ROOT;
+			int slot = owner + 1;
+			Container objContainer = state.containers[slot];
+			if ( objContainer == null ) continue;
+			
+			Insets insets = objContainer instanceof JComponent ?
+						((JComponent) objContainer).getInsets( state.insets ) : objContainer.getInsets();
+			int contentWidth = objContainer.getWidth() - insets.left - insets.right - state.padding[slot * 2];
+			int contentHeight = objContainer.getHeight() - insets.top - insets.bottom - state.padding[slot * 2 + 1];
+			boolean resized = (contentWidth != state.contentSize[slot * 2]) ||
+							(contentHeight != state.contentSize[slot * 2 + 1]) || !state.laidOut;
+			state.contentSize[slot * 2] = contentWidth;
+			state.contentSize[slot * 2 + 1] = contentHeight;
+			
+			for ( int j = metadata.ownerStart[slot]; j < metadata.ownerStart[slot + 1]; j++ ) {
+				int index = metadata.ownerChildren[j];
+				Component objComponent = state.components[index];
+				if ( (objComponent == null) || (!resized && ((metadata.mask[index] & sizeDependent) == 0)) )
+					continue;
+				
+				int preferredWidth = 0;
+				int preferredHeight = 0;
+				if ( (metadata.mask[index] & (XLayoutPlan.PREFERRED_WIDTH | XLayoutPlan.PREFERRED_HEIGHT)) != 0 ) {
+					this.getComponentSize( state, index, objComponent, false );
+					preferredWidth = state.size[0];
+					preferredHeight = state.size[1];
+				}
+				int minimumWidth = 0;
+				int minimumHeight = 0;
+				if ( this.keepMinimumSize ) {
+					this.getComponentSize( state, index, objComponent, true );
+					minimumWidth = state.size[0];
+					minimumHeight = state.size[1];
+				}
+				
+				int offset = index * 4;
+				XSolver.solveBounds( state.plan, index, contentWidth, contentHeight, preferredWidth, preferredHeight,
+							this.keepMinimumSize, minimumWidth, minimumHeight, bounds, offset );
+				if ( (objComponent.getX() != bounds[offset]) || (objComponent.getY() != bounds[offset + 1]) ||
+						(objComponent.getWidth() != bounds[offset + 2]) || (objComponent.getHeight() != bounds[offset + 3]) )
+					objComponent.setBounds( bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3] );
+			}
+		}
+		state.laidOut = true;
+	}
+	
+	/**
+	 * Returns the state of a panel, building it the first time: its
+	 * components are read from its fields, and added to their owners.
+	 * @throws IllegalArgumentException If the panel isn't a JComponent,
+	 * or if its class doesn't contain the XContainer Annotation
+	 */
+	private State getState(Container parent) {
+		if ( !(parent instanceof JComponent) )
+			throw new IllegalArgumentException( "XRendererLayout can only lay out JComponents." );
+		JComponent panel = (JComponent) parent;
+		State state = (State) panel.getClientProperty( STATE_KEY );
+		if ( state == null ) {
+			state = new State( panel );
+			panel.putClientProperty( STATE_KEY, state );
+		}
+		return state;
+	}
+	
+	/**
+	 * Writes the preferred, or minimum, size of a component into state.size.
+	 * For the nested containers it's their layout size, unless they have an
+	 * explicit size.
+	 */
+	private void getComponentSize(State state, int index, Component component, boolean minimumSize) {
+		int container = state.metadata.componentContainer[index];
+		if ( (container != XLayoutPlan.NONE) &&
+				(minimumSize ? !component.isMinimumSizeSet() : !component.isPreferredSizeSet()) ) {
+			int layoutSize[] = minimumSize ? state.minimumLayoutSize : state.preferredLayoutSize;
+			state.size[0] = layoutSize[(container + 1) * 2];
+			state.size[1] = layoutSize[(container + 1) * 2 + 1];
+		}
+		else {
+			Dimension size = minimumSize ? component.getMinimumSize() : component.getPreferredSize();
+			state.size[0] = size.width;
+			state.size[1] = size.height;
+		}
+	}
+	
+	/**
+	 * Computes the preferred, or minimum, layout size of every owner
+	 * container, the deepest ones first.
+	 * @return The layout sizes, two ints for each owner, the root first.
+	 */
+	private int[] computeLayoutSizes(State state, boolean minimumSize) {
+		XMetadata metadata = state.metadata;
+		int layoutSize[] = minimumSize ? state.minimumLayoutSize : state.preferredLayoutSize;
+		for ( int i = metadata.containerCount; i >= 0; i-- ) {
+			int owner = i > 0 ? metadata.containerOrder[i - 1] : XLayoutPlan.ROOT;
+			int slot = owner + 1;
+			Container objContainer = state.containers[slot];
+			int width = 0;
+			int height = 0;
+			if ( objContainer != null ) {
+				for ( int j = metadata.ownerStart[slot]; j < metadata.ownerStart[slot + 1]; j++ ) {
+					int index = metadata.ownerChildren[j];
+					Component objComponent = state.components[index];
+					if ( objComponent == null ) continue;
+					
+					this.getComponentSize( state, index, objComponent, minimumSize );
+					XSolver.addConstraints( state.plan, index, state.size );
+					width = Math.max( width, state.size[0] );
+					height = Math.max( height, state.size[1] );
+				}
+				Insets insets = objContainer instanceof JComponent ?
+							((JComponent) objContainer).getInsets( state.insets ) : objContainer.getInsets();
+				width += insets.left + insets.right + state.padding[slot * 2];
+				height += insets.top + insets.bottom + state.padding[slot * 2 + 1];
+			}
+			layoutSize[slot * 2] = width;
+			layoutSize[slot * 2 + 1] = height;
+		}
+		return layoutSize;
+	}
+	
+	/*---------------------------------------
+	 * STATE
+	 */
+	/**
+	 * The components of a panel and the buffers used to lay it out.
+	 */
+	private static final class State {
+		final XMetadata metadata;
+		final XLayoutPlan plan;
+		final Component components[];
+		final Container containers[];
+		final boolean hasContainers;
+		final boolean hasPreferredContainers;
+		
+		// The paddings of each owner, horizontally and vertically
+		final int padding[];
+		
+		final int bounds[];
+		final int contentSize[];
+		final int preferredLayoutSize[];
+		final int minimumLayoutSize[];
+		final int size[] = new int[2];
+		final Insets insets = new Insets( 0, 0, 0, 0 );
+		boolean laidOut = false;
+		
+		State(JComponent panel) {
+			XMetadata metadata = XMetadata.forClass( panel.getClass() );
+			this.metadata = metadata;
+			this.plan = metadata.getPlan();
+			this.components = new Component[metadata.componentCount];
+			this.containers = new Container[metadata.containerCount + 1];
+			this.bounds = new int[metadata.componentCount * 4];
+			this.contentSize = new int[(metadata.containerCount + 1) * 2];
+			this.preferredLayoutSize = new int[(metadata.containerCount + 1) * 2];
+			this.minimumLayoutSize = new int[(metadata.containerCount + 1) * 2];
+			
+			this.padding = new int[(metadata.containerCount + 1) * 2];
+			this.padding[0] = metadata.rootPaddingLeft + metadata.rootPaddingRight;
+			this.padding[1] = metadata.rootPaddingTop + metadata.rootPaddingBottom;
+			this.containers[0] = panel;
+			for ( int i = 0; i < metadata.containerCount; i++ ) {
+				this.containers[i + 1] = metadata.getContainer( panel, i );
+				this.padding[(i + 1) * 2] = metadata.paddingLeft[i] + metadata.paddingRight[i];
+				this.padding[(i + 1) * 2 + 1] = metadata.paddingTop[i] + metadata.paddingBottom[i];
+			}
+			
+			boolean hasContainers = false;
+			boolean hasPreferredContainers = false;
+			for ( int i = 0; i < metadata.componentCount; i++ ) {
+				Component objComponent = metadata.getComponent( panel, i );
+				this.components[i] = objComponent;
+				if ( objComponent == null ) continue;
+				
+				if ( metadata.componentContainer[i] != XLayoutPlan.NONE ) {
+					hasContainers = true;
+					if ( (metadata.mask[i] & (XLayoutPlan.PREFERRED_WIDTH | XLayoutPlan.PREFERRED_HEIGHT)) != 0 )
+						hasPreferredContainers = true;
+				}
+				int owner = metadata.owner[i];
+				Container objContainer = owner != XLayoutPlan.NONE ? this.containers[owner + 1] : null;
+				if ( (objContainer != null) && (objComponent.getParent() != objContainer) ) {
+					if ( objComponent.getParent() != null )
+						objComponent.getParent().remove( objComponent );
+					objContainer.add( objComponent );
+				}
+			}
+			this.hasContainers = hasContainers;
+			this.hasPreferredContainers = hasPreferredContainers;
+		}
+	}
+
+}
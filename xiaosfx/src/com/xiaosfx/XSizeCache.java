@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import javax.swing.JComponent;
+
+/**
+ * Caches the preferred and minimum sizes of the components laid out by an
+ * XLayout, so that each size is computed at most once per layout pass.<br>
+ * A cached size is reused by the next passes only if it was computed while
+ * the component was valid, and the component is still valid: any change
+ * which calls invalidate() on the component discards it. The sizes are also
+ * discarded when the font, text, icon, border or the explicit preferred and
+ * minimum sizes of a JComponent change.<br>
+ * A version number is increased each time a cached size is discarded, or
+ * computed again with a different value.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+final class XSizeCache {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	private final static int PREFERRED = 1;
+	private final static int MINIMUM = 2;
+	private final static int PREFERRED_WAS_VALID = 4;
+	private final static int MINIMUM_WAS_VALID = 8;
+	
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private final Component components[];
+	private final SizeListener listeners[];
+	private final int preferred[];
+	private final int minimum[];
+	private final int preferredPass[];
+	private final int minimumPass[];
+	private final int state[];
+	
+	private int pass = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private int version = 0;
+
+	/*---------------------------------------
+	 * CONSTRUCTORS
+	 */
+	XSizeCache(int componentCount) {
+		this.components = new Component[componentCount];
+		this.listeners = new SizeListener[componentCount];
+		this.preferred = new int[componentCount * 2];
+		this.minimum = new int[componentCount * 2];
+		this.preferredPass = new int[componentCount];
+		this.minimumPass = new int[componentCount];
+		this.state = new int[componentCount];
+	}
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * Starts a new layout pass.
+	 */
+	void nextPass() {
+		this.pass++;
+	}
+	
+	/**
+	 * Writes the preferred size of the component at index into size.
+	 */
+	void getPreferredSize(int index, Component component, int size[]) {
+		this.track( index, component );
+		int state = this.state[index];
+		if ( ((state & PREFERRED) == 0) || ((this.preferredPass[index] != this.pass) &&
+				(((state & PREFERRED_WAS_VALID) == 0) || !component.isValid())) ) {
+			Dimension preferredSize = component.getPreferredSize();
+			if ( (this.preferred[index * 2] != preferredSize.width) ||
+					(this.preferred[index * 2 + 1] != preferredSize.height) )
+				this.version++;
+			this.preferred[index * 2] = preferredSize.width;
+			this.preferred[index * 2 + 1] = preferredSize.height;
+			this.preferredPass[index] = this.pass;
+			this.state[index] = (state & ~PREFERRED_WAS_VALID) | PREFERRED |
+								(component.isValid() ? PREFERRED_WAS_VALID : 0);
+			this.misses++;
+		}
+		else
+			this.hits++;
+		size[0] = this.preferred[index * 2];
+		size[1] = this.preferred[index * 2 + 1];
+	}
+	
+	/**
+	 * Writes the minimum size of the component at index into size.
+	 */
+	void getMinimumSize(int index, Component component, int size[]) {
+		this.track( index, component );
+		int state = this.state[index];
+		if ( ((state & MINIMUM) == 0) || ((this.minimumPass[index] != this.pass) &&
+				(((state & MINIMUM_WAS_VALID) == 0) || !component.isValid())) ) {
+			Dimension minimumSize = component.getMinimumSize();
+			if ( (this.minimum[index * 2] != minimumSize.width) ||
+					(this.minimum[index * 2 + 1] != minimumSize.height) )
+				this.version++;
+			this.minimum[index * 2] = minimumSize.width;
+			this.minimum[index * 2 + 1] = minimumSize.height;
+			this.minimumPass[index] = this.pass;
+			this.state[index] = (state & ~MINIMUM_WAS_VALID) | MINIMUM |
+								(component.isValid() ? MINIMUM_WAS_VALID : 0);
+			this.misses++;
+		}
+		else
+			this.hits++;
+		size[0] = this.minimum[index * 2];
+		size[1] = this.minimum[index * 2 + 1];
+	}
+	
+	/**
+	 * Discards the cached sizes of the component at index.
+	 */
+	void invalidate(int index) {
+		this.state[index] = 0;
+		this.version++;
+	}
+	
+	/**
+	 * Discards all the cached sizes.
+	 */
+	void invalidateAll() {
+		for ( int i = 0; i < this.state.length; i++ )
+			this.state[i] = 0;
+		this.version++;
+	}
+	
+	long getHits() {
+		return this.hits;
+	}
+	
+	long getMisses() {
+		return this.misses;
+	}
+	
+	/**
+	 * @return The number of components the sizes can be cached for.
+	 */
+	int getCapacity() {
+		return this.components.length;
+	}
+	
+	/**
+	 * Stops listening to the components, when the cache is dropped.
+	 */
+	void release() {
+		for ( int i = 0; i < this.components.length; i++ ) {
+			if ( this.components[i] instanceof JComponent )
+				this.components[i].removePropertyChangeListener( this.listeners[i] );
+			this.components[i] = null;
+		}
+	}
+	
+	/**
+	 * @return A number which changes whenever a cached size may have changed.
+	 */
+	int getVersion() {
+		return this.version;
+	}
+	
+	/**
+	 * Starts listening to the component at index, if it's not the one
+	 * the sizes were cached for.
+	 */
+	private void track(int index, Component component) {
+		if ( this.components[index] == component )
+			return;
+		
+		if ( this.components[index] instanceof JComponent )
+			this.components[index].removePropertyChangeListener( this.listeners[index] );
+		this.components[index] = component;
+		this.state[index] = 0;
+		this.version++;
+		if ( component instanceof JComponent ) {
+			if ( this.listeners[index] == null )
+				this.listeners[index] = new SizeListener( index );
+			component.addPropertyChangeListener( this.listeners[index] );
+		}
+	}
+	
+	/*---------------------------------------
+	 * LISTENER
+	 */
+	private final class SizeListener implements PropertyChangeListener {
+		private final int index;
+		
+		SizeListener(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public void propertyChange(PropertyChangeEvent evt) {
+			String name = evt.getPropertyName();
+			if ( "font".equals(name) || "text".equals(name) || "icon".equals(name) ||
+					"border".equals(name) || "preferredSize".equals(name) ||
+					"minimumSize".equals(name) )
+				XSizeCache.this.invalidate( this.index );
+		}
+	}
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import java.awt.Component;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Indexes the bounds of the children of one owner container in a uniform
+ * grid, so that finding the child at a point, or the children in the clip
+ * of a repaint, only looks at the cells around it instead of at all the
+ * children.<br>
+ * The XLayout updates the index each time it sets the bounds of a child:
+ * a child which didn't move costs nothing, and one which moved is only
+ * taken out of its old cells and put into its new ones. The component of
+ * a replaced field takes the place of the old one.<br>
+ * Each child gets an id the first time it's indexed, and when children
+ * overlap, the one with the lowest id is on top. Since the XLayout indexes
+ * the children in the order it adds them, that's the order of AWT.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+final class XSpatialIndex {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	// The cells are 64 pixels wide and high
+	private final static int CELL_SHIFT = 6;
+	// Beyond 512 cells along an axis, the last cell holds the rest
+	private final static int MAX_CELLS = 512;
+	
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private final IdentityHashMap<Component, Integer> ids = new IdentityHashMap<Component, Integer>();
+	private Component entries[] = new Component[16];
+	private int rects[] = new int[16 * 4];
+	private int marks[] = new int[16];
+	private int entryCount = 0;
+	private int removedCount = 0;
+	
+	private int columns = 0;
+	private int rows = 0;
+	private int cells[][] = new int[0][];
+	private int cellCounts[] = new int[0];
+	
+	private int mark = 0;
+	private int hits[] = new int[16];
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * Indexes the current bounds of component, if they changed since the
+	 * last time.
+	 */
+	void update(Component component) {
+		int x = component.getX();
+		int y = component.getY();
+		int width = component.getWidth();
+		int height = component.getHeight();
+		Integer id = this.ids.get( component );
+		int entry;
+		if ( id == null ) {
+			entry = this.addEntry( component );
+		}
+		else {
+			entry = id.intValue();
+			int offset = entry * 4;
+			if ( (this.rects[offset] == x) && (this.rects[offset + 1] == y) &&
+					(this.rects[offset + 2] == width) && (this.rects[offset + 3] == height) )
+				return;
+			
+			this.removeCells( entry );
+		}
+		
+		int offset = entry * 4;
+		this.rects[offset] = x;
+		this.rects[offset + 1] = y;
+		this.rects[offset + 2] = width;
+		this.rects[offset + 3] = height;
+		if ( (width <= 0) || (height <= 0) )
+			return;
+		
+		this.ensureGrid( x + width, y + height );
+		this.addCells( entry );
+	}
+	
+	/**
+	 * Removes component from the index, if it's in it.
+	 */
+	void remove(Component component) {
+		Integer id = this.ids.remove( component );
+		if ( id == null )
+			return;
+		
+		this.removeCells( id.intValue() );
+		this.entries[id.intValue()] = null;
+		this.removedCount++;
+		if ( this.removedCount > this.entryCount / 2 )
+			this.compact();
+	}
+	
+	/**
+	 * Puts component in the place of last, which is taken out of the index:
+	 * it gets the id of last, so that it's on top of the same components.
+	 * Its bounds are indexed by the next update.
+	 */
+	void replace(Component last, Component component) {
+		if ( this.ids.containsKey(component) ) {
+			this.remove( last );
+			return;
+		}
+		Integer id = this.ids.remove( last );
+		if ( id == null )
+			return;
+		
+		this.entries[id.intValue()] = component;
+		this.ids.put( component, id );
+	}
+	
+	/**
+	 * @return The visible component on top at x, y, or null if there's none.
+	 */
+	Component componentAt(int x, int y) {
+		if ( (this.columns == 0) || (x < 0) || (y < 0) )
+			return null;
+		
+		int cell = this.row( y ) * this.columns + this.column( x );
+		int cellEntries[] = this.cells[cell];
+		int top = -1;
+		for ( int i = 0; i < this.cellCounts[cell]; i++ ) {
+			int entry = cellEntries[i];
+			if ( (top >= 0) && (entry > top) ) continue;
+			
+			int offset = entry * 4;
+			int rects[] = this.rects;
+			if ( (x >= rects[offset]) && (x < rects[offset] + rects[offset + 2]) &&
+					(y >= rects[offset + 1]) && (y < rects[offset + 1] + rects[offset + 3]) &&
+					this.entries[entry].isVisible() )
+				top = entry;
+		}
+		return top >= 0 ? this.entries[top] : null;
+	}
+	
+	/**
+	 * Adds the visible components which intersect rect to result, the
+	 * one on top first.
+	 */
+	void intersecting(Rectangle rect, List<Component> result) {
+		if ( (this.columns == 0) || (rect.width <= 0) || (rect.height <= 0) ||
+				(rect.x + rect.width <= 0) || (rect.y + rect.height <= 0) )
+			return;
+		
+		int firstColumn = this.column( Math.max(rect.x, 0) );
+		int lastColumn = this.column( rect.x + rect.width - 1 );
+		int firstRow = this.row( Math.max(rect.y, 0) );
+		int lastRow = this.row( rect.y + rect.height - 1 );
+		
+		// Each entry is tested once, even if it spans several cells
+		this.mark++;
+		int count = 0;
+		int rects[] = this.rects;
+		for ( int row = firstRow; row <= lastRow; row++ )
+			for ( int column = firstColumn; column <= lastColumn; column++ ) {
+				int cell = row * this.columns + column;
+				int cellEntries[] = this.cells[cell];
+				for ( int i = 0; i < this.cellCounts[cell]; i++ ) {
+					int entry = cellEntries[i];
+					if ( this.marks[entry] == this.mark ) continue;
+					
+					this.marks[entry] = this.mark;
+					int offset = entry * 4;
+					if ( (rects[offset] < rect.x + rect.width) && (rects[offset] + rects[offset + 2] > rect.x) &&
+							(rects[offset + 1] < rect.y + rect.height) && (rects[offset + 1] + rects[offset + 3] > rect.y) &&
+							this.entries[entry].isVisible() ) {
+						if ( count == this.hits.length )
+							this.hits = Arrays.copyOf( this.hits, count * 2 );
+						this.hits[count++] = entry;
+					}
+				}
+			}
+		
+		Arrays.sort( this.hits, 0, count );
+		for ( int i = 0; i < count; i++ )
+			result.add( this.entries[this.hits[i]] );
+	}
+	
+	/*----------------
+	 * Entries
+	 */
+	private int addEntry(Component component) {
+		if ( this.entryCount == this.entries.length ) {
+			int capacity = this.entryCount * 2;
+			this.entries = Arrays.copyOf( this.entries, capacity );
+			this.rects = Arrays.copyOf( this.rects, capacity * 4 );
+			this.marks = Arrays.copyOf( this.marks, capacity );
+		}
+		int entry = this.entryCount++;
+		this.entries[entry] = component;
+		this.ids.put( component, Integer.valueOf(entry) );
+		return entry;
+	}
+	
+	/**
+	 * Gives new ids to the entries left, in the same order, so that the
+	 * removed ones don't take room anymore.
+	 */
+	private void compact() {
+		int count = 0;
+		for ( int entry = 0; entry < this.entryCount; entry++ ) {
+			Component component = this.entries[entry];
+			if ( component == null ) continue;
+			
+			this.entries[count] = component;
+			System.arraycopy( this.rects, entry * 4, this.rects, count * 4, 4 );
+			this.ids.put( component, Integer.valueOf(count) );
+			count++;
+		}
+		Arrays.fill( this.entries, count, this.entryCount, null );
+		this.entryCount = count;
+		this.removedCount = 0;
+		this.rebuildCells();
+	}
+	
+	/*----------------
+	 * Cells
+	 */
+	private int column(int x) {
+		return Math.min( x >> CELL_SHIFT, this.columns - 1 );
+	}
+	
+	private int row(int y) {
+		return Math.min( y >> CELL_SHIFT, this.rows - 1 );
+	}
+	
+	/**
+	 * Grows the grid, if needed, so that it covers width and height.
+	 */
+	private void ensureGrid(int width, int height) {
+		int columns = Math.min( Math.max(width - 1, 0) >> CELL_SHIFT, MAX_CELLS - 1 ) + 1;
+		int rows = Math.min( Math.max(height - 1, 0) >> CELL_SHIFT, MAX_CELLS - 1 ) + 1;
+		if ( (columns <= this.columns) && (rows <= this.rows) )
+			return;
+		
+		// Grows by half at least, so that growing costs little on the whole
+		this.columns = Math.min( Math.max(columns, this.columns + this.columns / 2), MAX_CELLS );
+		this.rows = Math.min( Math.max(rows, this.rows + this.rows / 2), MAX_CELLS );
+		this.rebuildCells();
+	}
+	
+	private void rebuildCells() {
+		int cellCount = this.columns * this.rows;
+		if ( this.cells.length != cellCount ) {
+			this.cells = new int[cellCount][];
+			this.cellCounts = new int[cellCount];
+		}
+		else
+			Arrays.fill( this.cellCounts, 0 );
+		for ( int entry = 0; entry < this.entryCount; entry++ )
+			if ( (this.entries[entry] != null) && (this.rects[entry * 4 + 2] > 0) && (this.rects[entry * 4 + 3] > 0) )
+				this.addCells( entry );
+	}
+	
+	private void addCells(int entry) {
+		int offset = entry * 4;
+		int rects[] = this.rects;
+		if ( (rects[offset] + rects[offset + 2] <= 0) || (rects[offset + 1] + rects[offset + 3] <= 0) )
+			return;
+		
+		int lastColumn = this.column( rects[offset] + rects[offset + 2] - 1 );
+		int lastRow = this.row( rects[offset + 1] + rects[offset + 3] - 1 );
+		for ( int row = this.row(Math.max(rects[offset + 1], 0)); row <= lastRow; row++ )
+			for ( int column = this.column(Math.max(rects[offset], 0)); column <= lastColumn; column++ ) {
+				int cell = row * this.columns + column;
+				int cellEntries[] = this.cells[cell];
+				int count = this.cellCounts[cell];
+				if ( cellEntries == null )
+					cellEntries = this.cells[cell] = new int[4];
+				else if ( count == cellEntries.length )
+					cellEntries = this.cells[cell] = Arrays.copyOf( cellEntries, count * 2 );
+				cellEntries[count] = entry;
+				this.cellCounts[cell] = count + 1;
+			}
+	}
+	
+	private void removeCells(int entry) {
+		int offset = entry * 4;
+		int rects[] = this.rects;
+		if ( (rects[offset + 2] <= 0) || (rects[offset + 3] <= 0) ||
+				(rects[offset] + rects[offset + 2] <= 0) || (rects[offset + 1] + rects[offset + 3] <= 0) )
+			return;
+		
+		int lastColumn = this.column( rects[offset] + rects[offset + 2] - 1 );
+		int lastRow = this.row( rects[offset + 1] + rects[offset + 3] - 1 );
+		for ( int row = this.row(Math.max(rects[offset + 1], 0)); row <= lastRow; row++ )
+			for ( int column = this.column(Math.max(rects[offset], 0)); column <= lastColumn; column++ ) {
+				int cell = row * this.columns + column;
+				int cellEntries[] = this.cells[cell];
+				int count = this.cellCounts[cell];
+				for ( int i = 0; i < count; i++ )
+					if ( cellEntries[i] == entry ) {
+						cellEntries[i] = cellEntries[count - 1];
+						this.cellCounts[cell] = count - 1;
+						break;
+					}
+			}
+	}
+}
@@ -31,6 +31,7 @@
 package com.xiaosfx;
 
 import java.lang.reflect.Field;
+import java.util.HashMap;
 
 import com.xiaosfx.annotation.XComponent;
 import com.xiaosfx.annotation.XContainer;
@@ -64,30 +65,85 @@ public final class XUtilities {
 	
 	/**
 	 * Sorts the Fields (again), this time, sorting between containers.
-	 * The top-most level containers should come first.
+	 * The top-most level containers should come first.<br>
+	 * The containers are expected at the beginning of the array, as left by
+	 * sortComponents. They're sorted in linear time, containers which are
+	 * part of a cycle are left at the end of them.
 	 */
 	public static void sortContainersInComponents(Field fields[]) {
-		boolean ready = false;
-		while ( !ready ) {
-			ready = true;
-			for ( int i = 1; i < fields.length; i++ ) {
-				XComponent xcomponent = fields[i].getAnnotation( XComponent.class );
-				XContainer xcontainer = null;
-				if ( fields[i - 1].isAnnotationPresent(XContainer.class) )
-					xcontainer = fields[i - 1].getAnnotation( XContainer.class );
-				if ( xcontainer != null ) {
-					if ( !xcomponent.owner().equals(xcontainer.name()) ) {
-						Field fieldAux = fields[i];
-						fields[i] = fields[i - 1];
-						fields[i - 1] = fieldAux;
-						ready = false;
-					}
-				}
-				else
-					break;
-				
-			}
+		int containerCount = 0;
+		while ( (containerCount < fields.length) &&
+				fields[containerCount].isAnnotationPresent(XContainer.class) )
+			containerCount++;
+		
+		HashMap<String, Integer> names = new HashMap<String, Integer>();
+		for ( int i = containerCount - 1; i >= 0; i-- )
+			names.put( fields[i].getAnnotation(XContainer.class).name(), i );
+		
+		int parent[] = new int[containerCount];
+		for ( int i = 0; i < containerCount; i++ ) {
+			XComponent xcomponent = fields[i].getAnnotation( XComponent.class );
+			Integer owner = xcomponent != null ? names.get( xcomponent.owner() ) : null;
+			parent[i] = (owner != null) && (owner != i) ? owner : -1;
+		}
+		
+		int order[] = topologicalOrder( parent );
+		boolean sorted[] = new boolean[containerCount];
+		Field containers[] = new Field[containerCount];
+		int k = 0;
+		for ( int i = 0; i < order.length; i++ ) {
+			containers[k++] = fields[order[i]];
+			sorted[order[i]] = true;
+		}
+		for ( int i = 0; i < containerCount; i++ )
+			if ( !sorted[i] )
+				containers[k++] = fields[i];
+		System.arraycopy( containers, 0, fields, 0, containerCount );
+	}
+	
+	/**
+	 * Returns the nodes of a forest in topological order: every node comes
+	 * after its parent, and the roots, and the children of each node, keep
+	 * their original order. Runs in linear time.
+	 * @param parent The index of the parent of each node, or -1 for the roots.
+	 * @return The sorted node indexes. The nodes which are part of a cycle
+	 * can't be sorted and are missing from it, so the result is shorter
+	 * than parent when there are cycles.
+	 */
+	public static int[] topologicalOrder(int parent[]) {
+		int nodeCount = parent.length;
+		
+		// Children of each node, stored as first[node]..first[node + 1]
+		int first[] = new int[nodeCount + 1];
+		for ( int i = 0; i < nodeCount; i++ )
+			if ( parent[i] >= 0 )
+				first[parent[i] + 1]++;
+		for ( int i = 0; i < nodeCount; i++ )
+			first[i + 1] += first[i];
+		int next[] = new int[nodeCount];
+		int children[] = new int[first[nodeCount]];
+		for ( int i = 0; i < nodeCount; i++ )
+			if ( parent[i] >= 0 )
+				children[first[parent[i]] + next[parent[i]]++] = i;
+		
+		// Breadth first, starting at the roots
+		int order[] = new int[nodeCount];
+		int size = 0;
+		for ( int i = 0; i < nodeCount; i++ )
+			if ( parent[i] < 0 )
+				order[size++] = i;
+		for ( int head = 0; head < size; head++ ) {
+			int node = order[head];
+			for ( int i = first[node]; i < first[node + 1]; i++ )
+				order[size++] = children[i];
+		}
+		
+		if ( size < nodeCount ) {
+			int sorted[] = new int[size];
+			System.arraycopy( order, 0, sorted, 0, size );
+			return sorted;
 		}
+		return order;
 	}
 
 }
@@ -40,6 +40,10 @@ import java.lang.annotation.Target;
  * should have this annotation.<br>
  * <b>Note: Containers are also considered as Components</b><br><br>
  * 
+ * It can also be given to a Component[] or a List of Components field: each
+ * element gets the constraints of the field, moved by stride along the axis
+ * for each previous element. So a row of N components needs only one field.<br><br>
+ * 
  * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
  * for more informations.
  * @author Alex Sam Lou
@@ -50,6 +54,12 @@ import java.lang.annotation.Target;
 public @interface XComponent {
 	public final static int NULL = -2147483648;
 	
+	/**
+	 * The axes along which the elements of a Component[] or List field are repeated.
+	 */
+	public final static int HORIZONTAL = 0;
+	public final static int VERTICAL = 1;
+	
 	/**
 	 * @return The left constraint of the component.
 	 */
@@ -111,4 +121,17 @@ public @interface XComponent {
 	 */
 	public String owner() default "";
 	
+	/**
+	 * Only used by the Component[] and List fields: each element is placed
+	 * stride pixels after the previous one, along the axis.
+	 * @return The distance between the positions of two consecutive elements.
+	 */
+	public int stride() default 0;
+	
+	/**
+	 * Only used by the Component[] and List fields.
+	 * @return HORIZONTAL or VERTICAL, the axis along which the elements are repeated.
+	 */
+	public int axis() default VERTICAL;
+	
 }
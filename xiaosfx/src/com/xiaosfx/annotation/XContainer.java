@@ -77,6 +77,8 @@ public @interface XContainer {
 	 * which components belongs to which container.<br>
 	 * If by chance two or more container holds the same name, it
 	 * may cause an unexpected layout result and possible errors.
+	 * A container with the name of the class container, "" by default,
+	 * can't own components: they go to the class container.
 	 * <br><br>
 	 * 
 	 * <b>Note: </b>The names are <b>Case-Sensitive</b>.<br><br>
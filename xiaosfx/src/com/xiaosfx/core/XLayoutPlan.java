@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.core;
+
+import com.xiaosfx.annotation.XComponent;
+
+/**
+ * The constraints of all the components of a form, as plain int tables,
+ * without any reference to the form class, its fields or its components.<br>
+ * Components and containers are referred to by index. Each component has an
+ * owner container, ROOT for the root container, and containers are sorted
+ * so that each one comes after its owner.<br>
+ * Plans are immutable, so they can be shared by any number of threads. Get
+ * the plan of a form class with <b>XMetadata.forClass(formClass).getPlan()</b>
+ * and solve it with the XSolver. Only the copies made by editableCopy can
+ * be modified, one constraint at a time.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public final class XLayoutPlan {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	/**
+	 * Owner index of the components that belong to the root container.
+	 */
+	public static final int ROOT = -1;
+	
+	/**
+	 * Owner index of the components whose owner couldn't be found, and
+	 * container index of the components which aren't containers.
+	 */
+	public static final int NONE = -2;
+	
+	/**
+	 * Bits of the constraint mask, one for each value different from XComponent.NULL.
+	 */
+	public static final int HAS_LEFT = 1;
+	public static final int HAS_RIGHT = 2;
+	public static final int HAS_TOP = 4;
+	public static final int HAS_BOTTOM = 8;
+	public static final int HAS_HORIZONTAL_CENTER = 16;
+	public static final int HAS_VERTICAL_CENTER = 32;
+	public static final int HAS_WIDTH = 64;
+	public static final int HAS_HEIGHT = 128;
+	
+	/**
+	 * Bits of the constraint mask set when the width, or the height, of the
+	 * component comes from its preferred size.
+	 */
+	public static final int PREFERRED_WIDTH = 256;
+	public static final int PREFERRED_HEIGHT = 512;
+	
+	/**
+	 * Indexes of the constraint tables, see getConstraint.
+	 */
+	public static final int LEFT = 0;
+	public static final int RIGHT = 1;
+	public static final int TOP = 2;
+	public static final int BOTTOM = 3;
+	public static final int HORIZONTAL_CENTER = 4;
+	public static final int VERTICAL_CENTER = 5;
+	public static final int WIDTH = 6;
+	public static final int HEIGHT = 7;
+	public static final int CONSTRAINT_COUNT = 8;
+	
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	final int componentCount;
+	final int containerCount;
+	
+	// Constraints of each component, the same tables by constraint index
+	final int constraints[][];
+	final int left[];
+	final int right[];
+	final int top[];
+	final int bottom[];
+	final int horizontalCenter[];
+	final int verticalCenter[];
+	final int width[];
+	final int height[];
+	final int mask[];
+	final int owner[];
+	final int componentContainer[];
+	
+	// Containers, each one after its owner, and the component each one is
+	final int containerOrder[];
+	final int containerComponent[];
+	
+	// Paddings of each owner, left, right, top and bottom, the root first
+	final int padding[];
+	
+	// Components of each owner, the root first and then every container:
+	// ownerChildren[ownerStart[owner + 1]] .. ownerChildren[ownerStart[owner + 2] - 1]
+	final int ownerStart[];
+	final int ownerChildren[];
+	
+	// True for the copies whose constraints can be modified, see editableCopy
+	private final boolean editable;
+
+	/*---------------------------------------
+	 * CONSTRUCTORS
+	 */
+	/**
+	 * Builds a plan from a copy of its tables, so the caller may keep
+	 * modifying them. All the per component tables have one value per
+	 * component, and all the per container tables one value per container.
+	 * @param constraints The left, right, top, bottom, horizontalCenter,
+	 * verticalCenter, width and height tables
+	 * @param mask Which constraints of each component are set
+	 * @param owner The owner container of each component, or ROOT or NONE
+	 * @param componentContainer The container each component is, or NONE
+	 * @param containerOrder The containers, each one after its owner
+	 * @param containerComponent The component each container is, or NONE
+	 * @param padding 4 paddings for each owner, left, right, top and bottom, the root first
+	 * @param ownerStart Where the components of each owner start in ownerChildren,
+	 * the root first, plus the end of the last owner
+	 * @param ownerChildren The components grouped by owner
+	 */
+	public XLayoutPlan(int constraints[][], int mask[], int owner[], int componentContainer[],
+					int containerOrder[], int containerComponent[], int padding[],
+					int ownerStart[], int ownerChildren[]) {
+		this( copy(constraints), mask.clone(), owner.clone(), componentContainer.clone(),
+					containerOrder.clone(), containerComponent.clone(), padding.clone(),
+					ownerStart.clone(), ownerChildren.clone(), false );
+	}
+	
+	/**
+	 * Builds a plan which uses the given tables as they are.
+	 */
+	private XLayoutPlan(int constraints[][], int mask[], int owner[], int componentContainer[],
+					int containerOrder[], int containerComponent[], int padding[],
+					int ownerStart[], int ownerChildren[], boolean editable) {
+		this.componentCount = mask.length;
+		this.containerCount = containerOrder.length;
+		this.constraints = constraints;
+		this.left = constraints[0];
+		this.right = constraints[1];
+		this.top = constraints[2];
+		this.bottom = constraints[3];
+		this.horizontalCenter = constraints[4];
+		this.verticalCenter = constraints[5];
+		this.width = constraints[6];
+		this.height = constraints[7];
+		this.mask = mask;
+		this.owner = owner;
+		this.componentContainer = componentContainer;
+		this.containerOrder = containerOrder;
+		this.containerComponent = containerComponent;
+		this.padding = padding;
+		this.ownerStart = ownerStart;
+		this.ownerChildren = ownerChildren;
+		this.editable = editable;
+	}
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	public int getComponentCount() {
+		return this.componentCount;
+	}
+	
+	public int getContainerCount() {
+		return this.containerCount;
+	}
+	
+	/**
+	 * @return The owner container of the component at index, ROOT or NONE.
+	 */
+	public int getOwner(int index) {
+		return this.owner[index];
+	}
+	
+	/**
+	 * @return The container the component at index is, or NONE.
+	 */
+	public int getComponentContainer(int index) {
+		return this.componentContainer[index];
+	}
+	
+	/**
+	 * @return Which constraints of the component at index are set.
+	 */
+	public int getMask(int index) {
+		return this.mask[index];
+	}
+	
+	/**
+	 * @return The value of a constraint of the component at index, or XComponent.NULL.
+	 * @param constraint LEFT, RIGHT, TOP, BOTTOM, HORIZONTAL_CENTER, VERTICAL_CENTER, WIDTH or HEIGHT
+	 */
+	public int getConstraint(int index, int constraint) {
+		return this.constraints[constraint][index];
+	}
+	
+	/**
+	 * Returns a copy of this plan whose constraints can be modified with
+	 * setConstraint. Only the constraint and mask tables are copied, all
+	 * the other ones are shared with this plan.<br>
+	 * The copy isn't thread safe: it must not be modified while it's solved.
+	 */
+	public XLayoutPlan editableCopy() {
+		return new XLayoutPlan( copy(this.constraints), this.mask.clone(), this.owner, this.componentContainer,
+					this.containerOrder, this.containerComponent, this.padding,
+					this.ownerStart, this.ownerChildren, true );
+	}
+	
+	public boolean isEditable() {
+		return this.editable;
+	}
+	
+	/**
+	 * Changes a constraint of the component at index, and updates its mask.
+	 * @param constraint LEFT, RIGHT, TOP, BOTTOM, HORIZONTAL_CENTER, VERTICAL_CENTER, WIDTH or HEIGHT
+	 * @param value The new value, or XComponent.NULL to unset the constraint
+	 * @throws IllegalStateException If this plan isn't an editableCopy
+	 */
+	public void setConstraint(int index, int constraint, int value) {
+		checkEditable();
+		this.constraints[constraint][index] = value;
+		this.mask[index] = computeMask( this.constraints, index );
+	}
+	
+	/**
+	 * Restores all the constraints of the component at index, and its
+	 * mask, to the ones of the same component in plan.
+	 * @throws IllegalStateException If this plan isn't an editableCopy
+	 */
+	public void resetConstraints(int index, XLayoutPlan plan) {
+		checkEditable();
+		for ( int i = 0; i < CONSTRAINT_COUNT; i++ )
+			this.constraints[i][index] = plan.constraints[i][index];
+		this.mask[index] = plan.mask[index];
+	}
+	
+	private void checkEditable() {
+		if ( !this.editable )
+			throw new IllegalStateException( "This plan is shared, only its editableCopy can be modified" );
+	}
+	
+	private static int[][] copy(int constraints[][]) {
+		int copy[][] = new int[CONSTRAINT_COUNT][];
+		for ( int i = 0; i < CONSTRAINT_COUNT; i++ )
+			copy[i] = constraints[i].clone();
+		return copy;
+	}
+	
+	/**
+	 * Returns which constraints of the component at index are set in
+	 * the constraint tables, and which sizes come from its preferred size.
+	 */
+	public static int computeMask(int constraints[][], int index) {
+		int mask = 0;
+		mask |= constraints[LEFT][index] != XComponent.NULL ? HAS_LEFT : 0;
+		mask |= constraints[RIGHT][index] != XComponent.NULL ? HAS_RIGHT : 0;
+		mask |= constraints[TOP][index] != XComponent.NULL ? HAS_TOP : 0;
+		mask |= constraints[BOTTOM][index] != XComponent.NULL ? HAS_BOTTOM : 0;
+		mask |= constraints[HORIZONTAL_CENTER][index] != XComponent.NULL ? HAS_HORIZONTAL_CENTER : 0;
+		mask |= constraints[VERTICAL_CENTER][index] != XComponent.NULL ? HAS_VERTICAL_CENTER : 0;
+		mask |= constraints[WIDTH][index] != XComponent.NULL ? HAS_WIDTH : 0;
+		mask |= constraints[HEIGHT][index] != XComponent.NULL ? HAS_HEIGHT : 0;
+		if ( ((mask & (HAS_LEFT | HAS_RIGHT)) != (HAS_LEFT | HAS_RIGHT)) && ((mask & HAS_WIDTH) == 0) )
+			mask |= PREFERRED_WIDTH;
+		if ( ((mask & (HAS_TOP | HAS_BOTTOM)) != (HAS_TOP | HAS_BOTTOM)) && ((mask & HAS_HEIGHT) == 0) )
+			mask |= PREFERRED_HEIGHT;
+		return mask;
+	}
+
+}
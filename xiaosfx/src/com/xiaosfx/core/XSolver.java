@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.core;
+
+/**
+ * The constraint math of the XLayout, on plain ints: it takes the sizes of
+ * the components and returns their bounds, without touching any component.<br>
+ * It has no state, so it can be used by any number of threads at once, with
+ * no Event Dispatch Thread and no AWT peers, to lay out forms on a server.
+ * The XLayout itself is an adapter which feeds it with the sizes of the
+ * live components.<br><br>
+ * 
+ * The sizes are given in a table of 4 ints per component: preferred width
+ * and height, minimum width and height. A negative size for a container
+ * means that it's computed from its own components. The insets are given
+ * in a table of 4 ints per owner, left, right, top and bottom, the root
+ * first, or null if no owner has insets.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public final class XSolver {
+	
+	private XSolver() {
+	}
+	
+	/**
+	 * Lays out a whole form whose root container has the given size.
+	 * The containers which aren't laid out by any owner get their preferred size.
+	 * @param bounds Where the bounds are written, x, y, width and height
+	 * for each component, so 4 ints per component
+	 */
+	public static void layout(XLayoutPlan plan, int width, int height, int sizes[],
+					int insets[], boolean keepMinimumSize, int bounds[]) {
+		int slots = plan.containerCount + 1;
+		int preferredLayoutSize[] = new int[slots * 2];
+		layoutSizes( plan, sizes, insets, false, preferredLayoutSize );
+		int minimumLayoutSize[] = null;
+		if ( keepMinimumSize ) {
+			minimumLayoutSize = new int[slots * 2];
+			layoutSizes( plan, sizes, insets, true, minimumLayoutSize );
+		}
+		
+		for ( int i = 0; i < slots; i++ ) {
+			int owner = i > 0 ? plan.containerOrder[i - 1] : XLayoutPlan.ROOT;
+			int slot = owner + 1;
+			int ownerWidth = width;
+			int ownerHeight = height;
+			if ( owner != XLayoutPlan.ROOT ) {
+				int component = plan.containerComponent[owner];
+				if ( (component != XLayoutPlan.NONE) && (plan.owner[component] != XLayoutPlan.NONE) ) {
+					ownerWidth = bounds[component * 4 + 2];
+					ownerHeight = bounds[component * 4 + 3];
+				}
+				else {
+					ownerWidth = preferredLayoutSize[slot * 2];
+					ownerHeight = preferredLayoutSize[slot * 2 + 1];
+				}
+			}
+			int contentWidth = ownerWidth - extentWidth( plan, insets, slot );
+			int contentHeight = ownerHeight - extentHeight( plan, insets, slot );
+			
+			for ( int j = plan.ownerStart[slot]; j < plan.ownerStart[slot + 1]; j++ ) {
+				int index = plan.ownerChildren[j];
+				int container = plan.componentContainer[index];
+				int preferredWidth = sizes[index * 4];
+				int preferredHeight = sizes[index * 4 + 1];
+				if ( (container != XLayoutPlan.NONE) && (preferredWidth < 0) ) {
+					preferredWidth = preferredLayoutSize[(container + 1) * 2];
+					preferredHeight = preferredLayoutSize[(container + 1) * 2 + 1];
+				}
+				int minimumWidth = 0;
+				int minimumHeight = 0;
+				if ( keepMinimumSize ) {
+					minimumWidth = sizes[index * 4 + 2];
+					minimumHeight = sizes[index * 4 + 3];
+					if ( (container != XLayoutPlan.NONE) && (minimumWidth < 0) ) {
+						minimumWidth = minimumLayoutSize[(container + 1) * 2];
+						minimumHeight = minimumLayoutSize[(container + 1) * 2 + 1];
+					}
+				}
+				solveBounds( plan, index, contentWidth, contentHeight, preferredWidth, preferredHeight,
+							keepMinimumSize, minimumWidth, minimumHeight, bounds, index * 4 );
+			}
+		}
+	}
+	
+	/**
+	 * Computes the preferred, or minimum, layout size of every owner
+	 * container, the size it needs to hold its components, bottom-up.
+	 * @param layoutSize Where the sizes are written, width and height
+	 * for each owner, the root first
+	 */
+	public static void layoutSizes(XLayoutPlan plan, int sizes[], int insets[],
+					boolean minimumSize, int layoutSize[]) {
+		int size[] = new int[2];
+		int offset = minimumSize ? 2 : 0;
+		
+		// The deepest containers first
+		for ( int i = plan.containerCount; i >= 0; i-- ) {
+			int owner = i > 0 ? plan.containerOrder[i - 1] : XLayoutPlan.ROOT;
+			int slot = owner + 1;
+			int width = 0;
+			int height = 0;
+			for ( int j = plan.ownerStart[slot]; j < plan.ownerStart[slot + 1]; j++ ) {
+				int index = plan.ownerChildren[j];
+				int container = plan.componentContainer[index];
+				size[0] = sizes[index * 4 + offset];
+				size[1] = sizes[index * 4 + offset + 1];
+				if ( (container != XLayoutPlan.NONE) && (size[0] < 0) ) {
+					size[0] = layoutSize[(container + 1) * 2];
+					size[1] = layoutSize[(container + 1) * 2 + 1];
+				}
+				addConstraints( plan, index, size );
+				width = Math.max( width, size[0] );
+				height = Math.max( height, size[1] );
+			}
+			layoutSize[slot * 2] = width + extentWidth( plan, insets, slot );
+			layoutSize[slot * 2 + 1] = height + extentHeight( plan, insets, slot );
+		}
+	}
+	
+	/**
+	 * Adds the constraints of the component at index to its size, which
+	 * gives the size it needs in its owner.
+	 */
+	public static void addConstraints(XLayoutPlan plan, int index, int size[]) {
+		int mask = plan.mask[index];
+		
+		if ( (mask & XLayoutPlan.HAS_LEFT) != 0 )
+			size[0] += plan.left[index];
+		if ( (mask & XLayoutPlan.HAS_RIGHT) != 0 )
+			size[0] += plan.right[index];
+		// check if it should get the HorizontalCenter value
+		if ( ((mask & (XLayoutPlan.HAS_LEFT | XLayoutPlan.HAS_RIGHT)) == 0) &&
+				((mask & XLayoutPlan.HAS_HORIZONTAL_CENTER) != 0) )
+			size[0] += Math.abs( plan.horizontalCenter[index] );
+		
+		if ( (mask & XLayoutPlan.HAS_TOP) != 0 )
+			size[1] += plan.top[index];
+		if ( (mask & XLayoutPlan.HAS_BOTTOM) != 0 )
+			size[1] += plan.bottom[index];
+		// check if it should get the VerticalCenter value
+		if ( ((mask & (XLayoutPlan.HAS_TOP | XLayoutPlan.HAS_BOTTOM)) == 0) &&
+				((mask & XLayoutPlan.HAS_VERTICAL_CENTER) != 0) )
+			size[1] += Math.abs( plan.verticalCenter[index] );
+	}
+	
+    /**
+     * Calculates the bounds of the component at index from its constraints,
+     * the content size of its owner (its size minus its insets and paddings)
+     * and its preferred and minimum sizes, and writes them into bounds at
+     * offset: x, y, width and height.
+     */
+    public static void solveBounds(XLayoutPlan plan, int index, int cWidth, int cHeight,
+    				int preferredWidth, int preferredHeight, boolean keepMinimumSize,
+    				int minimumWidth, int minimumHeight, int bounds[], int offset) {
+		int mask = plan.mask[index];
+		int xLeft = plan.left[index];
+		int xRight = plan.right[index];
+		int xTop = plan.top[index];
+		int xBottom = plan.bottom[index];
+		int xHorizCenter = plan.horizontalCenter[index];
+		int xVertCenter = plan.verticalCenter[index];
+		int xWidth = plan.width[index];
+		int xHeight = plan.height[index];
+		int slot = plan.owner[index] + 1;
+		int paddingLeft = plan.padding[slot * 4];
+		int paddingTop = plan.padding[slot * 4 + 2];
+		
+		boolean bHorizCenter = true;
+		boolean bVertCenter = true;
+		
+		int x = 0;
+		int y = 0;
+		int width = 0;
+		int height = 0;
+		
+		// Calculating Horizontally - x  - width -----------------------------------------------
+		if ( ((mask & XLayoutPlan.HAS_LEFT) == 0) || ((mask & XLayoutPlan.HAS_RIGHT) == 0) ) {
+			if ( (mask & XLayoutPlan.HAS_WIDTH) != 0 )
+				width = xWidth;
+			else
+				width = preferredWidth;
+		}
+		
+		// Gets the Left() and Right()
+		if ( (mask & XLayoutPlan.HAS_LEFT) != 0 ) {
+			x = xLeft;
+			bHorizCenter = false;
+			if ( (mask & XLayoutPlan.HAS_RIGHT) != 0 )
+				width = cWidth - x - xRight;
+			else if ( (x + width) > cWidth )
+				width = cWidth - x;
+		}
+		else if ( (mask & XLayoutPlan.HAS_RIGHT) != 0 ) {
+			if ( (width + xRight) > cWidth )
+				width = cWidth - xRight;
+			else
+				x = cWidth - xRight - width;
+			bHorizCenter = false;
+		}
+		
+		// Calculating Vertically - y  - height -----------------------------------------------
+		if ( ((mask & XLayoutPlan.HAS_TOP) == 0) || ((mask & XLayoutPlan.HAS_BOTTOM) == 0) ) {
+			if ( (mask & XLayoutPlan.HAS_HEIGHT) != 0 )
+				height = xHeight;
+			else
+				height = preferredHeight;
+		}
+		
+		// Gets the Top() and Bottom()
+		if ( (mask & XLayoutPlan.HAS_TOP) != 0 ) {
+			y = xTop;
+			bVertCenter = false;
+			if ( (mask & XLayoutPlan.HAS_BOTTOM) != 0 )
+				height = cHeight - y - xBottom;
+			else if ( (y + height) > cHeight )
+				height = cHeight - y;
+		}
+		else if ( (mask & XLayoutPlan.HAS_BOTTOM) != 0 ) {
+			if ( (height + xBottom) > cHeight )
+				height = cHeight - xBottom;
+			else
+				y = cHeight - xBottom - height;
+			bVertCenter = false;
+		}
+		
+		// Gets the Horizontal Center
+		if ( bHorizCenter ) {
+			if ( width > cWidth )
+				width = cWidth;
+			else if ( (mask & XLayoutPlan.HAS_HORIZONTAL_CENTER) != 0 )
+				x = (cWidth / 2) - (width / 2) + xHorizCenter;
+		}
+		
+		// Gets the Vertical Center
+		if ( bVertCenter ) {
+			if ( height > cHeight )
+				height = cHeight;
+			else if ( (mask & XLayoutPlan.HAS_VERTICAL_CENTER) != 0 )
+				y = (cHeight / 2) - (height / 2) + xVertCenter;
+		}
+    	
+		// Validates X and Y
+		x = (x < 0) || (x > cWidth) ? 0 : x;
+		y = (y < 0) || (y > cHeight) ? 0 : y;
+		
+		// Correct Paddings if necessary
+		x += paddingLeft;
+		y += paddingTop;
+		
+		if ( keepMinimumSize ) {
+			// Correct The size - do not allow the component be smaller than it's minimum size
+			width = width < minimumWidth ? minimumWidth : width;
+			height = height < minimumHeight ? minimumHeight : height;
+		}
+		
+		bounds[offset] = x;
+		bounds[offset + 1] = y;
+		bounds[offset + 2] = width;
+		bounds[offset + 3] = height;
+    }
+	
+	/**
+	 * @return The insets plus the paddings of the owner at slot, horizontally.
+	 */
+	private static int extentWidth(XLayoutPlan plan, int insets[], int slot) {
+		int extent = plan.padding[slot * 4] + plan.padding[slot * 4 + 1];
+		if ( insets != null )
+			extent += insets[slot * 4] + insets[slot * 4 + 1];
+		return extent;
+	}
+	
+	/**
+	 * @return The insets plus the paddings of the owner at slot, vertically.
+	 */
+	private static int extentHeight(XLayoutPlan plan, int insets[], int slot) {
+		int extent = plan.padding[slot * 4 + 2] + plan.padding[slot * 4 + 3];
+		if ( insets != null )
+			extent += insets[slot * 4 + 2] + insets[slot * 4 + 3];
+		return extent;
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.monitor;
+
+/**
+ * The metrics of a single layout pass, or size computation, of an XLayout.
+ * Each event is tagged by the class of the form and the name of its
+ * XContainer annotation.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public final class XLayoutEvent {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	/**
+	 * Type of the events sent by layoutContainer.
+	 */
+	public final static int LAYOUT = 0;
+	
+	/**
+	 * Type of the events sent by preferredLayoutSize and minimumLayoutSize.
+	 */
+	public final static int SIZE = 1;
+	
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private final Class<?> formClass;
+	private final String containerName;
+	private final int type;
+	private final long durationNanos;
+	private final long scanNanos;
+	private final int componentsSolved;
+	private final int boundsApplied;
+	private final int boundsSkipped;
+	private final int sizeRequests;
+
+	/*---------------------------------------
+	 * CONSTRUCTORS
+	 */
+	public XLayoutEvent(Class<?> formClass, String containerName, int type,
+					long durationNanos, long scanNanos, int componentsSolved,
+					int boundsApplied, int boundsSkipped, int sizeRequests) {
+		this.formClass = formClass;
+		this.containerName = containerName;
+		this.type = type;
+		this.durationNanos = durationNanos;
+		this.scanNanos = scanNanos;
+		this.componentsSolved = componentsSolved;
+		this.boundsApplied = boundsApplied;
+		this.boundsSkipped = boundsSkipped;
+		this.sizeRequests = sizeRequests;
+	}
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * @return The class annotated with XContainer which was laid out.
+	 */
+	public Class<?> getFormClass() {
+		return this.formClass;
+	}
+	
+	/**
+	 * @return The name of the XContainer annotation of the form class.
+	 */
+	public String getContainerName() {
+		return this.containerName;
+	}
+	
+	/**
+	 * @return LAYOUT or SIZE.
+	 */
+	public int getType() {
+		return this.type;
+	}
+	
+	/**
+	 * @return How long the pass took, including the scan.
+	 */
+	public long getDurationNanos() {
+		return this.durationNanos;
+	}
+	
+	/**
+	 * @return How long the scan of the form and the construction of its
+	 * canvas took. Only the first pass of an XLayout scans, the next ones
+	 * return 0.
+	 */
+	public long getScanNanos() {
+		return this.scanNanos;
+	}
+	
+	/**
+	 * @return How many components had their bounds, or their size, computed.
+	 */
+	public int getComponentsSolved() {
+		return this.componentsSolved;
+	}
+	
+	/**
+	 * @return How many times setBounds was called.
+	 */
+	public int getBoundsApplied() {
+		return this.boundsApplied;
+	}
+	
+	/**
+	 * @return How many setBounds calls were skipped, because the bounds didn't change.
+	 */
+	public int getBoundsSkipped() {
+		return this.boundsSkipped;
+	}
+	
+	/**
+	 * @return How many times getPreferredSize or getMinimumSize was called
+	 * on a component, the sizes taken from the cache are not counted.
+	 */
+	public int getSizeRequests() {
+		return this.sizeRequests;
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.monitor;
+
+/**
+ * Registry of the XLayoutListeners.<br>
+ * While no listener is registered, the XLayouts don't measure anything nor
+ * create events, so the monitoring costs a single check per layout pass.<br><br>
+ * 
+ * To record the layouts with Java Flight Recorder and to publish them
+ * as JMX MBeans, call <b>XLayoutMonitor.install()</b> at startup.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public final class XLayoutMonitor {
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private static volatile XLayoutListener listeners[] = new XLayoutListener[0];
+	private static boolean installed = false;
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * Registers the listeners which emit the XLayout JFR events
+	 * and aggregate them into the XLayout MBeans.<br>
+	 * Only the first call registers them, the next ones do nothing.
+	 */
+	public static synchronized void install() {
+		if ( installed )
+			return;
+		addListener( new XLayoutRecorder() );
+		addListener( new XLayoutStatistics() );
+		installed = true;
+	}
+	
+	public static synchronized void addListener(XLayoutListener listener) {
+		XLayoutListener current[] = listeners;
+		XLayoutListener updated[] = new XLayoutListener[current.length + 1];
+		System.arraycopy( current, 0, updated, 0, current.length );
+		updated[current.length] = listener;
+		listeners = updated;
+	}
+	
+	public static synchronized void removeListener(XLayoutListener listener) {
+		XLayoutListener current[] = listeners;
+		for ( int i = 0; i < current.length; i++ ) {
+			if ( current[i] == listener ) {
+				XLayoutListener updated[] = new XLayoutListener[current.length - 1];
+				System.arraycopy( current, 0, updated, 0, i );
+				System.arraycopy( current, i + 1, updated, i, current.length - i - 1 );
+				listeners = updated;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * @return True if there's at least one listener.
+	 */
+	public static boolean isEnabled() {
+		return listeners.length > 0;
+	}
+	
+	/**
+	 * Sends event to all the listeners.
+	 */
+	public static void fireLayoutPerformed(XLayoutEvent event) {
+		XLayoutListener current[] = listeners;
+		for ( int i = 0; i < current.length; i++ )
+			current[i].layoutPerformed( event );
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits every XLayoutEvent as a <b>com.xiaosfx.Layout</b> Java Flight
+ * Recorder event, when that event is enabled in the recording.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutRecorder implements XLayoutListener {
+	
+	@Override
+	public void layoutPerformed(XLayoutEvent event) {
+		LayoutRecord record = new LayoutRecord();
+		if ( !record.isEnabled() )
+			return;
+		record.formClass = event.getFormClass();
+		record.containerName = event.getContainerName();
+		record.type = event.getType() == XLayoutEvent.LAYOUT ? "layout" : "size";
+		record.passDuration = event.getDurationNanos();
+		record.scan = event.getScanNanos();
+		record.componentsSolved = event.getComponentsSolved();
+		record.boundsApplied = event.getBoundsApplied();
+		record.boundsSkipped = event.getBoundsSkipped();
+		record.sizeRequests = event.getSizeRequests();
+		record.commit();
+	}
+	
+	/*---------------------------------------
+	 * JFR EVENT
+	 */
+	@Name("com.xiaosfx.Layout")
+	@Label("XLayout Pass")
+	@Category("XiaoS!Fx")
+	@Description("A layout pass, or size computation, of an XLayout")
+	static final class LayoutRecord extends Event {
+		@Label("Form Class")
+		Class<?> formClass;
+		
+		@Label("Container Name")
+		String containerName;
+		
+		@Label("Type")
+		String type;
+		
+		@Label("Pass Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long passDuration;
+		
+		@Label("Scan Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long scan;
+		
+		@Label("Components Solved")
+		int componentsSolved;
+		
+		@Label("setBounds Calls")
+		int boundsApplied;
+		
+		@Label("setBounds Skipped")
+		int boundsSkipped;
+		
+		@Label("Size Requests")
+		int sizeRequests;
+	}
+
+}
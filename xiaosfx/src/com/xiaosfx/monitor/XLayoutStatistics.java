@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Aggregates the XLayoutEvents by form class and container name, into one
+ * XLayoutStatsMBean each, registered in the platform MBeanServer the first
+ * time that form is laid out.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutStatistics implements XLayoutListener {
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private final static Logger LOGGER = Logger.getLogger( XLayoutStatistics.class.getName() );
+	
+	private final ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<String, Stats>();
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	@Override
+	public void layoutPerformed(XLayoutEvent event) {
+		String key = event.getFormClass().getName() + "#" + event.getContainerName();
+		Stats formStats = this.stats.get( key );
+		if ( formStats == null )
+			formStats = this.register( key, event );
+		formStats.add( event );
+	}
+	
+	/**
+	 * @return The totals of a form class, or null if it hasn't been laid out.
+	 */
+	public XLayoutStatsMBean getStats(Class<?> formClass, String containerName) {
+		return this.stats.get( formClass.getName() + "#" + containerName );
+	}
+	
+	private Stats register(String key, XLayoutEvent event) {
+		Stats formStats = new Stats();
+		Stats current = this.stats.putIfAbsent( key, formStats );
+		if ( current != null )
+			return current;
+		try {
+			ObjectName name = new ObjectName( "com.xiaosfx:type=XLayout,form=" +
+					ObjectName.quote(event.getFormClass().getName()) +
+					",name=" + ObjectName.quote(event.getContainerName()) );
+			if ( !ManagementFactory.getPlatformMBeanServer().isRegistered(name) )
+				ManagementFactory.getPlatformMBeanServer().registerMBean( new StandardMBean(formStats, XLayoutStatsMBean.class), name );
+		} catch (JMException e) {
+			// The statistics are still kept, they just aren't published
+			LOGGER.log( Level.WARNING, "Can't register the XLayout MBean of " + key, e );
+		}
+		return formStats;
+	}
+	
+	/*---------------------------------------
+	 * MBEAN
+	 */
+	static final class Stats implements XLayoutStatsMBean {
+		private final LongAdder layoutPasses = new LongAdder();
+		private final LongAdder sizeComputations = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final LongAccumulator maxNanos = new LongAccumulator( Math::max, 0 );
+		private final AtomicLong scanNanos = new AtomicLong();
+		private final LongAdder componentsSolved = new LongAdder();
+		private final LongAdder boundsApplied = new LongAdder();
+		private final LongAdder boundsSkipped = new LongAdder();
+		private final LongAdder sizeRequests = new LongAdder();
+		
+		void add(XLayoutEvent event) {
+			if ( event.getType() == XLayoutEvent.LAYOUT )
+				this.layoutPasses.increment();
+			else
+				this.sizeComputations.increment();
+			this.totalNanos.add( event.getDurationNanos() );
+			this.maxNanos.accumulate( event.getDurationNanos() );
+			this.scanNanos.addAndGet( event.getScanNanos() );
+			this.componentsSolved.add( event.getComponentsSolved() );
+			this.boundsApplied.add( event.getBoundsApplied() );
+			this.boundsSkipped.add( event.getBoundsSkipped() );
+			this.sizeRequests.add( event.getSizeRequests() );
+		}
+
+		@Override
+		public long getLayoutPasses() {
+			return this.layoutPasses.sum();
+		}
+
+		@Override
+		public long getSizeComputations() {
+			return this.sizeComputations.sum();
+		}
+
+		@Override
+		public long getTotalNanos() {
+			return this.totalNanos.sum();
+		}
+
+		@Override
+		public long getMaxNanos() {
+			return this.maxNanos.get();
+		}
+
+		@Override
+		public long getScanNanos() {
+			return this.scanNanos.get();
+		}
+
+		@Override
+		public long getComponentsSolved() {
+			return this.componentsSolved.sum();
+		}
+
+		@Override
+		public long getBoundsApplied() {
+			return this.boundsApplied.sum();
+		}
+
+		@Override
+		public long getBoundsSkipped() {
+			return this.boundsSkipped.sum();
+		}
+
+		@Override
+		public long getSizeRequests() {
+			return this.sizeRequests.sum();
+		}
+
+		@Override
+		public void reset() {
+			this.layoutPasses.reset();
+			this.sizeComputations.reset();
+			this.totalNanos.reset();
+			this.maxNanos.reset();
+			this.scanNanos.set( 0 );
+			this.componentsSolved.reset();
+			this.boundsApplied.reset();
+			this.boundsSkipped.reset();
+			this.sizeRequests.reset();
+		}
+	}
+
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import com.xiaosfx.XCompanion;
+import com.xiaosfx.XFieldTable;
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Optional annotation processor which generates, for every class annotated
+ * with XContainer, a companion class holding its parsed annotation values,
+ * straight-line reads of its fields, and the straight-line code which adds
+ * each component to its owner and solves its bounds, with the owners
+ * resolved and the constraints folded in at compile time (see XCompanion).<br>
+ * XLayout uses the companion when it's found, and only falls back to the
+ * Reflection scan when there's none.<br><br>
+ * 
+ * The processor isn't registered as a service, to enable it, compile the
+ * GUI classes with:<br>
+ * <b>javac -processor com.xiaosfx.processor.XLayoutProcessor ...</b><br><br>
+ * 
+ * Classes whose annotated fields can't be read from their package (private
+ * fields, or fields inherited from another package without being public)
+ * don't get a companion, and keep using Reflection.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+@SupportedAnnotationTypes("com.xiaosfx.annotation.XContainer")
+public class XLayoutProcessor extends AbstractProcessor {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	/**
+	 * How many fields each generated getFieldValue method reads,
+	 * to keep them small enough to be compiled by the JIT.
+	 */
+	private final static int FIELDS_PER_METHOD = 256;
+	
+	/**
+	 * Maximum length of each chunk of the encoded field table,
+	 * string constants can't be longer than 65535 bytes.
+	 */
+	private final static int CHUNK_LENGTH = 16384;
+	
+	/**
+	 * Owners of the fields which belong to the root container,
+	 * and of the ones whose owner can't be found.
+	 */
+	private final static int OWNER_ROOT = -1;
+	private final static int OWNER_NONE = -2;
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for ( Element element : roundEnv.getElementsAnnotatedWith(XContainer.class) ) {
+			if ( element.getKind() != ElementKind.CLASS )
+				continue;
+			TypeElement form = (TypeElement) element;
+			try {
+				this.generateCompanion( form );
+			} catch (IOException e) {
+				this.processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR,
+						"Unable to generate the XCompanion: " + e.getMessage(), form );
+			}
+		}
+		// Other processors may also want XContainer
+		return false;
+	}
+	
+	/**
+	 * Generates the companion of form, if all its annotated fields can be read.
+	 */
+	private void generateCompanion(TypeElement form) throws IOException {
+		if ( !this.isAccessible(form) ) {
+			this.note( form, "is not accessible from its package" );
+			return;
+		}
+		
+		PackageElement formPackage = this.processingEnv.getElementUtils().getPackageOf( form );
+		Vector<VariableElement> fields = this.getAnnotatedFields( form );
+		for ( VariableElement field : fields ) {
+			Set<Modifier> modifiers = field.getModifiers();
+			boolean samePackage = this.processingEnv.getElementUtils().getPackageOf( field ).equals( formPackage );
+			if ( modifiers.contains(Modifier.PRIVATE) ||
+					(!modifiers.contains(Modifier.PUBLIC) && !samePackage) ) {
+				this.note( form, "has annotated fields which can't be read from its package, such as " + field.getSimpleName() );
+				return;
+			}
+			if ( (field.getAnnotation(XComponent.class) != null) && this.isRepeated(field) &&
+					!this.isComponentElements(field) ) {
+				this.processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR,
+						"Field " + field.getSimpleName() + " is an array, or a List, whose elements aren't components.", field );
+				return;
+			}
+		}
+		
+		String binaryName = this.processingEnv.getElementUtils().getBinaryName( form ).toString();
+		String packageName = formPackage.isUnnamed() ? "" : formPackage.getQualifiedName().toString();
+		String simpleName = binaryName.substring( binaryName.lastIndexOf('.') + 1 ) + XCompanion.SUFFIX;
+		String qualifiedName = packageName.equals("") ? simpleName : packageName + "." + simpleName;
+		String formName = form.getQualifiedName().toString();
+		XContainer xroot = form.getAnnotation( XContainer.class );
+		
+		StringBuilder source = new StringBuilder();
+		if ( !packageName.equals("") )
+			source.append( "package " ).append( packageName ).append( ";\n\n" );
+		source.append( "/**\n * Generated by com.xiaosfx.processor.XLayoutProcessor, do not edit.\n */\n" );
+		source.append( "public final class " ).append( simpleName ).append( " implements com.xiaosfx.XCompanion {\n" );
+		
+		// Field names, owners and container names
+		source.append( "\tprivate final static String FIELD_NAMES[] = {" );
+		for ( VariableElement field : fields )
+			source.append( "\n\t\t" ).append( quote(field.getSimpleName().toString()) ).append( ',' );
+		source.append( "\n\t};\n" );
+		
+		source.append( "\tprivate final static String OWNERS[] = {" );
+		for ( VariableElement field : fields ) {
+			XComponent xcomponent = field.getAnnotation( XComponent.class );
+			source.append( "\n\t\t" ).append( xcomponent != null ? quote(xcomponent.owner()) : "null" ).append( ',' );
+		}
+		source.append( "\n\t};\n" );
+		
+		source.append( "\tprivate final static String CONTAINER_NAMES[] = {" );
+		for ( VariableElement field : fields ) {
+			XContainer xcontainer = field.getAnnotation( XContainer.class );
+			source.append( "\n\t\t" ).append( xcontainer != null ? quote(xcontainer.name()) : "null" ).append( ',' );
+		}
+		source.append( "\n\t};\n" );
+		
+		// Field table, encoded as strings so that big forms don't
+		// exceed the size limit of the static initializer
+		source.append( "\tprivate final static int FIELD_TABLE[] = decode( new String[] {\n\t\t\"" );
+		int chunkStart = source.length();
+		for ( VariableElement field : fields ) {
+			int row[] = new int[XFieldTable.FIELD_SIZE];
+			XComponent xcomponent = field.getAnnotation( XComponent.class );
+			if ( xcomponent != null ) {
+				row[XFieldTable.FLAGS] |= XFieldTable.COMPONENT;
+				row[XFieldTable.LEFT] = xcomponent.left();
+				row[XFieldTable.RIGHT] = xcomponent.right();
+				row[XFieldTable.TOP] = xcomponent.top();
+				row[XFieldTable.BOTTOM] = xcomponent.bottom();
+				row[XFieldTable.HORIZONTAL_CENTER] = xcomponent.horizontalCenter();
+				row[XFieldTable.VERTICAL_CENTER] = xcomponent.verticalCenter();
+				row[XFieldTable.WIDTH] = xcomponent.width();
+				row[XFieldTable.HEIGHT] = xcomponent.height();
+				row[XFieldTable.STRIDE] = xcomponent.stride();
+				row[XFieldTable.AXIS] = xcomponent.axis();
+				if ( this.isRepeated(field) )
+					row[XFieldTable.FLAGS] |= XFieldTable.REPEATED;
+			}
+			XContainer xcontainer = field.getAnnotation( XContainer.class );
+			if ( xcontainer != null ) {
+				row[XFieldTable.FLAGS] |= XFieldTable.CONTAINER;
+				row[XFieldTable.PADDING_LEFT] = xcontainer.paddingLeft();
+				row[XFieldTable.PADDING_RIGHT] = xcontainer.paddingRight();
+				row[XFieldTable.PADDING_TOP] = xcontainer.paddingTop();
+				row[XFieldTable.PADDING_BOTTOM] = xcontainer.paddingBottom();
+			}
+			for ( int i = 0; i < row.length; i++ ) {
+				if ( source.length() - chunkStart > CHUNK_LENGTH ) {
+					source.append( "\",\n\t\t\"" );
+					chunkStart = source.length();
+				}
+				source.append( row[i] == XComponent.NULL ? "n" : Integer.toString(row[i]) ).append( ' ' );
+			}
+		}
+		source.append( "\"\n\t} );\n\n" );
+		
+		// Root container
+		source.append( "\tpublic String getRootName() {\n\t\treturn " ).append( quote(xroot.name()) ).append( ";\n\t}\n\n" );
+		source.append( "\tpublic int[] getRootPadding() {\n\t\treturn new int[] { " )
+			.append( xroot.paddingLeft() ).append( ", " ).append( xroot.paddingRight() ).append( ", " )
+			.append( xroot.paddingTop() ).append( ", " ).append( xroot.paddingBottom() ).append( " };\n\t}\n\n" );
+		
+		source.append( "\tpublic String[] getFieldNames() {\n\t\treturn FIELD_NAMES;\n\t}\n\n" );
+		source.append( "\tpublic java.nio.IntBuffer getFieldTable() {\n\t\treturn java.nio.IntBuffer.wrap( FIELD_TABLE );\n\t}\n\n" );
+		source.append( "\tpublic String[] getOwners() {\n\t\treturn OWNERS;\n\t}\n\n" );
+		source.append( "\tpublic String[] getContainerNames() {\n\t\treturn CONTAINER_NAMES;\n\t}\n\n" );
+		
+		// Field reads, split into small methods
+		int methodCount = (fields.size() + FIELDS_PER_METHOD - 1) / FIELDS_PER_METHOD;
+		source.append( "\tpublic Object getFieldValue(Object form, int field) {\n" );
+		source.append( "\t\tswitch ( field / " ).append( FIELDS_PER_METHOD ).append( " ) {\n" );
+		for ( int m = 0; m < methodCount; m++ )
+			source.append( "\t\tcase " ).append( m ).append( ": return getFieldValue" ).append( m )
+				.append( "( (" ).append( formName ).append( ") form, field );\n" );
+		source.append( "\t\tdefault: throw new IndexOutOfBoundsException( \"Field: \" + field );\n\t\t}\n\t}\n\n" );
+		
+		for ( int m = 0; m < methodCount; m++ ) {
+			source.append( "\tprivate static Object getFieldValue" ).append( m ).append( "(" )
+				.append( formName ).append( " form, int field) {\n\t\tswitch ( field ) {\n" );
+			int end = Math.min( fields.size(), (m + 1) * FIELDS_PER_METHOD );
+			for ( int i = m * FIELDS_PER_METHOD; i < end; i++ )
+				source.append( "\t\tcase " ).append( i ).append( ": return form." )
+					.append( fields.get(i).getSimpleName() ).append( ";\n" );
+			source.append( "\t\tdefault: throw new IndexOutOfBoundsException( \"Field: \" + field );\n\t\t}\n\t}\n\n" );
+		}
+		
+		// Field writes, split the same way. Final fields can't be written
+		source.append( "\tpublic void setFieldValue(Object form, int field, Object value) {\n" );
+		source.append( "\t\tswitch ( field / " ).append( FIELDS_PER_METHOD ).append( " ) {\n" );
+		for ( int m = 0; m < methodCount; m++ )
+			source.append( "\t\tcase " ).append( m ).append( ": setFieldValue" ).append( m )
+				.append( "( (" ).append( formName ).append( ") form, field, value ); return;\n" );
+		source.append( "\t\tdefault: throw new IndexOutOfBoundsException( \"Field: \" + field );\n\t\t}\n\t}\n\n" );
+		
+		// The List fields are written through their erasure
+		for ( int m = 0; m < methodCount; m++ ) {
+			source.append( "\t@SuppressWarnings(\"unchecked\")\n" );
+			source.append( "\tprivate static void setFieldValue" ).append( m ).append( "(" )
+				.append( formName ).append( " form, int field, Object value) {\n\t\tswitch ( field ) {\n" );
+			int end = Math.min( fields.size(), (m + 1) * FIELDS_PER_METHOD );
+			for ( int i = m * FIELDS_PER_METHOD; i < end; i++ ) {
+				VariableElement field = fields.get( i );
+				source.append( "\t\tcase " ).append( i ).append( ": " );
+				if ( field.getModifiers().contains(Modifier.FINAL) )
+					source.append( "throw new UnsupportedOperationException( \"Final field: " )
+						.append( field.getSimpleName() ).append( "\" );\n" );
+				else
+					source.append( "form." ).append( field.getSimpleName() ).append( " = (" )
+						.append( this.processingEnv.getTypeUtils().erasure(field.asType()) )
+						.append( ") value; return;\n" );
+			}
+			source.append( "\t\tdefault: throw new IndexOutOfBoundsException( \"Field: \" + field );\n\t\t}\n\t}\n\n" );
+		}
+		
+		// Insertion of each component into its owner, resolved at compile time
+		int fieldOwner[] = this.resolveOwners( xroot.name(), fields );
+		source.append( "\tpublic void addComponent(Object form, java.awt.Container root, int field) {\n" );
+		source.append( "\t\tswitch ( field / " ).append( FIELDS_PER_METHOD ).append( " ) {\n" );
+		for ( int m = 0; m < methodCount; m++ )
+			source.append( "\t\tcase " ).append( m ).append( ": addComponent" ).append( m )
+				.append( "( (" ).append( formName ).append( ") form, root, field ); return;\n" );
+		source.append( "\t\tdefault: throw new IndexOutOfBoundsException( \"Field: \" + field );\n\t\t}\n\t}\n\n" );
+		
+		for ( int m = 0; m < methodCount; m++ ) {
+			source.append( "\tprivate static void addComponent" ).append( m ).append( "(" )
+				.append( formName ).append( " form, java.awt.Container root, int field) {\n\t\tswitch ( field ) {\n" );
+			int end = Math.min( fields.size(), (m + 1) * FIELDS_PER_METHOD );
+			for ( int i = m * FIELDS_PER_METHOD; i < end; i++ ) {
+				VariableElement field = fields.get( i );
+				if ( (field.getAnnotation(XComponent.class) == null) || this.isRepeated(field) )
+					continue;
+				source.append( "\t\tcase " ).append( i ).append( ": add( form." ).append( field.getSimpleName() )
+					.append( ", " );
+				if ( fieldOwner[i] == OWNER_ROOT )
+					source.append( "root" );
+				else if ( fieldOwner[i] == OWNER_NONE )
+					source.append( "null" );
+				else
+					source.append( "form." ).append( fields.get(fieldOwner[i]).getSimpleName() );
+				source.append( " ); return;\n" );
+			}
+			source.append( "\t\tdefault: throw new IllegalArgumentException( \"Not a component: \" + field );\n\t\t}\n\t}\n\n" );
+		}
+		
+		source.append( "\tprivate static void add(Object component, Object owner) {\n" );
+		source.append( "\t\tif ( component == null )\n\t\t\treturn;\n" );
+		source.append( "\t\tjava.awt.Component objComponent = (java.awt.Component) component;\n" );
+		source.append( "\t\tif ( objComponent.getParent() != null )\n" );
+		source.append( "\t\t\tobjComponent.getParent().remove( objComponent );\n" );
+		source.append( "\t\tif ( owner != null )\n" );
+		source.append( "\t\t\t((java.awt.Container) owner).add( objComponent );\n\t}\n\n" );
+		
+		// Bounds of each component, with its constraints folded in
+		source.append( "\tpublic void solveBounds(int field, int cWidth, int cHeight, int preferredWidth, int preferredHeight,\n" );
+		source.append( "\t\t\t\tboolean keepMinimumSize, int minimumWidth, int minimumHeight, int bounds[], int offset) {\n" );
+		source.append( "\t\tswitch ( field / " ).append( FIELDS_PER_METHOD ).append( " ) {\n" );
+		for ( int m = 0; m < methodCount; m++ )
+			source.append( "\t\tcase " ).append( m ).append( ": solveBounds" ).append( m )
+				.append( "( field, cWidth, cHeight, preferredWidth, preferredHeight, keepMinimumSize, minimumWidth, minimumHeight, bounds, offset ); return;\n" );
+		source.append( "\t\tdefault: throw new IndexOutOfBoundsException( \"Field: \" + field );\n\t\t}\n\t}\n\n" );
+		
+		for ( int m = 0; m < methodCount; m++ ) {
+			source.append( "\tprivate static void solveBounds" ).append( m )
+				.append( "(int field, int cWidth, int cHeight, int preferredWidth, int preferredHeight,\n" )
+				.append( "\t\t\t\tboolean keepMinimumSize, int minimumWidth, int minimumHeight, int bounds[], int offset) {\n" )
+				.append( "\t\tint x = 0;\n\t\tint y = 0;\n\t\tint width = 0;\n\t\tint height = 0;\n" )
+				.append( "\t\tswitch ( field ) {\n" );
+			int end = Math.min( fields.size(), (m + 1) * FIELDS_PER_METHOD );
+			int paddingLeft = 0;
+			int paddingTop = 0;
+			for ( int i = m * FIELDS_PER_METHOD; i < end; i++ ) {
+				XComponent xcomponent = fields.get( i ).getAnnotation( XComponent.class );
+				if ( xcomponent == null )
+					continue;
+				if ( fieldOwner[i] >= 0 ) {
+					XContainer xowner = fields.get( fieldOwner[i] ).getAnnotation( XContainer.class );
+					paddingLeft = xowner.paddingLeft();
+					paddingTop = xowner.paddingTop();
+				}
+				else {
+					paddingLeft = xroot.paddingLeft();
+					paddingTop = xroot.paddingTop();
+				}
+				source.append( "\t\tcase " ).append( i ).append( ":\n" );
+				appendAxis( source, "x", "width", "cWidth", "preferredWidth", xcomponent.left(), xcomponent.right(),
+							xcomponent.horizontalCenter(), xcomponent.width() );
+				appendAxis( source, "y", "height", "cHeight", "preferredHeight", xcomponent.top(), xcomponent.bottom(),
+							xcomponent.verticalCenter(), xcomponent.height() );
+				source.append( "\t\t\tx = (x < 0) || (x > cWidth) ? " ).append( constant(paddingLeft) )
+					.append( " : x + " ).append( constant(paddingLeft) ).append( ";\n" );
+				source.append( "\t\t\ty = (y < 0) || (y > cHeight) ? " ).append( constant(paddingTop) )
+					.append( " : y + " ).append( constant(paddingTop) ).append( ";\n" );
+				source.append( "\t\t\tbreak;\n" );
+			}
+			source.append( "\t\tdefault: throw new IllegalArgumentException( \"Not a component: \" + field );\n\t\t}\n" );
+			source.append( "\t\tif ( keepMinimumSize ) {\n" );
+			source.append( "\t\t\twidth = width < minimumWidth ? minimumWidth : width;\n" );
+			source.append( "\t\t\theight = height < minimumHeight ? minimumHeight : height;\n\t\t}\n" );
+			source.append( "\t\tbounds[offset] = x;\n\t\tbounds[offset + 1] = y;\n" );
+			source.append( "\t\tbounds[offset + 2] = width;\n\t\tbounds[offset + 3] = height;\n\t}\n\n" );
+		}
+		
+		source.append( "\tprivate static int[] decode(String chunks[]) {\n" );
+		source.append( "\t\tint table[] = new int[FIELD_NAMES.length * FIELD_SIZE];\n" );
+		source.append( "\t\tint i = 0;\n" );
+		source.append( "\t\tfor ( String chunk : chunks )\n" );
+		source.append( "\t\t\tfor ( String value : chunk.trim().split(\" \") )\n" );
+		source.append( "\t\t\t\tif ( value.length() > 0 )\n" );
+		source.append( "\t\t\t\t\ttable[i++] = value.equals(\"n\") ? com.xiaosfx.annotation.XComponent.NULL : Integer.parseInt(value);\n" );
+		source.append( "\t\treturn table;\n\t}\n\n" );
+		source.append( "}\n" );
+		
+		Writer writer = this.processingEnv.getFiler().createSourceFile( qualifiedName, form ).openWriter();
+		try {
+			writer.write( source.toString() );
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Returns the fields of form and of its superclasses with XComponent or
+	 * XContainer annotations, in the same order as Reflection.getAnnotatedFields.
+	 */
+	private Vector<VariableElement> getAnnotatedFields(TypeElement form) {
+		Vector<TypeElement> hierarchy = new Vector<TypeElement>();
+		TypeElement type = form;
+		while ( type != null ) {
+			String name = type.getQualifiedName().toString();
+			if ( name.startsWith("java.") || name.startsWith("javax.") )
+				break;
+			hierarchy.add( 0, type );
+			TypeMirror superclass = type.getSuperclass();
+			type = superclass.getKind() == TypeKind.DECLARED ?
+						(TypeElement) ((DeclaredType) superclass).asElement() : null;
+		}
+		
+		Vector<VariableElement> fields = new Vector<VariableElement>();
+		for ( TypeElement t : hierarchy )
+			for ( Element member : t.getEnclosedElements() )
+				if ( (member.getKind() == ElementKind.FIELD) &&
+						((member.getAnnotation(XComponent.class) != null) ||
+						(member.getAnnotation(XContainer.class) != null)) )
+					fields.add( (VariableElement) member );
+		return fields;
+	}
+	
+	/**
+	 * Resolves the owner of every field like XMetadata does: the root name
+	 * first, then the names of the containers, except the ones named like
+	 * the root, and an empty name is the root too.
+	 * @return The index of the owner field of each field, OWNER_ROOT or OWNER_NONE.
+	 */
+	private int[] resolveOwners(String rootName, Vector<VariableElement> fields) {
+		HashMap<String, Integer> containers = new HashMap<String, Integer>();
+		for ( int i = 0; i < fields.size(); i++ ) {
+			XContainer xcontainer = fields.get( i ).getAnnotation( XContainer.class );
+			if ( (xcontainer != null) && !xcontainer.name().equals(rootName) &&
+					!containers.containsKey(xcontainer.name()) )
+				containers.put( xcontainer.name(), Integer.valueOf(i) );
+		}
+		int owners[] = new int[fields.size()];
+		for ( int i = 0; i < fields.size(); i++ ) {
+			XComponent xcomponent = fields.get( i ).getAnnotation( XComponent.class );
+			Integer owner = xcomponent != null ? containers.get( xcomponent.owner() ) : null;
+			if ( xcomponent == null )
+				owners[i] = OWNER_NONE;
+			else if ( xcomponent.owner().equals(rootName) )
+				owners[i] = OWNER_ROOT;
+			else if ( owner != null )
+				owners[i] = owner.intValue();
+			else
+				owners[i] = xcomponent.owner().equals( "" ) ? OWNER_ROOT : OWNER_NONE;
+		}
+		return owners;
+	}
+	
+	/**
+	 * Appends the statements which solve one axis of a component, the
+	 * same way as XSolver.solveBounds, with the constraints as constants.
+	 * @param start The name of the position variable, x or y
+	 * @param size The name of the size variable, width or height
+	 */
+	private static void appendAxis(StringBuilder source, String start, String size, String content,
+					String preferred, int near, int far, int center, int fixed) {
+		boolean hasNear = near != XComponent.NULL;
+		boolean hasFar = far != XComponent.NULL;
+		if ( !hasNear || !hasFar )
+			source.append( "\t\t\t" ).append( size ).append( " = " )
+				.append( fixed != XComponent.NULL ? constant(fixed) : preferred ).append( ";\n" );
+		if ( !hasNear )
+			source.append( "\t\t\t" ).append( start ).append( " = 0;\n" );
+		if ( hasNear ) {
+			source.append( "\t\t\t" ).append( start ).append( " = " ).append( constant(near) ).append( ";\n" );
+			if ( hasFar )
+				source.append( "\t\t\t" ).append( size ).append( " = " ).append( content ).append( " - " )
+					.append( constant(near) ).append( " - " ).append( constant(far) ).append( ";\n" );
+			else
+				source.append( "\t\t\tif ( (" ).append( constant(near) ).append( " + " ).append( size ).append( ") > " )
+					.append( content ).append( " )\n\t\t\t\t" ).append( size ).append( " = " ).append( content )
+					.append( " - " ).append( constant(near) ).append( ";\n" );
+		}
+		else if ( hasFar ) {
+			source.append( "\t\t\tif ( (" ).append( size ).append( " + " ).append( constant(far) ).append( ") > " )
+				.append( content ).append( " )\n\t\t\t\t" ).append( size ).append( " = " ).append( content )
+				.append( " - " ).append( constant(far) ).append( ";\n\t\t\telse\n\t\t\t\t" ).append( start )
+				.append( " = " ).append( content ).append( " - " ).append( constant(far) ).append( " - " )
+				.append( size ).append( ";\n" );
+		}
+		else {
+			// Centered, or at 0, within the content
+			source.append( "\t\t\tif ( " ).append( size ).append( " > " ).append( content ).append( " )\n\t\t\t\t" )
+				.append( size ).append( " = " ).append( content ).append( ";\n" );
+			if ( center != XComponent.NULL )
+				source.append( "\t\t\telse\n\t\t\t\t" ).append( start ).append( " = (" ).append( content )
+					.append( " / 2) - (" ).append( size ).append( " / 2) + " ).append( constant(center) ).append( ";\n" );
+		}
+	}
+	
+	private static String constant(int value) {
+		return value < 0 ? "(" + value + ")" : Integer.toString( value );
+	}
+	
+	/**
+	 * Returns true if field is an array, or a List.
+	 */
+	private boolean isRepeated(VariableElement field) {
+		TypeMirror type = field.asType();
+		if ( type.getKind() == TypeKind.ARRAY )
+			return true;
+		TypeElement list = this.processingEnv.getElementUtils().getTypeElement( "java.util.List" );
+		return (list != null) && this.processingEnv.getTypeUtils().isAssignable(
+					this.processingEnv.getTypeUtils().erasure(type),
+					this.processingEnv.getTypeUtils().erasure(list.asType()) );
+	}
+	
+	/**
+	 * Returns true if the elements of the array, or List, field are components.
+	 * The elements of a raw List are cast when the field is read.
+	 */
+	private boolean isComponentElements(VariableElement field) {
+		Types types = this.processingEnv.getTypeUtils();
+		TypeMirror component = this.processingEnv.getElementUtils().getTypeElement( "java.awt.Component" ).asType();
+		TypeMirror type = field.asType();
+		if ( type.getKind() == TypeKind.ARRAY )
+			return types.isAssignable( ((ArrayType) type).getComponentType(), component );
+		
+		TypeElement list = this.processingEnv.getElementUtils().getTypeElement( "java.util.List" );
+		DeclaredType declared = (DeclaredType) type;
+		if ( declared.getTypeArguments().isEmpty() &&
+				!((TypeElement) declared.asElement()).getTypeParameters().isEmpty() )
+			return true;
+		return types.isAssignable( type, types.getDeclaredType(list, types.getWildcardType(component, null)) );
+	}
+	
+	/**
+	 * Returns true if form can be referenced from its own package.
+	 */
+	private boolean isAccessible(TypeElement form) {
+		Element element = form;
+		while ( element instanceof TypeElement ) {
+			TypeElement type = (TypeElement) element;
+			if ( (type.getNestingKind() == NestingKind.LOCAL) ||
+					(type.getNestingKind() == NestingKind.ANONYMOUS) ||
+					type.getModifiers().contains(Modifier.PRIVATE) )
+				return false;
+			element = type.getEnclosingElement();
+		}
+		return true;
+	}
+	
+	private void note(TypeElement form, String message) {
+		this.processingEnv.getMessager().printMessage( Diagnostic.Kind.NOTE,
+				form.getQualifiedName() + " " + message + ", no XCompanion generated.", form );
+	}
+	
+	private static String quote(String value) {
+		StringBuilder quoted = new StringBuilder( "\"" );
+		for ( int i = 0; i < value.length(); i++ ) {
+			char c = value.charAt( i );
+			if ( (c == '"') || (c == '\\') )
+				quoted.append( '\\' ).append( c );
+			else if ( (c < ' ') || (c > '~') )
+				quoted.append( String.format("\\u%04x", (int) c) );
+			else
+				quoted.append( c );
+		}
+		return quoted.append( '"' ).toString();
+	}
+
+}
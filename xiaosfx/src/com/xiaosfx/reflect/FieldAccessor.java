@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads, and writes, the value of a field without going through the access
+ * checks of java.lang.reflect.Field on every call.<br>
+ * The accessor is built once per field: it unreflects the field into a
+ * MethodHandle, which the JIT can inline, and only falls back to plain
+ * reflection when the MethodHandle can't be created. The setter is only
+ * unreflected the first time it's needed.<br>
+ * The calls which still go through java.lang.reflect.Field are counted,
+ * see {@link #getReflectiveCalls()}.<br>
+ * Do not use it, if you're only building a GUI<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public abstract class FieldAccessor {
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	private final static LongAdder REFLECTIVE_CALLS = new LongAdder();
+	
+	private final Field field;
+
+	/*---------------------------------------
+	 * CONSTRUCTORS
+	 */
+	FieldAccessor(Field field) {
+		this.field = field;
+	}
+
+	/*---------------------------------------
+	 * METHODS
+	 */
+	/**
+	 * Returns the fastest accessor available for the given field.
+	 */
+	public static FieldAccessor forField(Field field) {
+		try {
+			field.setAccessible( true );
+		} catch (RuntimeException e) {
+			// Not accessible (SecurityException, InaccessibleObjectException),
+			// the reflective accessor will report it when used.
+			return new ReflectiveAccessor( field );
+		}
+		try {
+			MethodHandle getter = MethodHandles.lookup().unreflectGetter( field );
+			return new MethodHandleAccessor( field, getter.asType(MethodType.methodType(Object.class, Object.class)) );
+		} catch (IllegalAccessException e) {
+			return new ReflectiveAccessor( field );
+		}
+	}
+	
+	/**
+	 * Returns the number of reads and writes which went through
+	 * java.lang.reflect.Field since the start of the JVM, all fields
+	 * included: the difference between two calls is the number of
+	 * reflective calls in between.
+	 */
+	public static long getReflectiveCalls() {
+		return REFLECTIVE_CALLS.sum();
+	}
+	
+	/**
+	 * @return The field read by this accessor.
+	 */
+	public Field getField() {
+		return this.field;
+	}
+	
+	/**
+	 * Returns the value of the field in object.
+	 * @throws IllegalStateException If the field can't be read
+	 */
+	public abstract Object get(Object object);
+	
+	/**
+	 * Sets the value of the field in object.
+	 * @throws IllegalStateException If the field can't be written, because it's final for instance
+	 */
+	public abstract void set(Object object, Object value);
+	
+	/*---------------------------------------
+	 * ACCESSORS
+	 */
+	private static final class MethodHandleAccessor extends FieldAccessor {
+		private final MethodHandle getter;
+		private volatile MethodHandle setter = null;
+		
+		MethodHandleAccessor(Field field, MethodHandle getter) {
+			super( field );
+			this.getter = getter;
+		}
+
+		@Override
+		public Object get(Object object) {
+			try {
+				return (Object) this.getter.invokeExact( object );
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException( e );
+			}
+		}
+
+		@Override
+		public void set(Object object, Object value) {
+			try {
+				MethodHandle setter = this.setter;
+				if ( setter == null ) {
+					setter = MethodHandles.lookup().unreflectSetter( this.getField() )
+								.asType( MethodType.methodType(void.class, Object.class, Object.class) );
+					this.setter = setter;
+				}
+				setter.invokeExact( object, value );
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException( e );
+			}
+		}
+	}
+	
+	private static final class ReflectiveAccessor extends FieldAccessor {
+		ReflectiveAccessor(Field field) {
+			super( field );
+		}
+
+		@Override
+		public Object get(Object object) {
+			REFLECTIVE_CALLS.increment();
+			try {
+				return this.getField().get( object );
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException( e );
+			}
+		}
+
+		@Override
+		public void set(Object object, Object value) {
+			REFLECTIVE_CALLS.increment();
+			try {
+				this.getField().set( object, value );
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException( e );
+			}
+		}
+	}
+
+}
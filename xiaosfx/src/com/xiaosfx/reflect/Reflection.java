@@ -30,6 +30,7 @@
 
 package com.xiaosfx.reflect;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.util.Vector;
 
@@ -47,28 +48,47 @@ import com.xiaosfx.annotation.XContainer;
  */
 public final class Reflection {
 	/**
-	 * Returns all the fields with XComponent annotation found in Class c.
+	 * Returns all the fields with XComponent annotation found in Class c
+	 * and in its superclasses.
 	 */
 	public static Field[] getComponents(Class<?> c) {
-		Field declaredFields[] = c.getDeclaredFields();
-		Vector<Field> components = new Vector<Field>();
-		for ( int i = 0; i < declaredFields.length; i++ )
-			if ( declaredFields[i].isAnnotationPresent(XComponent.class) )
-				components.add( declaredFields[i] );
-		Field fields[] = (Field[]) components.toArray(new Field[components.size()]);
-		return fields;
+		return getAnnotatedFields( c, XComponent.class );
 	}
 
 	/**
-	 * Returns all the fields with XContainer annotation found in Class c.
+	 * Returns all the fields with XContainer annotation found in Class c
+	 * and in its superclasses.
 	 */
 	public static Field[] getContainers(Class<?> c) {
-		Field declaredFields[] = c.getDeclaredFields();
-		Vector<Field> components = new Vector<Field>();
-		for ( int i = 0; i < declaredFields.length; i++ )
-			if ( declaredFields[i].isAnnotationPresent(XContainer.class) )
-				components.add( declaredFields[i] );
-		return (Field[]) components.toArray(new Field[components.size()]);
+		return getAnnotatedFields( c, XContainer.class );
+	}
+	
+	/**
+	 * Returns all the fields with any of the given annotations found in Class c
+	 * and in its superclasses. The fields of a superclass come before the fields
+	 * of its subclasses.<br>
+	 * The scan stops at the first class loaded by the bootstrap class loader
+	 * (java.awt, javax.swing...), since those will never hold annotated fields.
+	 */
+	@SafeVarargs
+	public static Field[] getAnnotatedFields(Class<?> c, Class<? extends Annotation>... annotations) {
+		Vector<Class<?>> hierarchy = new Vector<Class<?>>();
+		while ( (c != null) && (c.getClassLoader() != null) ) {
+			hierarchy.add( 0, c );
+			c = c.getSuperclass();
+		}
+		
+		Vector<Field> fields = new Vector<Field>();
+		for ( int i = 0; i < hierarchy.size(); i++ ) {
+			Field declaredFields[] = hierarchy.get(i).getDeclaredFields();
+			for ( int j = 0; j < declaredFields.length; j++ )
+				for ( int k = 0; k < annotations.length; k++ )
+					if ( declaredFields[j].isAnnotationPresent(annotations[k]) ) {
+						fields.add( declaredFields[j] );
+						break;
+					}
+		}
+		return (Field[]) fields.toArray(new Field[fields.size()]);
 	}
 	
 	/**
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * A displayed form with a container nested in another one.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+@XContainer(name="root")
+public class NestedForm extends DisplayedForm {
+	private static final long serialVersionUID = 1L;
+	
+	@XComponent(left=10, right=10, top=10, height=200, owner="root")
+	@XContainer(name="header", paddingLeft=2)
+	public JPanel header = new JPanel( null );
+	@XComponent(left=5, top=5, owner="header")
+	public JLabel title = new JLabel( "Title" );
+	@XComponent(left=5, right=5, top=40, bottom=5, owner="header")
+	@XContainer(name="inner", paddingTop=1)
+	public JPanel inner = new JPanel( null );
+	@XComponent(left=1, right=1, bottom=1, owner="inner")
+	public JTextField field = new JTextField( 10 );
+	@XComponent(left=10, bottom=10, width=80, owner="root")
+	public JButton cancel = new JButton( "Cancel" );
+	
+	public NestedForm() {
+		this.setLayout( new XLayout() );
+	}
+
+}
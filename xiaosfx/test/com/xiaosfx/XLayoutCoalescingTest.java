@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.awt.Component;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+import com.xiaosfx.monitor.XLayoutEvent;
+import com.xiaosfx.monitor.XLayoutListener;
+import com.xiaosfx.monitor.XLayoutMonitor;
+
+/**
+ * Checks the coalescing of the layout requests: the ones received during
+ * a frame are skipped, and the end of the frame, ticked by hand instead
+ * of the Timer, lays the form out once and exactly.<br>
+ * The tests run on the Event Dispatch Thread, so the Timer can't tick
+ * in the middle of them.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutCoalescingTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * A burst of resizes is laid out once when the frame is over,
+	 * with the last size, nested containers included.
+	 */
+	@Test
+	public void testBurst() throws Exception {
+		onEventDispatchThread( new Runnable() {
+			@Override
+			public void run() {
+				ShownForm form = new ShownForm();
+				XLayout layout = (XLayout) form.getLayout();
+				// A frame of a second, which the test never waits for
+				layout.setCoalescing( 1 );
+				PassCounter passes = new PassCounter();
+				XLayoutMonitor.addListener( passes );
+				try {
+					form.setSize( 400, 300 );
+					form.validateNow();
+					assertEquals( 1, passes.count );
+					assertEquals( 0, layout.getCoalescedPassCount() );
+					
+					for ( int width = 410; width <= 450; width += 10 ) {
+						form.setSize( width, 300 );
+						form.validateNow();
+					}
+					assertEquals( 1, passes.count );
+					assertEquals( 5, layout.getCoalescedPassCount() );
+					assertNotEquals( 450 - 20, form.header.getWidth() );
+					
+					layout.flushCoalesced();
+					assertEquals( 2, passes.count );
+					assertEquals( 5, layout.getCoalescedPassCount() );
+				}
+				finally {
+					XLayoutMonitor.removeListener( passes );
+				}
+				
+				ShownForm solved = new ShownForm();
+				solved.setSize( 450, 300 );
+				solved.validateNow();
+				assertBounds( solved.getComponents(), form.getComponents() );
+				assertBounds( solved.header.getComponents(), form.header.getComponents() );
+				assertBounds( solved.inner.getComponents(), form.inner.getComponents() );
+			}
+		} );
+	}
+	
+	/**
+	 * The requests on a form which isn't showing, like the ones of pack(),
+	 * are never skipped.
+	 */
+	@Test
+	public void testNotShowing() throws Exception {
+		onEventDispatchThread( new Runnable() {
+			@Override
+			public void run() {
+				HiddenForm form = new HiddenForm();
+				XLayout layout = (XLayout) form.getLayout();
+				layout.setCoalescing( 1 );
+				form.setSize( 400, 300 );
+				form.validateNow();
+				form.setSize( 450, 300 );
+				form.validateNow();
+				assertEquals( 0, layout.getCoalescedPassCount() );
+				assertEquals( 450 - 20, form.header.getWidth() );
+			}
+		} );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private static void onEventDispatchThread(Runnable test) throws Exception {
+		try {
+			SwingUtilities.invokeAndWait( test );
+		} catch (InvocationTargetException e) {
+			if ( e.getCause() instanceof Error )
+				throw (Error) e.getCause();
+			throw e;
+		}
+	}
+	
+	private static void assertBounds(Component expected[], Component actual[]) {
+		assertEquals( expected.length, actual.length );
+		for ( int i = 0; i < expected.length; i++ )
+			assertEquals( expected[i].getBounds(), actual[i].getBounds(), "Component " + i );
+	}
+	
+	/**
+	 * Counts the layout passes of the ShownForm root containers.
+	 */
+	private static class PassCounter implements XLayoutListener {
+		int count = 0;
+		
+		@Override
+		public void layoutPerformed(XLayoutEvent event) {
+			if ( (event.getFormClass() == ShownForm.class) && (event.getType() == XLayoutEvent.LAYOUT) &&
+					"root".equals(event.getContainerName()) )
+				this.count++;
+		}
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	@XContainer(name="root")
+	public static class HiddenForm extends DisplayedForm {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, right=10, top=10, height=200, owner="root")
+		@XContainer(name="header", paddingLeft=2)
+		public JPanel header = new JPanel( null );
+		@XComponent(left=5, top=5, owner="header")
+		public JLabel title = new JLabel( "Title" );
+		@XComponent(left=5, right=5, top=40, bottom=5, owner="header")
+		@XContainer(name="inner", paddingTop=1)
+		public JPanel inner = new JPanel( null );
+		@XComponent(left=1, right=1, bottom=1, owner="inner")
+		public JTextField field = new JTextField( 10 );
+		@XComponent(left=10, bottom=10, width=80, owner="root")
+		public JButton cancel = new JButton( "Cancel" );
+		
+		public HiddenForm() {
+			this.setLayout( new XLayout() );
+		}
+	}
+	
+	/**
+	 * Pretends it's showing, and validates itself like a displayed window.
+	 */
+	@XContainer(name="root")
+	public static class ShownForm extends HiddenForm {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public boolean isShowing() {
+			return true;
+		}
+		
+		@Override
+		public void validate() {
+			this.validateNow();
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Rectangle;
+
+import org.junit.jupiter.api.Test;
+
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Checks the delegation of the nested containers of a displayed form to
+ * their own XNestedLayout, which only lays out their direct children.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutDelegationTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * The layout of a nested container only moves its own components.
+	 */
+	@Test
+	public void testNestedOnly() {
+		NestedForm form = new NestedForm();
+		form.setSize( 640, 480 );
+		form.validateNow();
+		assertTrue( form.header.getLayout() instanceof XNestedLayout );
+		assertTrue( form.inner.getLayout() instanceof XNestedLayout );
+		// The field is at the bottom of the inner container, which is 155
+		// pixels high, including its top padding
+		assertEquals( new Rectangle(1, 155 - 1 - form.field.getHeight(), 606, form.field.getHeight()),
+					form.field.getBounds() );
+		
+		Rectangle cancel = form.cancel.getBounds();
+		Rectangle title = form.title.getBounds();
+		form.cancel.setBounds( 0, 0, 1, 1 );
+		form.title.setBounds( 0, 0, 1, 1 );
+		form.inner.setSize( 308, 100 );
+		layout( form.inner );
+		assertEquals( new Rectangle(1, 100 - 1 - form.field.getHeight(), 306, form.field.getHeight()),
+					form.field.getBounds() );
+		assertEquals( new Rectangle(0, 0, 1, 1), form.cancel.getBounds() );
+		assertEquals( new Rectangle(0, 0, 1, 1), form.title.getBounds() );
+		
+		layout( form.header );
+		assertEquals( title, form.title.getBounds() );
+		assertEquals( new Rectangle(0, 0, 1, 1), form.cancel.getBounds() );
+		form.validateNow();
+		assertEquals( cancel, form.cancel.getBounds() );
+	}
+	
+	/**
+	 * The nested containers laid out by their own validation get the same
+	 * bounds as when the root container lays out the whole form.
+	 */
+	@Test
+	public void testSameBounds() {
+		NestedForm delegated = new NestedForm();
+		HiddenNestedForm whole = new HiddenNestedForm();
+		int sizes[][] = { {640, 480}, {300, 200}, {1000, 900}, {50, 40} };
+		for ( int i = 0; i < sizes.length; i++ ) {
+			delegated.setSize( sizes[i][0], sizes[i][1] );
+			delegated.validateNow();
+			whole.setSize( sizes[i][0], sizes[i][1] );
+			layout( whole );
+			assertBounds( whole, delegated );
+		}
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private static void layout(Container container) {
+		container.getLayout().layoutContainer( container );
+	}
+	
+	/**
+	 * Compares the bounds of all the components inside the two containers, depth first.
+	 */
+	private static void assertBounds(Container expected, Container actual) {
+		Component expectedComponents[] = expected.getComponents();
+		Component actualComponents[] = actual.getComponents();
+		assertEquals( expectedComponents.length, actualComponents.length );
+		for ( int i = 0; i < expectedComponents.length; i++ ) {
+			assertEquals( expectedComponents[i].getBounds(), actualComponents[i].getBounds(), "Component " + i );
+			if ( expectedComponents[i] instanceof Container )
+				assertBounds( (Container) expectedComponents[i], (Container) actualComponents[i] );
+		}
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	/**
+	 * The same form, not displayable, so its root container lays it out entirely.
+	 */
+	@XContainer(name="root")
+	public static class HiddenNestedForm extends NestedForm {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public boolean isDisplayable() {
+			return false;
+		}
+	}
+
+}
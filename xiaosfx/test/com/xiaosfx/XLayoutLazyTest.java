@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Component;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+
+import org.junit.jupiter.api.Test;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Checks the lazy mode: the null fields are created by the component
+ * factory the first time their owner is laid out while it's visible,
+ * and only once.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutLazyTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * The fields of a hidden container are created when it's shown,
+	 * stored in their fields, added to their owner and laid out.
+	 */
+	@Test
+	public void testCreatedOnFirstShow() {
+		LazyForm form = new LazyForm();
+		RecordingFactory factory = new RecordingFactory();
+		XLayout layout = (XLayout) form.getLayout();
+		layout.setComponentFactory( factory );
+		form.details.setVisible( false );
+		
+		layout( form, 400, 300 );
+		assertEquals( Arrays.asList("title"), factory.created );
+		assertSame( form, form.title.getParent() );
+		assertEquals( new Rectangle(10, 10, 100, 20), form.title.getBounds() );
+		assertNull( form.name );
+		assertNull( form.email );
+		assertEquals( 0, form.details.getComponentCount() );
+		
+		form.details.setVisible( true );
+		layout( form, 400, 300 );
+		assertEquals( Arrays.asList("title", "name", "email"), factory.created );
+		assertSame( form.details, form.name.getParent() );
+		assertSame( form.details, form.email.getParent() );
+		assertEquals( new Rectangle(5, 5, 80, 20), form.name.getBounds() );
+		assertEquals( new Rectangle(90, 5, 285, 20), form.email.getBounds() );
+		
+		layout( form, 500, 300 );
+		assertEquals( 3, factory.created.size() );
+		assertEquals( new Rectangle(90, 5, 385, 20), form.email.getBounds() );
+	}
+	
+	/**
+	 * A field the factory leaves null is skipped, and asked again
+	 * by the next layout.
+	 */
+	@Test
+	public void testLeftNull() {
+		LazyForm form = new LazyForm();
+		RecordingFactory factory = new RecordingFactory();
+		factory.skipped = "email";
+		XLayout layout = (XLayout) form.getLayout();
+		layout.setComponentFactory( factory );
+		
+		layout( form, 400, 300 );
+		assertNull( form.email );
+		assertEquals( Arrays.asList("title", "name", "email"), factory.created );
+		
+		factory.skipped = null;
+		layout( form, 400, 300 );
+		assertEquals( Arrays.asList("title", "name", "email", "email"), factory.created );
+		assertSame( form.details, form.email.getParent() );
+		assertEquals( new Rectangle(90, 5, 285, 20), form.email.getBounds() );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private static void layout(JPanel form, int width, int height) {
+		form.setSize( width, height );
+		form.getLayout().layoutContainer( form );
+	}
+	
+	/**
+	 * Creates a label, or a text field, and records the name of every field it's asked for.
+	 */
+	private static class RecordingFactory implements XComponentFactory {
+		final List<String> created = new ArrayList<String>();
+		String skipped = null;
+		
+		@Override
+		public Component createComponent(Object form, String fieldName) {
+			this.created.add( fieldName );
+			if ( fieldName.equals(this.skipped) )
+				return null;
+			return fieldName.equals( "title" ) ? new JLabel( "Title" ) : new JTextField( 10 );
+		}
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	@XContainer(name="root")
+	public static class LazyForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, top=10, width=100, height=20, owner="root")
+		public JLabel title;
+		@XComponent(left=10, right=10, top=40, height=100, owner="root")
+		@XContainer(name="details")
+		public JPanel details = new JPanel( null );
+		@XComponent(left=5, top=5, width=80, height=20, owner="details")
+		public JTextField name;
+		@XComponent(left=90, right=5, top=5, height=20, owner="details")
+		public JTextField email;
+		
+		public LazyForm() {
+			this.setLayout( new XLayout() );
+		}
+	}
+
+}
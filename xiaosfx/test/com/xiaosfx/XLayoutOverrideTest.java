@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import javax.swing.JButton;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import com.xiaosfx.annotation.XComponent;
+
+/**
+ * Checks the constraints overridden at runtime, which only apply to
+ * one XLayout.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutOverrideTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * An overridden constraint of a component inside a nested container
+	 * is applied by the next validation, and cleared the same way.
+	 */
+	@Test
+	public void testNestedOverride() {
+		NestedForm form = new NestedForm();
+		form.setSize( 640, 480 );
+		form.validateNow();
+		// The inner container is 608 pixels wide: 640 - 10 - 10 - 2 - 5 - 5
+		assertEquals( 1, form.field.getX() );
+		assertEquals( 606, form.field.getWidth() );
+		
+		XLayout layout = (XLayout) form.getLayout();
+		layout.setConstraint( form.field, XLayout.LEFT, 40 );
+		form.validateNow();
+		assertEquals( 40, form.field.getX() );
+		assertEquals( 567, form.field.getWidth() );
+		
+		layout.clearConstraints( form.field );
+		form.validateNow();
+		assertEquals( 1, form.field.getX() );
+		assertEquals( 606, form.field.getWidth() );
+	}
+	
+	/**
+	 * The overrides of a form don't change the other forms of its class,
+	 * and unsetting a constraint gives the preferred size back.
+	 */
+	@Test
+	public void testOtherForms() {
+		NestedForm form = new NestedForm();
+		NestedForm other = new NestedForm();
+		form.setSize( 640, 480 );
+		form.validateNow();
+		XLayout layout = (XLayout) form.getLayout();
+		layout.setConstraint( form.cancel, XLayout.WIDTH, XComponent.NULL );
+		layout.setConstraint( form.cancel, XLayout.LEFT, 20 );
+		assertEquals( 20, layout.getConstraint(form.cancel, XLayout.LEFT) );
+		form.validateNow();
+		other.setSize( 640, 480 );
+		other.validateNow();
+		assertEquals( 20, form.cancel.getX() );
+		assertEquals( form.cancel.getPreferredSize().width, form.cancel.getWidth() );
+		assertEquals( 10, other.cancel.getX() );
+		assertEquals( 80, other.cancel.getWidth() );
+		assertEquals( 10, ((XLayout) other.getLayout()).getConstraint(other.cancel, XLayout.LEFT) );
+	}
+	
+	/**
+	 * Only the components of the form can be overridden, once it's laid out.
+	 */
+	@Test
+	public void testInvalidOverrides() {
+		final NestedForm form = new NestedForm();
+		final XLayout layout = (XLayout) form.getLayout();
+		assertThrows( IllegalStateException.class, new Executable() {
+			@Override
+			public void execute() {
+				layout.setConstraint( form.field, XLayout.LEFT, 40 );
+			}
+		} );
+		
+		form.setSize( 640, 480 );
+		form.validateNow();
+		assertThrows( IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				layout.setConstraint( new JButton(), XLayout.LEFT, 40 );
+			}
+		} );
+		assertThrows( IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				layout.setConstraint( form.field, XLayout.HEIGHT + 1, 40 );
+			}
+		} );
+	}
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JPanel;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the bounds solved in parallel, on a form above the threshold,
+ * are the ones solved sequentially. The form is generated and compiled by
+ * the test, it has several thousands of components.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutParallelTest {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	private final static String FORM_NAME = "forms.LargeForm";
+	private final static int GROUPS = 8;
+	private final static int COMPONENTS_PER_GROUP = 300;
+	private final static int THRESHOLD = 1000;
+	
+	private final static int SIZES[][] = { {640, 480}, {1200, 900}, {300, 200}, {1200, 900}, {50, 40} };
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	@Test
+	public void testParallelParity(@TempDir Path directory) throws Exception {
+		Class<?> formClass = compile( directory );
+		assertTrue( XMetadata.forClass(formClass).componentCount >= THRESHOLD );
+		
+		for ( boolean keepMinimumSize : new boolean[] { false, true } ) {
+			JPanel sequential = newForm( formClass, keepMinimumSize, 0 );
+			JPanel parallel = newForm( formClass, keepMinimumSize, THRESHOLD );
+			for ( int i = 0; i < SIZES.length; i++ ) {
+				sequential.setSize( SIZES[i][0], SIZES[i][1] );
+				sequential.getLayout().layoutContainer( sequential );
+				parallel.setSize( SIZES[i][0], SIZES[i][1] );
+				parallel.getLayout().layoutContainer( parallel );
+				assertEquals( getBounds(sequential), getBounds(parallel), "keepMinimumSize=" + keepMinimumSize +
+							", size " + SIZES[i][0] + "x" + SIZES[i][1] );
+			}
+		}
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	/**
+	 * Generates the source of a form with GROUPS nested containers, each one
+	 * holding COMPONENTS_PER_GROUP components with all kinds of constraints,
+	 * and a container nested one level deeper.
+	 */
+	private static String generateSource() {
+		StringBuilder source = new StringBuilder();
+		source.append( "package forms;\n" );
+		source.append( "import javax.swing.*;\n" );
+		source.append( "import com.xiaosfx.annotation.*;\n" );
+		source.append( "@XContainer(name=\"root\", paddingLeft=3, paddingTop=2)\n" );
+		source.append( "public class LargeForm extends JPanel {\n" );
+		for ( int group = 0; group < GROUPS; group++ ) {
+			int left = 10 + (group % 2) * 50;
+			source.append( "	@XComponent(left=" + left + ", right=" + (60 - left) + ", top=" + (10 + group * 40) +
+						", height=" + (30 + group) + ")\n" );
+			source.append( "	@XContainer(name=\"group" + group + "\", paddingLeft=2, paddingTop=1)\n" );
+			source.append( "	public JPanel group" + group + " = new JPanel( null );\n" );
+			source.append( "	@XComponent(left=5, right=5, bottom=5, height=40, owner=\"group" + group + "\")\n" );
+			source.append( "	@XContainer(name=\"inner" + group + "\")\n" );
+			source.append( "	public JPanel inner" + group + " = new JPanel( null );\n" );
+			source.append( "	@XComponent(horizontalCenter=0, verticalCenter=0, owner=\"inner" + group + "\")" +
+						" public JLabel centered" + group + " = new JLabel( \"Centered\" );\n" );
+			for ( int i = 0; i < COMPONENTS_PER_GROUP; i++ ) {
+				String constraints;
+				int top = 5 + i * 3;
+				switch ( i % 5 ) {
+					case 0: constraints = "left=5, top=" + top + ", width=80"; break;
+					case 1: constraints = "left=90, right=5, top=" + top + ", height=20"; break;
+					case 2: constraints = "right=5, top=" + top; break;
+					case 3: constraints = "horizontalCenter=" + (i % 7 - 3) + ", top=" + top + ", width=60"; break;
+					default: constraints = "left=" + (i % 11) + ", top=" + top + ", bottom=" + (i % 13); break;
+				}
+				String field = "c" + group + "_" + i;
+				if ( i % 2 == 0 )
+					source.append( "	@XComponent(" + constraints + ", owner=\"group" + group + "\")" +
+								" public JLabel " + field + " = new JLabel( \"Label " + i + "\" );\n" );
+				else
+					source.append( "	@XComponent(" + constraints + ", owner=\"group" + group + "\")" +
+								" public JTextField " + field + " = new JTextField( " + (i % 9) + " );\n" );
+			}
+		}
+		source.append( "	@XComponent(right=10, bottom=10, width=80) public JButton ok = new JButton( \"OK\" );\n" );
+		source.append( "}\n" );
+		return source.toString();
+	}
+	
+	/**
+	 * Compiles the form into directory, and loads it in its own class loader.
+	 */
+	private static Class<?> compile(Path directory) throws IOException, ClassNotFoundException {
+		Path source = directory.resolve( "src/forms/LargeForm.java" );
+		Path classes = directory.resolve( "classes" );
+		Files.createDirectories( source.getParent() );
+		Files.createDirectories( classes );
+		Files.write( source, generateSource().getBytes(StandardCharsets.UTF_8) );
+		
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		int result = compiler.run( null, null, null, "-classpath", System.getProperty("java.class.path"),
+					"-d", classes.toString(), "-proc:none", source.toString() );
+		assertEquals( 0, result, "Compilation of " + FORM_NAME );
+		
+		URLClassLoader loader = new URLClassLoader( new URL[] { classes.toUri().toURL() },
+					XLayoutParallelTest.class.getClassLoader() );
+		return Class.forName( FORM_NAME, true, loader );
+	}
+	
+	private static JPanel newForm(Class<?> formClass, boolean keepMinimumSize, int parallelThreshold)
+				throws ReflectiveOperationException {
+		JPanel form = (JPanel) formClass.getConstructor().newInstance();
+		XLayout layout = new XLayout( keepMinimumSize );
+		layout.setParallelThreshold( parallelThreshold );
+		form.setLayout( layout );
+		return form;
+	}
+	
+	/**
+	 * Returns the bounds of all the components inside container, depth first.
+	 */
+	private static List<String> getBounds(Container container) {
+		List<String> bounds = new ArrayList<String>();
+		for ( Component component : container.getComponents() ) {
+			bounds.add( component.getClass().getSimpleName() + " " + component.getBounds() );
+			if ( component instanceof Container )
+				bounds.addAll( getBounds((Container) component) );
+		}
+		return bounds;
+	}
+
+}
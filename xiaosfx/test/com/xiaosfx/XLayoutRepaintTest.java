@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+
+import org.junit.jupiter.api.Test;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Checks that a layout pass repaints each owner container once, with
+ * the union of the old and new bounds of the components it moved.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutRepaintTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	@Test
+	public void testOneRepaintPerOwner() {
+		RepaintForm form = new RepaintForm();
+		XLayout layout = (XLayout) form.getLayout();
+		layout( form, 400, 300 );
+		assertEquals( 3, layout.getRepaintCount() );
+		assertRepaints( form, new Rectangle(10, 10, 380, 280) );
+		assertRepaints( form.header, new Rectangle(5, 5, 370, 190) );
+		assertRepaints( form.inner, new Rectangle(1, 1, 368, 20) );
+		
+		// Nothing moved
+		layout( form, 400, 300 );
+		assertEquals( 0, layout.getRepaintCount() );
+		assertRepaints( form );
+		assertRepaints( form.header );
+		assertRepaints( form.inner );
+		
+		// The button on the right and the inner container moved in the header
+		layout( form, 500, 300 );
+		assertEquals( 3, layout.getRepaintCount() );
+		assertRepaints( form, new Rectangle(10, 10, 480, 200) );
+		assertRepaints( form.header, new Rectangle(5, 5, 470, 190) );
+		assertRepaints( form.inner, new Rectangle(1, 1, 468, 20) );
+		
+		// Only the root components moved
+		layout( form, 500, 400 );
+		assertEquals( 1, layout.getRepaintCount() );
+		assertRepaints( form, new Rectangle(10, 265, 80, 125) );
+		assertRepaints( form.header );
+		assertRepaints( form.inner );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private static void layout(JPanel form, int width, int height) {
+		form.setSize( width, height );
+		form.getLayout().layoutContainer( form );
+	}
+	
+	/**
+	 * Checks the repaints requested on panel since the last check.
+	 */
+	private static void assertRepaints(RepaintedPanel panel, Rectangle... expected) {
+		assertEquals( Arrays.asList(expected), panel.getRepaints() );
+		panel.getRepaints().clear();
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	/**
+	 * Records the regions it's asked to repaint.
+	 */
+	public static class RepaintedPanel extends JPanel {
+		private static final long serialVersionUID = 1L;
+		private final List<Rectangle> repaints = new ArrayList<Rectangle>();
+		
+		public RepaintedPanel() {
+			super( null );
+		}
+		
+		@Override
+		public void repaint(long tm, int x, int y, int width, int height) {
+			// Also called by the JPanel constructor
+			if ( this.repaints != null )
+				this.repaints.add( new Rectangle(x, y, width, height) );
+		}
+		
+		List<Rectangle> getRepaints() {
+			return this.repaints;
+		}
+	}
+	
+	@XContainer(name="root")
+	public static class RepaintForm extends RepaintedPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, right=10, top=10, height=200, owner="root")
+		@XContainer(name="header")
+		public RepaintedPanel header = new RepaintedPanel();
+		@XComponent(left=5, top=5, width=100, height=20, owner="header")
+		public JLabel title = new JLabel( "Title" );
+		@XComponent(right=5, top=5, width=60, height=20, owner="header")
+		public JLabel ok = new JLabel( "OK" );
+		@XComponent(left=5, right=5, top=40, bottom=5, owner="header")
+		@XContainer(name="inner")
+		public RepaintedPanel inner = new RepaintedPanel();
+		@XComponent(left=1, right=1, top=1, height=20, owner="inner")
+		public JTextField field = new JTextField( 10 );
+		@XComponent(left=10, bottom=10, width=80, height=25, owner="root")
+		public JLabel cancel = new JLabel( "Cancel" );
+		
+		public RepaintForm() {
+			this.setLayout( new XLayout() );
+			this.getRepaints().clear();
+		}
+	}
+
+}
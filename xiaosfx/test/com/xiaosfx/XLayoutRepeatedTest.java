@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Component;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Checks the Component[] and List fields, whose elements are laid out
+ * like as many fields.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutRepeatedTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * The elements of a Component[] and a List are laid out like the same
+	 * number of fields, moved by their stride, and follow the List changes.
+	 */
+	@Test
+	public void testRepeatedFields() {
+		RepeatedForm repeated = new RepeatedForm();
+		ExpandedForm expanded = new ExpandedForm();
+		layout( repeated, 400, 300 );
+		layout( expanded, 400, 300 );
+		assertBounds( new Component[] { expanded.button0, expanded.button1, expanded.button2 }, repeated.buttons );
+		assertBounds( new Component[] { expanded.label0, expanded.label1 },
+					repeated.labels.toArray(new Component[0]) );
+		assertEquals( expanded.getPreferredSize(), repeated.getPreferredSize() );
+		
+		JLabel added = new JLabel( "zzz" );
+		JLabel removed = repeated.labels.remove( 0 );
+		repeated.labels.add( added );
+		layout( repeated, 400, 300 );
+		assertEquals( 5, repeated.getComponentCount() );
+		assertNull( removed.getParent() );
+		assertSame( repeated, added.getParent() );
+		assertEquals( new Point(100, 5), repeated.labels.get(0).getLocation() );
+		assertEquals( new Point(190, 5), added.getLocation() );
+	}
+	
+	/**
+	 * An annotated array, or List, of something else than components is
+	 * rejected by the scan.
+	 */
+	@Test
+	public void testRepeatedNonComponents() {
+		assertThrows( IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				XLayout.prepare( StringsForm.class );
+			}
+		} );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private static void layout(JPanel form, int width, int height) {
+		form.setSize( width, height );
+		form.getLayout().layoutContainer( form );
+	}
+	
+	private static void assertBounds(Component expected[], Component actual[]) {
+		assertEquals( expected.length, actual.length );
+		for ( int i = 0; i < expected.length; i++ )
+			assertEquals( expected[i].getBounds(), actual[i].getBounds(), "Component " + i );
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	@XContainer(name="root")
+	public static class RepeatedForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, top=5, width=80, height=20, stride=25, owner="root")
+		public JButton buttons[] = { new JButton("a"), new JButton("b"), new JButton("c") };
+		@XComponent(left=100, top=5, stride=90, axis=XComponent.HORIZONTAL, owner="root")
+		public List<JLabel> labels = new ArrayList<JLabel>( Arrays.asList(new JLabel("x"), new JLabel("yy")) );
+		
+		public RepeatedForm() {
+			this.setLayout( new XLayout() );
+		}
+	}
+	
+	@XContainer(name="root")
+	public static class ExpandedForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, top=5, width=80, height=20, owner="root")
+		public JButton button0 = new JButton( "a" );
+		@XComponent(left=10, top=30, width=80, height=20, owner="root")
+		public JButton button1 = new JButton( "b" );
+		@XComponent(left=10, top=55, width=80, height=20, owner="root")
+		public JButton button2 = new JButton( "c" );
+		@XComponent(left=100, top=5, owner="root")
+		public JLabel label0 = new JLabel( "x" );
+		@XComponent(left=190, top=5, owner="root")
+		public JLabel label1 = new JLabel( "yy" );
+		
+		public ExpandedForm() {
+			this.setLayout( new XLayout() );
+		}
+	}
+	
+	@XContainer(name="root")
+	public static class StringsForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, top=5, stride=25, owner="root")
+		public String names[] = { "a", "b" };
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Component;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the cache of the layout results, by size of the root container.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutResultCacheTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * The cached results give the same bounds as solving the constraints,
+	 * the nested containers being laid out by their own validation, and
+	 * are dropped when a preferred size changes.
+	 */
+	@Test
+	public void testResultCache() {
+		NestedForm cached = new NestedForm();
+		NestedForm solved = new NestedForm();
+		XLayout layout = (XLayout) cached.getLayout();
+		layout.setResultCacheSize( 2 );
+		int sizes[][] = { {640, 480}, {300, 200}, {640, 480}, {300, 200}, {1000, 900}, {640, 480} };
+		for ( int i = 0; i < sizes.length; i++ ) {
+			if ( i == 4 ) {
+				cached.title.setText( "A much longer title" );
+				solved.title.setText( "A much longer title" );
+			}
+			cached.setSize( sizes[i][0], sizes[i][1] );
+			cached.validateNow();
+			solved.setSize( sizes[i][0], sizes[i][1] );
+			solved.validateNow();
+			assertBounds( solved.getComponents(), cached.getComponents() );
+			assertBounds( solved.header.getComponents(), cached.header.getComponents() );
+			assertBounds( solved.inner.getComponents(), cached.inner.getComponents() );
+		}
+		assertEquals( 2, layout.getResultCacheHits() );
+		assertEquals( 4, layout.getResultCacheMisses() );
+	}
+	
+	/**
+	 * An overridden constraint drops the cached results.
+	 */
+	@Test
+	public void testOverride() {
+		NestedForm form = new NestedForm();
+		XLayout layout = (XLayout) form.getLayout();
+		layout.setResultCacheSize( 2 );
+		form.setSize( 640, 480 );
+		form.validateNow();
+		form.setSize( 300, 200 );
+		form.validateNow();
+		
+		layout.setConstraint( form.cancel, XLayout.LEFT, 20 );
+		form.setSize( 640, 480 );
+		form.validateNow();
+		assertEquals( 20, form.cancel.getX() );
+		assertEquals( 0, layout.getResultCacheHits() );
+		assertEquals( 3, layout.getResultCacheMisses() );
+		
+		form.setSize( 300, 200 );
+		form.validateNow();
+		form.setSize( 640, 480 );
+		form.validateNow();
+		assertEquals( 20, form.cancel.getX() );
+		assertEquals( 1, layout.getResultCacheHits() );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private static void assertBounds(Component expected[], Component actual[]) {
+		assertEquals( expected.length, actual.length );
+		for ( int i = 0; i < expected.length; i++ )
+			assertEquals( expected[i].getBounds(), actual[i].getBounds(), "Component " + i );
+	}
+
+}
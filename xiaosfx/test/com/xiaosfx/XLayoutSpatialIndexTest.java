@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Component;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Checks the hit testing of the spatial index against the order of AWT, and
+ * that the index follows the components moved, hidden or replaced.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutSpatialIndexTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * The component found at each point, every 5 pixels, is the one AWT finds.
+	 */
+	@Test
+	public void testHitTest() {
+		IndexedForm form = new IndexedForm();
+		XLayout layout = layout( form, 700, 600 );
+		assertHits( layout, form );
+		assertHits( layout, form.box );
+		assertSame( form.front, layout.getComponentAt(form, 60, 60) );
+		assertSame( form.back, layout.getComponentAt(form, 10, 10) );
+		assertSame( form.inner, layout.getComponentAt(form.box, 15, 15) );
+		assertNull( layout.getComponentAt(form, 250, 10) );
+		assertNull( layout.getComponentAt(form, -1, 10) );
+		
+		// The hidden components are skipped
+		form.front.setVisible( false );
+		assertSame( form.back, layout.getComponentAt(form, 60, 60) );
+		assertHits( layout, form );
+	}
+	
+	@Test
+	public void testComponentsIn() {
+		IndexedForm form = new IndexedForm();
+		XLayout layout = layout( form, 700, 600 );
+		assertComponentsIn( layout, form, new Rectangle(40, 40, 20, 20), form.front, form.back );
+		// The containers are added first, so they're on top
+		assertComponentsIn( layout, form, new Rectangle(0, 0, 700, 600), form.box, form.front, form.back, form.far );
+		assertComponentsIn( layout, form, new Rectangle(210, 210, 50, 50) );
+		assertComponentsIn( layout, form.box, new Rectangle(0, 0, 15, 15), form.inner );
+	}
+	
+	/**
+	 * A component anchored on the right and bottom moves with the size of
+	 * the form, across the cells of the grid.
+	 */
+	@Test
+	public void testMovedComponent() {
+		IndexedForm form = new IndexedForm();
+		XLayout layout = layout( form, 700, 600 );
+		assertSame( form.far, layout.getComponentAt(form, 650, 550) );
+		
+		layout( form, 1000, 900 );
+		assertNull( layout.getComponentAt(form, 650, 550) );
+		assertSame( form.far, layout.getComponentAt(form, 950, 850) );
+		assertHits( layout, form );
+	}
+	
+	/**
+	 * The component of a replaced field takes the place of the old one in
+	 * the index, whether it's moved or it's already in place.
+	 */
+	@Test
+	public void testReplacedField() {
+		IndexedForm form = new IndexedForm();
+		XLayout layout = layout( form, 700, 600 );
+		assertSame( form.front, layout.getComponentAt(form, 60, 60) );
+		
+		JLabel replaced = form.front;
+		form.front = replace( form, replaced, new JLabel("New front") );
+		layout.layoutContainer( form );
+		assertSame( form.front, layout.getComponentAt(form, 60, 60) );
+		assertHits( layout, form );
+		
+		replaced = form.front;
+		form.front = replace( form, replaced, new JLabel("New front") );
+		form.front.setBounds( replaced.getBounds() );
+		layout.layoutContainer( form );
+		assertSame( form.front, layout.getComponentAt(form, 60, 60) );
+		assertHits( layout, form );
+	}
+	
+	@Test
+	public void testInvalidQueries() {
+		final IndexedForm form = new IndexedForm();
+		final XLayout layout = layout( form, 700, 600 );
+		assertThrows( IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				layout.getComponentAt( new JPanel(), 0, 0 );
+			}
+		} );
+		
+		layout.setSpatialIndexed( false );
+		assertThrows( IllegalStateException.class, new Executable() {
+			@Override
+			public void execute() {
+				layout.getComponentAt( form, 0, 0 );
+			}
+		} );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private static XLayout layout(JPanel form, int width, int height) {
+		form.setSize( width, height );
+		XLayout layout = (XLayout) form.getLayout();
+		layout.layoutContainer( form );
+		return layout;
+	}
+	
+	/**
+	 * Puts component in the place of replaced, on top like it.
+	 */
+	private static JLabel replace(JPanel form, JLabel replaced, JLabel component) {
+		form.remove( replaced );
+		form.add( component, 0 );
+		return component;
+	}
+	
+	/**
+	 * Checks that the spatial index finds the first visible child of owner,
+	 * in the order of AWT, every 5 pixels.
+	 */
+	private static void assertHits(XLayout layout, JPanel owner) {
+		for ( int y = 0; y < owner.getHeight(); y += 5 )
+			for ( int x = 0; x < owner.getWidth(); x += 5 ) {
+				Component expected = null;
+				for ( int i = 0; (expected == null) && (i < owner.getComponentCount()); i++ ) {
+					Component child = owner.getComponent( i );
+					if ( child.isVisible() && child.getBounds().contains(x, y) )
+						expected = child;
+				}
+				assertSame( expected, layout.getComponentAt(owner, x, y), x + ", " + y );
+			}
+	}
+	
+	private static void assertComponentsIn(XLayout layout, JPanel owner, Rectangle rect, Component... expected) {
+		List<Component> result = new ArrayList<Component>();
+		layout.getComponentsIn( owner, rect, result );
+		assertEquals( Arrays.asList(expected), result );
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	@XContainer(name="root")
+	public static class IndexedForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		// On top of back, its width comes from its preferred size
+		@XComponent(left=50, top=50, height=50)
+		public JLabel front = new JLabel( "Front" );
+		@XComponent(left=0, top=0, width=200, height=200)
+		public JButton back = new JButton( "Back" );
+		@XComponent(left=300, top=0, width=200, height=200)
+		@XContainer(name="box")
+		public JPanel box = new JPanel( null );
+		@XComponent(left=10, top=10, width=20, height=20, owner="box")
+		public JLabel inner = new JLabel( "Inner" );
+		@XComponent(right=10, bottom=10, width=100, height=100)
+		public JLabel far = new JLabel( "Far" );
+		
+		public IndexedForm() {
+			XLayout layout = new XLayout();
+			layout.setSpatialIndexed( true );
+			this.setLayout( layout );
+		}
+	}
+	
+}
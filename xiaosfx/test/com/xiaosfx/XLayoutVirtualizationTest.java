@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JViewport;
+
+import org.junit.jupiter.api.Test;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Checks the virtualization of a form scrolled in a JViewport: the root
+ * components out of sight are left pending, and laid out as they're
+ * scrolled into sight.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutVirtualizationTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * A nested container out of sight is left pending, and its own
+	 * components are laid out when it's scrolled into sight.
+	 */
+	@Test
+	public void testVirtualizedNested() {
+		VirtualForm form = new VirtualForm();
+		JViewport viewport = new JViewport();
+		viewport.setView( form );
+		viewport.setSize( 400, 200 );
+		form.setSize( 400, 2000 );
+		form.validateNow();
+		XLayout layout = (XLayout) form.getLayout();
+		assertEquals( 2, layout.getPendingCount() );
+		assertEquals( new Rectangle(10, 10, 100, 20), form.label.getBounds() );
+		assertEquals( new Rectangle(), form.row.getBounds() );
+		
+		viewport.setViewPosition( new Point(0, 1450) );
+		assertEquals( 1, layout.getPendingCount() );
+		assertEquals( new Rectangle(10, 1500, 380, 100), form.row.getBounds() );
+		assertEquals( new Rectangle(5, 5, 370, 20), form.inRow.getBounds() );
+	}
+	
+	/**
+	 * A pending component whose field is cleared is dropped from the
+	 * pending ones by the next layout, and the scrolling ignores it.
+	 */
+	@Test
+	public void testClearedPendingField() {
+		VirtualForm form = new VirtualForm();
+		JViewport viewport = new JViewport();
+		viewport.setView( form );
+		viewport.setSize( 400, 200 );
+		form.setSize( 400, 2000 );
+		form.validateNow();
+		XLayout layout = (XLayout) form.getLayout();
+		assertEquals( 2, layout.getPendingCount() );
+		
+		JLabel far = form.far;
+		form.far = null;
+		form.setSize( 380, 2000 );
+		form.validateNow();
+		assertEquals( 1, layout.getPendingCount() );
+		
+		viewport.setViewPosition( new Point(0, 1450) );
+		assertEquals( 0, layout.getPendingCount() );
+		assertEquals( new Rectangle(), far.getBounds() );
+		assertEquals( new Rectangle(10, 1500, 360, 100), form.row.getBounds() );
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	@XContainer(name="root")
+	public static class VirtualForm extends DisplayedForm {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, top=10, width=100, height=20, owner="root")
+		public JLabel label = new JLabel( "Label" );
+		@XComponent(left=10, right=10, top=1500, height=100, owner="root")
+		@XContainer(name="row")
+		public JPanel row = new JPanel( null );
+		@XComponent(left=5, right=5, top=5, height=20, owner="row")
+		public JLabel inRow = new JLabel( "In row" );
+		@XComponent(left=10, top=1800, width=100, height=20, owner="root")
+		public JLabel far = new JLabel( "Far" );
+		
+		public VirtualForm() {
+			XLayout layout = new XLayout();
+			layout.setVirtualized( true );
+			layout.setVirtualMargin( 0 );
+			this.setLayout( layout );
+		}
+	}
+
+}
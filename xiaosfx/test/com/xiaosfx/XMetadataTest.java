@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Checks the errors and warnings found while the owners of the fields
+ * are resolved and the containers sorted.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XMetadataTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	@Test
+	public void testDuplicatedOwnerName() {
+		IllegalArgumentException e = assertInvalid( DuplicatedForm.class );
+		assertTrue( e.getMessage().contains("Owner \"box\" of field label is the name of more than one container"),
+					e.getMessage() );
+	}
+	
+	@Test
+	public void testOwnerCycle() {
+		IllegalArgumentException e = assertInvalid( CycleForm.class );
+		assertTrue( e.getMessage().contains("There's a cycle between the containers: first second"), e.getMessage() );
+	}
+	
+	@Test
+	public void testMissingOwner() {
+		XMetadata metadata = XMetadata.forClass( MissingOwnerForm.class );
+		assertEquals( 1, metadata.getWarnings().length );
+		assertTrue( metadata.getWarnings()[0].contains("Field lost of " + MissingOwnerForm.class.getName() +
+					" won't be displayed, there's no container named \"nowhere\""), metadata.getWarnings()[0] );
+		
+		MissingOwnerForm form = new MissingOwnerForm();
+		form.setSize( 200, 100 );
+		form.getLayout().layoutContainer( form );
+		assertSame( form, form.shown.getParent() );
+		assertNull( form.lost.getParent() );
+	}
+	
+	/**
+	 * A nested container with the name of the root container, like the
+	 * default "" of both, is only a warning: the components with that owner
+	 * go to the root container.
+	 */
+	@Test
+	public void testContainerNamedLikeRoot() {
+		XMetadata metadata = XMetadata.forClass( UnnamedNestedForm.class );
+		assertEquals( 1, metadata.getWarnings().length );
+		assertTrue( metadata.getWarnings()[0].contains("has the name of the root container"), metadata.getWarnings()[0] );
+		
+		UnnamedNestedForm form = new UnnamedNestedForm();
+		form.setSize( 200, 100 );
+		form.getLayout().layoutContainer( form );
+		assertSame( form, form.panel.getParent() );
+		assertSame( form, form.label.getParent() );
+		assertEquals( 10, form.label.getX() );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private static IllegalArgumentException assertInvalid(final Class<?> formClass) {
+		return assertThrows( IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				XMetadata.forClass( formClass );
+			}
+		} );
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	@XContainer(name="root")
+	public static class DuplicatedForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=0, top=0, owner="root")
+		@XContainer(name="box")
+		public JPanel first = new JPanel( null );
+		@XComponent(left=0, top=50, owner="root")
+		@XContainer(name="box")
+		public JPanel second = new JPanel( null );
+		@XComponent(left=0, top=0, owner="box")
+		public JLabel label = new JLabel( "Label" );
+	}
+	
+	@XContainer(name="root")
+	public static class CycleForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=0, top=0, owner="second")
+		@XContainer(name="first")
+		public JPanel first = new JPanel( null );
+		@XComponent(left=0, top=0, owner="first")
+		@XContainer(name="second")
+		public JPanel second = new JPanel( null );
+	}
+	
+	@XContainer(name="root")
+	public static class MissingOwnerForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, top=10, owner="root")
+		public JButton shown = new JButton( "Shown" );
+		@XComponent(left=10, top=40, owner="nowhere")
+		public JLabel lost = new JLabel( "Lost" );
+		
+		public MissingOwnerForm() {
+			this.setLayout( new XLayout() );
+		}
+	}
+	
+	@XContainer
+	public static class UnnamedNestedForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=0, top=50, width=100, height=40)
+		@XContainer
+		public JPanel panel = new JPanel( null );
+		@XComponent(left=10, top=10)
+		public JLabel label = new JLabel( "Label" );
+		
+		public UnnamedNestedForm() {
+			this.setLayout( new XLayout() );
+		}
+	}
+
+}
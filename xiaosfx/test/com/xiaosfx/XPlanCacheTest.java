@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Component;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Checks the plan cache: the files written by a scan are read back by the
+ * next ones, and the stale, truncated or corrupted files are misses which
+ * are written again.<br>
+ * Each scan, or read, is made on a copy of CachedForm loaded by a new class
+ * loader, since the metadata of a class is only built once.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XPlanCacheTest {
+	/*---------------------------------------
+	 * ATTRIBUTES
+	 */
+	@TempDir
+	Path directory;
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	@BeforeEach
+	public void setUp() {
+		XPlanCache.setDirectory( this.directory.toFile() );
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		XPlanCache.setDirectory( null );
+	}
+	
+	/**
+	 * The first scan writes the file, the next class reads it and lays
+	 * out its forms like the scanned one.
+	 */
+	@Test
+	public void testRoundTrip() throws Exception {
+		XMetadata scanned = XMetadata.forClass( loadFormClass() );
+		assertFalse( scanned.isCached() );
+		assertTrue( this.planFile().isFile() );
+		
+		XMetadata cached = XMetadata.forClass( loadFormClass() );
+		assertTrue( cached.isCached() );
+		assertFalse( cached.isCompiled() );
+		assertEquals( scanned.getComponentCount(), cached.getComponentCount() );
+		assertEquals( scanned.getContainerCount(), cached.getContainerCount() );
+		
+		XPlanCache.CachedPlan plan = XPlanCache.load( CachedForm.class );
+		assertNotNull( plan );
+		assertEquals( "root", plan.getRootName() );
+		assertArrayEquals( new int[] { 1, 2, 3, 4 }, plan.getRootPadding() );
+		assertArrayEquals( new String[] { "box", "label", "button" }, plan.getFieldNames() );
+		assertArrayEquals( new String[] { "", "box", "" }, plan.getOwners() );
+		assertArrayEquals( new String[] { "inner", null, null }, plan.getContainerNames() );
+		assertEquals( 3 * XFieldTable.FIELD_SIZE, plan.getFieldTable().limit() );
+		assertEquals( XFieldTable.COMPONENT | XFieldTable.CONTAINER, plan.getFieldTable().get(XFieldTable.FLAGS) );
+		assertEquals( 5, plan.getFieldTable().get(XFieldTable.PADDING_LEFT) );
+		assertEquals( 20, plan.getFieldTable().get(2 * XFieldTable.FIELD_SIZE + XFieldTable.TOP) );
+		
+		Component expected[] = layout( new CachedForm() );
+		Component actual[] = layout( (JPanel) loadFormClass().getConstructor().newInstance() );
+		for ( int i = 0; i < expected.length; i++ )
+			assertEquals( expected[i].getBounds(), actual[i].getBounds(), "Field " + i );
+	}
+	
+	/**
+	 * A class file with another modification time makes the file stale:
+	 * it's ignored, and written again by the next scan.
+	 */
+	@Test
+	public void testStaleFile() throws Exception {
+		XMetadata.forClass( loadFormClass() );
+		assertNotNull( XPlanCache.load(CachedForm.class) );
+		
+		String resource = "/" + CachedForm.class.getName().replace( '.', '/' ) + ".class";
+		File classFile = new File( CachedForm.class.getResource(resource).toURI() );
+		long lastModified = classFile.lastModified();
+		try {
+			assertTrue( classFile.setLastModified(lastModified - 10000) );
+			assertNull( XPlanCache.load(CachedForm.class) );
+			
+			XMetadata rebuilt = XMetadata.forClass( loadFormClass() );
+			assertFalse( rebuilt.isCached() );
+			assertNotNull( XPlanCache.load(CachedForm.class) );
+			assertTrue( XMetadata.forClass(loadFormClass()).isCached() );
+		} finally {
+			classFile.setLastModified( lastModified );
+		}
+	}
+	
+	/**
+	 * A file cut inside its field table, or inside its names, is a miss,
+	 * and it's written again by the next scan.
+	 */
+	@Test
+	public void testTruncatedFile() throws Exception {
+		XMetadata.forClass( loadFormClass() );
+		long length = this.planFile().length();
+		
+		truncate( this.planFile(), XPlanCache.HEADER_SIZE + 8 );
+		assertNull( XPlanCache.load(CachedForm.class) );
+		
+		XMetadata.forClass( loadFormClass() );
+		assertEquals( length, this.planFile().length() );
+		truncate( this.planFile(), length - 3 );
+		assertNull( XPlanCache.load(CachedForm.class) );
+		
+		assertFalse( XMetadata.forClass(loadFormClass()).isCached() );
+		assertNotNull( XPlanCache.load(CachedForm.class) );
+	}
+	
+	/**
+	 * A file whose lengths, or superclass depths, are out of range is a miss.
+	 */
+	@Test
+	public void testCorruptedFile() throws Exception {
+		XMetadata.forClass( loadFormClass() );
+		int names = XPlanCache.HEADER_SIZE + 3 * XFieldTable.FIELD_SIZE * 4;
+		
+		// Length of the root name
+		writeInt( this.planFile(), names, Integer.MAX_VALUE );
+		assertNull( XPlanCache.load(CachedForm.class) );
+		
+		// Superclass depth of the first field, after the root and field names
+		XMetadata.forClass( loadFormClass() );
+		writeInt( this.planFile(), names + 4 + "root".length() + 4 + "box".length(), 100 );
+		assertNull( XPlanCache.load(CachedForm.class) );
+		
+		// Field count
+		XMetadata.forClass( loadFormClass() );
+		writeInt( this.planFile(), 16, -1 );
+		assertNull( XPlanCache.load(CachedForm.class) );
+	}
+	
+	/**
+	 * The files with another magic number, or format, are misses.
+	 */
+	@Test
+	public void testHeader() throws Exception {
+		XMetadata.forClass( loadFormClass() );
+		assertNotNull( XPlanCache.load(CachedForm.class) );
+		
+		writeInt( this.planFile(), 0, XPlanCache.MAGIC + 1 );
+		assertNull( XPlanCache.load(CachedForm.class) );
+		writeInt( this.planFile(), 0, XPlanCache.MAGIC );
+		assertNotNull( XPlanCache.load(CachedForm.class) );
+		
+		writeInt( this.planFile(), 4, XPlanCache.FORMAT - 1 );
+		assertNull( XPlanCache.load(CachedForm.class) );
+		writeInt( this.planFile(), 4, XPlanCache.FORMAT );
+		assertNotNull( XPlanCache.load(CachedForm.class) );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private File planFile() {
+		return new File( this.directory.toFile(), CachedForm.class.getName() + XPlanCache.EXTENSION );
+	}
+	
+	/**
+	 * @return A copy of CachedForm, loaded by a new class loader.
+	 */
+	private static Class<?> loadFormClass() throws ClassNotFoundException {
+		return new FormLoader().loadClass( CachedForm.class.getName() );
+	}
+	
+	/**
+	 * Lays out form, and returns its box, label and button.
+	 */
+	private static Component[] layout(JPanel form) throws Exception {
+		form.setSize( 300, 200 );
+		form.getLayout().layoutContainer( form );
+		JPanel box = (JPanel) form.getClass().getField( "box" ).get( form );
+		box.getLayout().layoutContainer( box );
+		return new Component[] { box, (Component) form.getClass().getField( "label" ).get( form ),
+					(Component) form.getClass().getField( "button" ).get( form ) };
+	}
+	
+	private static void truncate(File file, long length) throws IOException {
+		try ( RandomAccessFile out = new RandomAccessFile(file, "rw") ) {
+			out.setLength( length );
+		}
+	}
+	
+	private static void writeInt(File file, long position, int value) throws IOException {
+		try ( RandomAccessFile out = new RandomAccessFile(file, "rw") ) {
+			out.seek( position );
+			out.writeInt( value );
+		}
+	}
+	
+	/**
+	 * Defines its own copy of CachedForm, and lets its parent load the other classes.
+	 */
+	private static final class FormLoader extends ClassLoader {
+		FormLoader() {
+			super( XPlanCacheTest.class.getClassLoader() );
+		}
+		
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if ( !name.equals(CachedForm.class.getName()) )
+				return super.loadClass( name, resolve );
+			synchronized ( this.getClassLoadingLock(name) ) {
+				Class<?> loaded = this.findLoadedClass( name );
+				if ( loaded != null )
+					return loaded;
+				try ( InputStream in = this.getResourceAsStream(name.replace('.', '/') + ".class") ) {
+					byte bytes[] = in.readAllBytes();
+					return this.defineClass( name, bytes, 0, bytes.length );
+				} catch (IOException e) {
+					throw new ClassNotFoundException( name, e );
+				}
+			}
+		}
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	@XContainer(name="root", paddingLeft=1, paddingRight=2, paddingTop=3, paddingBottom=4)
+	public static class CachedForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, top=10, width=150, height=100)
+		@XContainer(name="inner", paddingLeft=5)
+		public JPanel box = new JPanel( new XLayout() );
+		
+		@XComponent(owner="box", left=0, right=0, top=0)
+		public JLabel label = new JLabel( "Label" );
+		
+		@XComponent(left=170, top=20, right=10)
+		public JButton button = new JButton( "Button" );
+		
+		public CachedForm() {
+			this.setLayout( new XLayout() );
+		}
+	}
+	
+}
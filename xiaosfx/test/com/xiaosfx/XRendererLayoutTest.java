@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.xiaosfx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Component;
+import java.awt.Panel;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import com.xiaosfx.annotation.XComponent;
+import com.xiaosfx.annotation.XContainer;
+
+/**
+ * Checks that the XRendererLayout lays out a panel like the XLayout does,
+ * that it only moves the components whose bounds changed, and that a
+ * single instance can lay out panels of several classes.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XRendererLayoutTest {
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	@Test
+	public void testParity() {
+		for ( boolean keepMinimumSize : new boolean[] { false, true } ) {
+			RendererForm expected = new RendererForm();
+			expected.setLayout( new XLayout(keepMinimumSize) );
+			RendererForm actual = new RendererForm();
+			actual.setLayout( new XRendererLayout(keepMinimumSize) );
+			
+			for ( int size = 0; size < 3; size++ ) {
+				int width = 300 + size * 100;
+				int height = 200 + size * 50;
+				layout( expected, width, height );
+				layout( actual, width, height );
+				assertEquals( expected.getLayout().preferredLayoutSize(expected),
+							actual.getLayout().preferredLayoutSize(actual) );
+				Component expectedComponents[] = expected.getLaidOutComponents();
+				Component actualComponents[] = actual.getLaidOutComponents();
+				for ( int i = 0; i < expectedComponents.length; i++ ) {
+					assertSame( expectedComponents[i].getParent().getClass(), actualComponents[i].getParent().getClass() );
+					assertEquals( expectedComponents[i].getBounds(), actualComponents[i].getBounds(),
+								"Component " + i + ", keepMinimumSize " + keepMinimumSize + ", " + width + "x" + height );
+				}
+			}
+		}
+	}
+	
+	/**
+	 * A cell painted again at the same size moves nothing, a wider one
+	 * only moves the components which depend on the width of their owner.
+	 */
+	@Test
+	public void testOnlyMovedComponents() {
+		RendererForm form = new RendererForm();
+		form.setLayout( XRendererLayout.SHARED );
+		layout( form, 400, 300 );
+		assertEquals( 1, form.title.setBoundsCalls );
+		assertEquals( 1, form.cancel.setBoundsCalls );
+		
+		layout( form, 400, 300 );
+		assertEquals( 1, form.title.setBoundsCalls );
+		assertEquals( 1, form.cancel.setBoundsCalls );
+		
+		// The title is anchored on the left, the cancel button on the bottom
+		layout( form, 500, 300 );
+		assertEquals( 1, form.title.setBoundsCalls );
+		assertEquals( 1, form.cancel.setBoundsCalls );
+		layout( form, 500, 400 );
+		assertEquals( 1, form.title.setBoundsCalls );
+		assertEquals( 2, form.cancel.setBoundsCalls );
+	}
+	
+	/**
+	 * The state of each panel is its own: SHARED lays out panels of
+	 * different classes, and sizes, one after the other.
+	 */
+	@Test
+	public void testSharedInstance() {
+		RendererForm form = new RendererForm();
+		form.setLayout( XRendererLayout.SHARED );
+		OtherRendererForm other = new OtherRendererForm();
+		other.setLayout( XRendererLayout.SHARED );
+		
+		layout( form, 400, 300 );
+		layout( other, 100, 50 );
+		layout( form, 400, 300 );
+		assertEquals( 10, form.header.getX() );
+		assertEquals( 380, form.header.getWidth() );
+		assertEquals( 5, other.value.getX() );
+		assertEquals( 90, other.value.getWidth() );
+		assertSame( form.inner, form.field.getParent() );
+		assertSame( other, other.value.getParent() );
+	}
+	
+	@Test
+	public void testInvalidPanels() {
+		assertThrows( IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				XRendererLayout.SHARED.layoutContainer( new Panel() );
+			}
+		} );
+		assertThrows( IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				XRendererLayout.SHARED.layoutContainer( new JPanel() );
+			}
+		} );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	private static void layout(JPanel form, int width, int height) {
+		form.setSize( width, height );
+		form.getLayout().layoutContainer( form );
+	}
+
+	/*---------------------------------------
+	 * FORMS
+	 */
+	@XContainer(name="root", paddingTop=3)
+	public static class RendererForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=10, right=10, top=10, bottom=60)
+		@XContainer(name="header", paddingLeft=2)
+		public JPanel header = new JPanel( null );
+		@XComponent(left=5, top=5, owner="header")
+		public CountingLabel title = new CountingLabel( "Title" );
+		@XComponent(left=5, right=5, top=40, bottom=5, owner="header")
+		@XContainer(name="inner", paddingTop=1)
+		public JPanel inner = new JPanel( null );
+		@XComponent(left=1, right=1, bottom=1, owner="inner")
+		public JTextField field = new JTextField( 10 );
+		@XComponent(left=10, bottom=10, width=80)
+		public CountingButton cancel = new CountingButton( "Cancel" );
+		
+		Component[] getLaidOutComponents() {
+			return new Component[] { this.header, this.title, this.inner, this.field, this.cancel };
+		}
+	}
+	
+	@XContainer(name="root")
+	public static class OtherRendererForm extends JPanel {
+		private static final long serialVersionUID = 1L;
+		
+		@XComponent(left=5, right=5, top=5)
+		public JLabel value = new JLabel( "Value" );
+	}
+	
+	public static class CountingLabel extends JLabel {
+		private static final long serialVersionUID = 1L;
+		int setBoundsCalls = 0;
+		
+		public CountingLabel(String text) {
+			super( text );
+		}
+		
+		@Override
+		public void setBounds(int x, int y, int width, int height) {
+			this.setBoundsCalls++;
+			super.setBounds( x, y, width, height );
+		}
+	}
+	
+	public static class CountingButton extends JButton {
+		private static final long serialVersionUID = 1L;
+		int setBoundsCalls = 0;
+		
+		public CountingButton(String text) {
+			super( text );
+		}
+		
+		@Override
+		public void setBounds(int x, int y, int width, int height) {
+			this.setBoundsCalls++;
+			super.setBounds( x, y, width, height );
+		}
+	}
+	
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import com.xiaosfx.annotation.XComponent;
+
+/**
+ * Checks that the plans can't be modified, but for their editable copies.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutPlanTest {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	private final static int N = XComponent.NULL;
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * The tables given to the constructor are copied.
+	 */
+	@Test
+	public void testConstructorCopies() {
+		int constraints[][] = newConstraints();
+		int mask[] = { XLayoutPlan.computeMask(constraints, 0) };
+		int owner[] = { XLayoutPlan.ROOT };
+		XLayoutPlan plan = new XLayoutPlan( constraints, mask, owner, new int[] { XLayoutPlan.NONE },
+					new int[0], new int[0], new int[4], new int[] { 0, 1 }, new int[] { 0 } );
+		constraints[XLayoutPlan.LEFT][0] = 99;
+		mask[0] = 0;
+		owner[0] = XLayoutPlan.NONE;
+		assertEquals( 10, plan.getConstraint(0, XLayoutPlan.LEFT) );
+		assertEquals( XLayoutPlan.HAS_LEFT | XLayoutPlan.HAS_TOP | XLayoutPlan.PREFERRED_WIDTH |
+					XLayoutPlan.PREFERRED_HEIGHT, plan.getMask(0) );
+		assertEquals( XLayoutPlan.ROOT, plan.getOwner(0) );
+	}
+	
+	/**
+	 * An editable copy changes one constraint, and its mask, without
+	 * changing the plan it was copied from, which can't be modified.
+	 */
+	@Test
+	public void testEditableCopy() {
+		final XLayoutPlan plan = newPlan();
+		XLayoutPlan copy = plan.editableCopy();
+		assertFalse( plan.isEditable() );
+		assertTrue( copy.isEditable() );
+		
+		copy.setConstraint( 0, XLayoutPlan.WIDTH, 50 );
+		assertEquals( 50, copy.getConstraint(0, XLayoutPlan.WIDTH) );
+		assertEquals( XLayoutPlan.HAS_LEFT | XLayoutPlan.HAS_TOP | XLayoutPlan.HAS_WIDTH |
+					XLayoutPlan.PREFERRED_HEIGHT, copy.getMask(0) );
+		assertEquals( N, plan.getConstraint(0, XLayoutPlan.WIDTH) );
+		assertEquals( XLayoutPlan.HAS_LEFT | XLayoutPlan.HAS_TOP | XLayoutPlan.PREFERRED_WIDTH |
+					XLayoutPlan.PREFERRED_HEIGHT, plan.getMask(0) );
+		
+		copy.resetConstraints( 0, plan );
+		assertEquals( N, copy.getConstraint(0, XLayoutPlan.WIDTH) );
+		assertEquals( plan.getMask(0), copy.getMask(0) );
+		
+		assertThrows( IllegalStateException.class, new Executable() {
+			@Override
+			public void execute() {
+				plan.setConstraint( 0, XLayoutPlan.WIDTH, 50 );
+			}
+		} );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	/**
+	 * The constraints of a single component at left=10, top=10.
+	 */
+	private static int[][] newConstraints() {
+		return new int[][] { { 10 }, { N }, { 10 }, { N }, { N }, { N }, { N }, { N } };
+	}
+	
+	private static XLayoutPlan newPlan() {
+		int constraints[][] = newConstraints();
+		return new XLayoutPlan( constraints, new int[] { XLayoutPlan.computeMask(constraints, 0) },
+					new int[] { XLayoutPlan.ROOT }, new int[] { XLayoutPlan.NONE },
+					new int[0], new int[0], new int[4], new int[] { 0, 1 }, new int[] { 0 } );
+	}
+
+}
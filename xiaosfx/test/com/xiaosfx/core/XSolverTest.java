@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.xiaosfx.annotation.XComponent;
+
+/**
+ * Solves a plan built by hand, with no form class and no component at all,
+ * the way a server would lay out a form.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XSolverTest {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	private final static int N = XComponent.NULL;
+	private final static int NONE = XLayoutPlan.NONE;
+	private final static int ROOT = XLayoutPlan.ROOT;
+	
+	// Preferred and minimum sizes: the box is sized by its own components,
+	// the last component has no owner
+	private final static int SIZES[] = {
+		-1, -1, -1, -1,
+		50, 20, 60, 30,
+		70, 25, 70, 25,
+		40, 10, 20, 10,
+		30, 30, 30, 30
+	};
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	/**
+	 * The bounds of the components in the root container and in the box,
+	 * paddings included, and the component with no owner left alone.
+	 */
+	@Test
+	public void testLayout() {
+		int bounds[] = new int[5 * 4];
+		XSolver.layout( newPlan(), 400, 300, SIZES, null, false, bounds );
+		assertArrayEquals( new int[] {
+				13, 12, 373, 100,
+				7, 5, 50, 20,
+				306, 264, 80, 25,
+				167, 45, 40, 10,
+				0, 0, 0, 0 }, bounds );
+	}
+	
+	/**
+	 * keepMinimumSize grows the components up to their minimum size,
+	 * and the root container too small clamps them.
+	 */
+	@Test
+	public void testKeepMinimumSize() {
+		int bounds[] = new int[5 * 4];
+		XSolver.layout( newPlan(), 60, 50, SIZES, null, true, bounds );
+		assertArrayEquals( new int[] {
+				13, 12, 67, 37,
+				7, 5, 60, 30,
+				3, 14, 70, 25,
+				14, 13, 40, 10,
+				0, 0, 0, 0 }, bounds );
+	}
+	
+	/**
+	 * The preferred and minimum layout sizes of the box and the root
+	 * container, with and without insets.
+	 */
+	@Test
+	public void testLayoutSizes() {
+		int layoutSize[] = new int[2 * 2];
+		XSolver.layoutSizes( newPlan(), SIZES, null, false, layoutSize );
+		assertArrayEquals( new int[] { 87, 38, 57, 25 }, layoutSize );
+		XSolver.layoutSizes( newPlan(), SIZES, null, true, layoutSize );
+		assertArrayEquals( new int[] { 94, 48, 67, 35 }, layoutSize );
+		
+		int insets[] = { 1, 1, 1, 1, 0, 0, 2, 2 };
+		XSolver.layoutSizes( newPlan(), SIZES, insets, false, layoutSize );
+		assertArrayEquals( new int[] { 89, 44, 57, 29 }, layoutSize );
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	/**
+	 * A root container with a box and a button, a label and a centered
+	 * component in the box, and a component whose owner is missing.
+	 */
+	private static XLayoutPlan newPlan() {
+		int constraints[][] = {
+			{ 10, 5, N, N, 20 },	// left
+			{ 10, N, 10, N, N },	// right
+			{ 10, 5, N, N, 20 },	// top
+			{ N, N, 10, N, N },		// bottom
+			{ N, N, N, 0, N },		// horizontalCenter
+			{ N, N, N, 0, N },		// verticalCenter
+			{ N, N, 80, N, N },		// width
+			{ 100, N, N, N, N }		// height
+		};
+		int mask[] = new int[5];
+		for ( int i = 0; i < mask.length; i++ )
+			mask[i] = XLayoutPlan.computeMask( constraints, i );
+		return new XLayoutPlan( constraints, mask,
+					new int[] { ROOT, 0, ROOT, 0, NONE },
+					new int[] { 0, NONE, NONE, NONE, NONE },
+					new int[] { 0 },
+					new int[] { 0 },
+					new int[] { 3, 4, 2, 1, 2, 0, 0, 0 },
+					new int[] { 0, 2, 4 },
+					new int[] { 0, 2, 1, 3 } );
+	}
+
+}
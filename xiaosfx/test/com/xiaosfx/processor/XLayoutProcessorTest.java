@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2012, Alex Sam Lou
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 	1.	Redistributions of source code must retain the above copyright notice, this
+ * 		list of conditions and the following disclaimer.
+ * 
+ * 	2.	Redistributions in binary form must reproduce the above copyright notice,
+ * 		this list of conditions and the following disclaimer in the documentation
+ * 		and/or other materials provided with the distribution.
+ * 
+ * 	3.	Neither the name of the XiaoS!Fx nor the names of its contributors may
+ * 		be used to endorse or promote products derived from this software without
+ * 		specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.xiaosfx.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.JPanel;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.xiaosfx.XLayout;
+import com.xiaosfx.XMetadata;
+
+/**
+ * Compiles a form twice, with and without the XLayoutProcessor, and checks
+ * that the generated companion gives the same bounds and sizes as the
+ * Reflection scan.<br><br>
+ * 
+ * Visit: <a href="http://www.xiaosfx.com">http://www.xiaosfx.com</a>
+ * for more informations.
+ */
+public class XLayoutProcessorTest {
+	/*---------------------------------------
+	 * CONSTANTS
+	 */
+	private final static String FORM_NAME = "forms.ParityForm";
+	private final static String FORM_SOURCE =
+		"package forms;\n" +
+		"import javax.swing.*;\n" +
+		"import com.xiaosfx.annotation.*;\n" +
+		"@XContainer(name=\"root\", paddingLeft=3, paddingTop=2, paddingRight=4, paddingBottom=1)\n" +
+		"public class ParityForm extends JPanel {\n" +
+		"	@XComponent(left=10, right=10, top=10, height=120)\n" +
+		"	@XContainer(name=\"header\", paddingLeft=2, paddingTop=1)\n" +
+		"	public JPanel header = new JPanel( null );\n" +
+		"	@XComponent(left=5, top=5, owner=\"header\") public JLabel title = new JLabel( \"Title\" );\n" +
+		"	@XComponent(right=5, verticalCenter=-4, owner=\"header\") public JButton ok = new JButton( \"OK\" );\n" +
+		"	@XComponent(horizontalCenter=-3, top=40, width=60, owner=\"header\") public JLabel centered = new JLabel( \"Center\" );\n" +
+		"	@XComponent(left=1, right=1, bottom=1, owner=\"header\") public JTextField field = new JTextField( 10 );\n" +
+		"	@XComponent(left=10, bottom=10, width=80) public JButton cancel = new JButton( \"Cancel\" );\n" +
+		"	@XComponent(top=140, bottom=10, right=10, width=300) public JTextArea area = new JTextArea( 5, 20 );\n" +
+		"	@XComponent(horizontalCenter=0, verticalCenter=0, owner=\"root\") public JLabel middle = new JLabel( \"Middle\" );\n" +
+		"	@XComponent(left=20, top=150, owner=\"nowhere\") public JLabel lost = new JLabel( \"Lost\" );\n" +
+		"}\n";
+	
+	private final static int SIZES[][] = { {640, 480}, {300, 200}, {1000, 900}, {50, 40} };
+
+	/*---------------------------------------
+	 * TESTS
+	 */
+	@Test
+	public void testLayoutParity(@TempDir Path directory) throws Exception {
+		Class<?> reflected = compile( directory.resolve("reflected"), false );
+		Class<?> compiled = compile( directory.resolve("compiled"), true );
+		assertFalse( XMetadata.forClass(reflected).isCompiled() );
+		assertTrue( XMetadata.forClass(compiled).isCompiled() );
+		assertEquals( Arrays.asList(XMetadata.forClass(reflected).getWarnings()),
+					Arrays.asList(XMetadata.forClass(compiled).getWarnings()) );
+		
+		for ( boolean keepMinimumSize : new boolean[] { false, true } ) {
+			JPanel expected = newForm( reflected, keepMinimumSize );
+			JPanel actual = newForm( compiled, keepMinimumSize );
+			assertEquals( expected.getPreferredSize(), actual.getPreferredSize() );
+			assertEquals( expected.getMinimumSize(), actual.getMinimumSize() );
+			for ( int i = 0; i < SIZES.length; i++ ) {
+				expected.setSize( SIZES[i][0], SIZES[i][1] );
+				expected.getLayout().layoutContainer( expected );
+				actual.setSize( SIZES[i][0], SIZES[i][1] );
+				actual.getLayout().layoutContainer( actual );
+				assertEquals( getBounds(expected), getBounds(actual), "keepMinimumSize=" + keepMinimumSize +
+							", size " + SIZES[i][0] + "x" + SIZES[i][1] );
+			}
+		}
+	}
+
+	/*----------------
+	 * Helpers
+	 */
+	/**
+	 * Compiles the form into directory, and loads it in its own class loader.
+	 */
+	private static Class<?> compile(Path directory, boolean processed) throws IOException, ClassNotFoundException {
+		Path source = directory.resolve( "src/forms/ParityForm.java" );
+		Path classes = directory.resolve( "classes" );
+		Files.createDirectories( source.getParent() );
+		Files.createDirectories( classes );
+		Files.write( source, FORM_SOURCE.getBytes(StandardCharsets.UTF_8) );
+		
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		List<String> arguments = new ArrayList<String>( Arrays.asList("-classpath", System.getProperty("java.class.path"),
+					"-d", classes.toString()) );
+		if ( processed )
+			arguments.addAll( Arrays.asList("-processor", XLayoutProcessor.class.getName()) );
+		else
+			arguments.add( "-proc:none" );
+		arguments.add( source.toString() );
+		int result = compiler.run( null, null, null, arguments.toArray(new String[arguments.size()]) );
+		assertEquals( 0, result, "Compilation of " + FORM_NAME );
+		assertEquals( processed, new File(classes.toFile(), "forms/ParityForm_XCompanion.class").isFile() );
+		
+		URLClassLoader loader = new URLClassLoader( new URL[] { classes.toUri().toURL() },
+					XLayoutProcessorTest.class.getClassLoader() );
+		return Class.forName( FORM_NAME, true, loader );
+	}
+	
+	private static JPanel newForm(Class<?> formClass, boolean keepMinimumSize) throws ReflectiveOperationException {
+		JPanel form = (JPanel) formClass.getConstructor().newInstance();
+		form.setLayout( new XLayout(keepMinimumSize) );
+		return form;
+	}
+	
+	/**
+	 * Returns the bounds of all the components inside container, depth first.
+	 */
+	private static List<String> getBounds(Container container) {
+		List<String> bounds = new ArrayList<String>();
+		for ( Component component : container.getComponents() ) {
+			bounds.add( component.getClass().getSimpleName() + " " + component.getBounds() );
+			if ( component instanceof Container )
+				bounds.addAll( getBounds((Container) component) );
+		}
+		return bounds;
+	}
+
+}